@@ -0,0 +1,101 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.IntSummaryStatistics;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.javacrumbs.fjdemo.collector.HyperLogLog;
+import net.javacrumbs.fjdemo.collector.LongStatistics;
+import net.javacrumbs.fjdemo.collector.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares primitive collectors with boxed collection and shows how the cost of combine scales with the number
+ * of leaf chunks. Streams split to about four leaves per thread of the pool they run in, so the number of combines
+ * grows with the parallelism parameter. Combine of TopK costs O(k log k) and of HyperLogLog O(2^precision).
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar CollectorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CollectorBenchmark {
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"1", "4", "16", "64"})
+    private int parallelism;
+
+    private int[] numbers;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = new Random(42).ints(size).toArray();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public IntSummaryStatistics boxedStatistics() throws Exception {
+        return run(() -> IntStream.of(numbers).parallel().boxed().collect(Collectors.summarizingInt(Integer::intValue)));
+    }
+
+    @Benchmark
+    public LongStatistics statistics() throws Exception {
+        return run(() -> IntStream.of(numbers).parallel().collect(LongStatistics::new, LongStatistics::accept, LongStatistics::combine));
+    }
+
+    @Benchmark
+    public TopK topK() throws Exception {
+        return run(() -> IntStream.of(numbers).parallel().collect(() -> new TopK(1000), TopK::accept, TopK::combine));
+    }
+
+    @Benchmark
+    public HyperLogLog hyperLogLog() throws Exception {
+        return run(() -> IntStream.of(numbers).parallel().collect(HyperLogLog::new, HyperLogLog::accept, HyperLogLog::combine));
+    }
+
+    private <T> T run(Supplier<T> calculation) throws ExecutionException, InterruptedException {
+        return pool.submit(calculation::get).get();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import net.javacrumbs.fjdemo.metrics.SpliteratorMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures overhead of the instrumented spliterator on parallel streams. Processing of whole chunks
+ * (sum) and element by element traversal of short-circuiting operations (anyMatch) are measured separately.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar InstrumentedSpliteratorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InstrumentedSpliteratorBenchmark {
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private List<Integer> numbers;
+    private SpliteratorMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        Random random = new Random(42);
+        numbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(random.nextInt(1000));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createMetrics() {
+        metrics = new SpliteratorMetrics();
+    }
+
+    @Benchmark
+    public long sum() {
+        return numbers.parallelStream().mapToLong(i -> i * 31 + 7).sum();
+    }
+
+    @Benchmark
+    public long sumInstrumented() {
+        return StreamSupport.stream(metrics.wrap(numbers.spliterator()), true).mapToLong(i -> i * 31 + 7).sum();
+    }
+
+    @Benchmark
+    public boolean anyMatch() {
+        return numbers.parallelStream().anyMatch(i -> i < 0);
+    }
+
+    @Benchmark
+    public boolean anyMatchInstrumented() {
+        return StreamSupport.stream(metrics.wrap(numbers.spliterator()), true).anyMatch(i -> i < 0);
+    }
+}
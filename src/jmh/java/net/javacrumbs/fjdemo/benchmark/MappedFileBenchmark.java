@@ -0,0 +1,92 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import net.javacrumbs.fjdemo.spliterator.MappedRecordSpliterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parallel scanning of a CSV file by {@link Files#lines(Path)} and {@link MappedRecordSpliterator}.
+ * The file is written once per trial, so after the first iteration it is read from the page cache.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar MappedFileBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MappedFileBenchmark {
+    @Param({"1000000"})
+    private int lines;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = Files.createTempFile("fjdemo-benchmark", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(i + ",user" + random.nextInt(10000) + "," + random.nextInt(1000));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (Stream<String> stream = Files.lines(file, StandardCharsets.UTF_8)) {
+            return sumLastColumn(stream.parallel());
+        }
+    }
+
+    @Benchmark
+    public long mappedLines() throws IOException {
+        return sumLastColumn(MappedRecordSpliterator.lines(file, StandardCharsets.UTF_8, true));
+    }
+
+    private static long sumLastColumn(Stream<String> lines) {
+        return lines.mapToLong(line -> Long.parseLong(line.substring(line.lastIndexOf(',') + 1))).sum();
+    }
+}
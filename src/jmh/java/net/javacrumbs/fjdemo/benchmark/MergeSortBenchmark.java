@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.IntCountedCompleterMergeSort;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the RecursiveAction and CountedCompleter merge sorts with Arrays.parallelSort.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar MergeSortBenchmark}, use
+ * {@code -p size=1000000} to limit the parameters. The biggest sizes need a big heap, e.g. {@code -jvmArgs -Xmx4g}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MergeSortBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    private int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "FEW_UNIQUES"})
+    private Distribution distribution;
+
+    @Param({"1", "4", "8"})
+    private int parallelism;
+
+    private int[] data;
+    private int[] numbers;
+    private ForkJoinPool pool;
+
+    private final IntMergeSort recursiveAction = new IntMergeSort();
+    private final IntCountedCompleterMergeSort countedCompleter = new IntCountedCompleterMergeSort();
+
+    @Setup(Level.Trial)
+    public void createData() {
+        data = distribution.ints(size, SEED);
+        numbers = new int[size];
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetData() {
+        System.arraycopy(data, 0, numbers, 0, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] recursiveAction() {
+        recursiveAction.sort(pool, numbers);
+        return numbers;
+    }
+
+    @Benchmark
+    public int[] countedCompleter() {
+        countedCompleter.sort(pool, numbers);
+        return numbers;
+    }
+
+    /**
+     * Arrays.parallelSort derives its granularity from the common pool parallelism, but it runs
+     * its tasks in the pool of the calling worker thread.
+     */
+    @Benchmark
+    public int[] parallelSort() {
+        pool.submit(() -> Arrays.parallelSort(numbers)).join();
+        return numbers;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.IntSelection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares top-K and percentile computed by {@link IntSelection} with a full merge sort of a copy.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar SelectionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SelectionBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    @Param({"RANDOM", "SORTED", "FEW_UNIQUES"})
+    private Distribution distribution;
+
+    @Param({"100", "10000"})
+    private int k;
+
+    @Param({"4"})
+    private int parallelism;
+
+    private int[] data;
+    private ForkJoinPool pool;
+    private final IntSelection selection = new IntSelection();
+    private final IntMergeSort sort = new IntMergeSort();
+
+    @Setup
+    public void createData() {
+        data = distribution.ints(size, SEED);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] smallest() {
+        return selection.smallest(pool, data, k);
+    }
+
+    @Benchmark
+    public int percentile99() {
+        return selection.percentile(pool, data, 99);
+    }
+
+    /**
+     * Baseline for both the top-K and the percentile.
+     */
+    @Benchmark
+    public int[] fullSort() {
+        int[] numbers = data.clone();
+        sort.sort(pool, numbers);
+        return numbers;
+    }
+}
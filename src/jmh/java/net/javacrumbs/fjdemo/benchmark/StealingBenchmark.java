@@ -0,0 +1,169 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.SortSettings;
+import net.javacrumbs.fjdemo.sort.StealingIntMergeSort;
+import net.javacrumbs.fjdemo.steal.DequeType;
+import net.javacrumbs.fjdemo.steal.IdleStrategy;
+import net.javacrumbs.fjdemo.steal.LocalMode;
+import net.javacrumbs.fjdemo.steal.StealStrategy;
+import net.javacrumbs.fjdemo.steal.StealingRecursiveTask;
+import net.javacrumbs.fjdemo.steal.StealingSettings;
+import net.javacrumbs.fjdemo.steal.WorkStealingExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares policies of {@link WorkStealingExecutor} on fine-grained tasks: merge sort with small leaves and
+ * recursive Fibonacci where every task does almost no work. The ForkJoinPool variants are the baseline,
+ * they do not depend on the policy parameters.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar StealingBenchmark}, use for example
+ * {@code -p idleStrategy=PARK -p dequeType=CHASE_LEV} to limit the parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StealingBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final int FIBONACCI = 27;
+
+    @Param({"CHASE_LEV", "LOCKED"})
+    private DequeType dequeType;
+
+    @Param({"RANDOM", "ROUND_ROBIN", "STEAL_HALF"})
+    private StealStrategy stealStrategy;
+
+    @Param({"LIFO", "FIFO"})
+    private LocalMode localMode;
+
+    @Param({"SPIN", "YIELD", "PARK"})
+    private IdleStrategy idleStrategy;
+
+    @Param({"4"})
+    private int parallelism;
+
+    private final SortSettings sortSettings = SortSettings.defaults().withSequentialThreshold(1024).withMergeThreshold(4096);
+    private int[] data;
+    private int[] numbers;
+    private WorkStealingExecutor executor;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Distribution.RANDOM.ints(SIZE, 42);
+        numbers = new int[SIZE];
+        executor = new WorkStealingExecutor(parallelism, StealingSettings.defaults()
+            .withDequeType(dequeType).withStealStrategy(stealStrategy).withLocalMode(localMode).withIdleStrategy(idleStrategy));
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println(executor);
+        executor.close();
+        pool.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetData() {
+        System.arraycopy(data, 0, numbers, 0, SIZE);
+    }
+
+    @Benchmark
+    public int[] stealingSort() {
+        new StealingIntMergeSort(sortSettings).sort(executor, numbers);
+        return numbers;
+    }
+
+    @Benchmark
+    public int[] forkJoinSort() {
+        new IntMergeSort(sortSettings).sort(pool, numbers);
+        return numbers;
+    }
+
+    @Benchmark
+    public long stealingFibonacci() {
+        return executor.invoke(new StealingFibonacci(FIBONACCI));
+    }
+
+    @Benchmark
+    public long forkJoinFibonacci() {
+        return pool.invoke(new Fibonacci(FIBONACCI));
+    }
+
+    private static class StealingFibonacci extends StealingRecursiveTask<Long> {
+        private final int n;
+
+        private StealingFibonacci(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n < 2) {
+                return (long) n;
+            }
+            StealingFibonacci f1 = new StealingFibonacci(n - 1);
+            StealingFibonacci f2 = new StealingFibonacci(n - 2);
+            f2.fork();
+            return f1.compute() + f2.join();
+        }
+    }
+
+    private static class Fibonacci extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 2923857264530178564L;
+
+        private final int n;
+
+        private Fibonacci(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n < 2) {
+                return (long) n;
+            }
+            Fibonacci f1 = new Fibonacci(n - 1);
+            Fibonacci f2 = new Fibonacci(n - 2);
+            f2.fork();
+            return f1.compute() + f2.join();
+        }
+    }
+}
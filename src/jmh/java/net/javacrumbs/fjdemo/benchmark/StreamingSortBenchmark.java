@@ -0,0 +1,116 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.SortSettings;
+import net.javacrumbs.fjdemo.sort.StreamingIntSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link StreamingIntSort} with collecting all the chunks and sorting them after the last one arrives.
+ * Chunks arrive with a fixed delay, so both benchmarks include the same ingestion time and the difference is the
+ * latency saved by sorting while the data arrive. With no delay the streaming sort pays for its extra merges.
+ * <p>
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar StreamingSortBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StreamingSortBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"64"})
+    private int chunks;
+
+    @Param({"100000"})
+    private int chunkSize;
+
+    /**
+     * Delay between two chunks.
+     */
+    @Param({"0", "5000"})
+    private int arrivalMicros;
+
+    @Param({"2", "4", "8"})
+    private int fanout;
+
+    @Param({"4"})
+    private int parallelism;
+
+    private int[][] data;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void createData() {
+        data = new int[chunks][];
+        for (int i = 0; i < chunks; i++) {
+            data[i] = Distribution.RANDOM.ints(chunkSize, SEED + i);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] streaming() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool, SortSettings.defaults(), fanout);
+        for (int[] chunk : data) {
+            sort.add(chunk);
+            arrive();
+        }
+        return sort.finish();
+    }
+
+    @Benchmark
+    public int[] sortAfterLastChunk() {
+        int[] numbers = new int[chunks * chunkSize];
+        for (int i = 0; i < chunks; i++) {
+            System.arraycopy(data[i], 0, numbers, i * chunkSize, chunkSize);
+            arrive();
+        }
+        new IntMergeSort().sort(pool, numbers);
+        return numbers;
+    }
+
+    private void arrive() {
+        if (arrivalMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(arrivalMicros));
+        }
+    }
+}
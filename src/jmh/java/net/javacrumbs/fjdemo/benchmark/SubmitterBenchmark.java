@@ -0,0 +1,138 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import net.javacrumbs.fjdemo.metrics.Histogram;
+import net.javacrumbs.fjdemo.metrics.HistogramSnapshot;
+import net.javacrumbs.fjdemo.pool.StreamPool;
+import net.javacrumbs.fjdemo.pool.SubmitterMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+/**
+ * Request handlers that block and then fan out CPU work to a bounded pool. Every submitter sends one request
+ * per invocation, the request sleeps (I/O) and then runs a parallel stream in a dedicated {@link StreamPool}
+ * sized to the number of cores. Platform submitters are a fixed pool of threads, virtual submitters start
+ * a virtual thread per request. Throughput is submitters divided by the reported time, latencies of single
+ * requests including waiting for a submitter thread are collected in the measurement iterations and printed at the end
+ * of each trial.
+ * <p>
+ * Virtual submitters need Java 21, on older JVMs their trials fail and the other ones continue.
+ * Run by {@code mvn -P jmh package && java -jar target/benchmarks.jar SubmitterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SubmitterBenchmark {
+    @Param({"PLATFORM", "VIRTUAL"})
+    private SubmitterMode mode;
+
+    @Param({"10", "100", "10000"})
+    private int submitters;
+
+    /**
+     * Size of the platform submitter pool, a usual number of request threads of a server.
+     */
+    @Param({"200"})
+    private int platformThreads;
+
+    @Param({"10"})
+    private int blockMillis;
+
+    @Param({"10000"})
+    private int work;
+
+    private ExecutorService executor;
+    private StreamPool streamPool;
+    private Histogram latencies;
+    private boolean measuring;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = mode.newExecutor("submitter-", platformThreads);
+        streamPool = new StreamPool("cpu");
+        latencies = new Histogram();
+        measuring = false;
+    }
+
+    /**
+     * Drops the latencies recorded during warmup when the first measurement iteration starts.
+     */
+    @Setup(Level.Iteration)
+    public void startIteration(IterationParams params) {
+        if (params.getType() == IterationType.MEASUREMENT && !measuring) {
+            measuring = true;
+            latencies.snapshotAndReset();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HistogramSnapshot snapshot = latencies.snapshot();
+        System.out.printf("%nLatency of %s submitters (%d): p50=%.1f ms, p99=%.1f ms, p99.9=%.1f ms, max=%.1f ms%n",
+            mode, submitters, millis(snapshot.getMedian()), millis(snapshot.getP99()),
+            millis(snapshot.getValueAtPercentile(99.9)), millis(snapshot.getMax()));
+        executor.shutdownNow();
+        streamPool.close();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Benchmark
+    public long requests() throws ExecutionException, InterruptedException {
+        List<Future<Long>> results = new ArrayList<>(submitters);
+        for (int i = 0; i < submitters; i++) {
+            long submitted = System.nanoTime();
+            results.add(executor.submit(() -> {
+                Thread.sleep(blockMillis);
+                long result = streamPool.invoke(() -> LongStream.range(0, work).parallel().map(x -> x * x % 7).sum());
+                latencies.record(System.nanoTime() - submitted);
+                return result;
+            }));
+        }
+        long sum = 0;
+        for (Future<Long> result : results) {
+            sum += result.get();
+        }
+        return sum;
+    }
+}
@@ -6,22 +6,52 @@ package net.javacrumbs.fjdemo;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.SequentialSort;
+import net.javacrumbs.fjdemo.sort.SortObserver;
+import net.javacrumbs.fjdemo.trace.FramePump;
+import net.javacrumbs.fjdemo.trace.RecordingSortObserver;
+import net.javacrumbs.fjdemo.trace.ReplayControls;
+import net.javacrumbs.fjdemo.trace.TaskEvent;
+import net.javacrumbs.fjdemo.trace.TaskEventRecorder;
+import net.javacrumbs.fjdemo.trace.TaskEventType;
+import net.javacrumbs.fjdemo.trace.TaskTreeComponent;
+import net.javacrumbs.fjdemo.trace.TaskTreeModel;
+import net.javacrumbs.fjdemo.trace.TraceReader;
+import net.javacrumbs.fjdemo.trace.TraceSession;
+import net.javacrumbs.fjdemo.trace.TraceView;
+
 public abstract class AbstractVisualForkJoinMergeSort {
     protected static final int ROW_HEIGHT = 40;
     protected static final int COL_WIDTH = 37;
     protected static final Color COLOR_WAIT = new Color(212, 146, 52);
     protected static final Color COLOR_SCHEDULED = new Color(134, 219, 52);
     protected static final Color COLOR_FINISHED = Color.GRAY;
+    private static final int EVENT_REFRESH_MILLIS = 40;
+    /**
+     * Events buffered per worker in the fast rendering mode, big enough not to drop events between two frames.
+     */
+    private static final int FAST_RENDERING_CAPACITY = 1 << 18;
+    /**
+     * Replayed tasks narrower than this number of pixels are not shown.
+     */
+    private static final double MIN_REPLAY_LABEL_WIDTH = 2;
     private static final Color[] THREAD_COLORS = new Color[]{
             Color.YELLOW,
             Color.CYAN,
@@ -36,10 +66,23 @@ public abstract class AbstractVisualForkJoinMergeSort {
     protected JPanel panel;
     private JSlider numThreads;
     private JSlider problemSize;
+    private JSlider sequentialThreshold;
     private JSlider speed;
     private JButton startButton;
     private JCheckBox randomCheckBox = new JCheckBox("Random data", false);
     private JCheckBox randomDelayCheckBox = new JCheckBox("Random speed", false);
+    private JCheckBox recordCheckBox = new JCheckBox("Record at full speed", false);
+    private JCheckBox fastRenderingCheckBox = new JCheckBox("Fast rendering of", false);
+    private JComboBox<Integer> fastRenderingSize = new JComboBox<>(new Integer[]{1_000, 100_000, 1_000_000});
+    private JButton recordButton;
+    private JButton replayButton;
+    private JComboBox<Integer> traceSize = new JComboBox<>(new Integer[]{10_000, 100_000, 1_000_000, 10_000_000});
+    private EventView replayView;
+    private ReplayControls replayControls;
+    private volatile EventPump eventPump;
+    private volatile FramePump framePump;
+    private JScrollPane scrollPane;
+    private TaskTreeComponent taskTree;
 
     /**
      * Returns color of current thread.
@@ -87,6 +130,7 @@ public abstract class AbstractVisualForkJoinMergeSort {
 
         numThreads = createSlider(1, 8, 3, "Number of threads");
         problemSize = createSlider(4, 64, 32, "Problem size");
+        sequentialThreshold = createSlider(2, 16, 2, "Sequential threshold");
         speed = new JSlider(0, 1000, 700);
         speed.setBorder(BorderFactory.createTitledBorder("Speed"));
 
@@ -94,20 +138,38 @@ public abstract class AbstractVisualForkJoinMergeSort {
         startButton = new JButton("Start");
         startButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                numThreads.setEnabled(false);
-                problemSize.setEnabled(false);
-                startButton.setEnabled(false);
-                panel.setPreferredSize(new Dimension(problemSize.getValue() * COL_WIDTH, 7 * ROW_HEIGHT));
-                panel.removeAll();
+                setControlsEnabled(false);
+                replayControls.clear();
+                if (isFastRendering()) {
+                    taskTree = new TaskTreeComponent(ROW_HEIGHT);
+                    scrollPane.setViewportView(taskTree);
+                } else {
+                    scrollPane.setViewportView(panel);
+                    panel.setPreferredSize(new Dimension(problemSize.getValue() * COL_WIDTH, 7 * ROW_HEIGHT));
+                    panel.removeAll();
+                }
                 new Thread(AbstractVisualForkJoinMergeSort.this::runDemo).start();
             }
         });
 
+        recordButton = new JButton("Record trace...");
+        recordButton.setToolTipText("Sorts random numbers at full speed, saves the task events and replays them");
+        recordButton.addActionListener(e -> recordTrace());
+        replayButton = new JButton("Replay trace...");
+        replayButton.addActionListener(e -> replayTrace());
+        traceSize.setSelectedItem(1_000_000);
+        traceSize.setMaximumSize(traceSize.getPreferredSize());
+        traceSize.setToolTipText("Number of elements sorted when recording a trace");
+        fastRenderingSize.setSelectedItem(100_000);
+        fastRenderingSize.setMaximumSize(fastRenderingSize.getPreferredSize());
+        fastRenderingCheckBox.setToolTipText("Sorts at full speed and paints the whole task tree on one component, numbers are not shown");
+        replayView = new EventView();
+        replayControls = new ReplayControls(replayView);
 
         Box vbox = Box.createVerticalBox();
 
         Box hbox1 = Box.createHorizontalBox();
-        hbox1.add(new JLabel("<html><ol><li>Thread takes a task from the queue. If the tasks is too big (longer than two elements in our case) it is split to two smaller tasks</li><li>The subtasks are placed to the queue to be processed</li> <li>While the task waits for its subtasks to finish, the thread is free to take another task from the queue (step 1.)</li> <li>When the subtasks are finished their results are merged</li> </ol> </html>"));
+        hbox1.add(new JLabel("<html><ol><li>Thread takes a task from the queue. If the tasks is too big (longer than the sequential threshold) it is split to two smaller tasks</li><li>The subtasks are placed to the queue to be processed</li> <li>While the task waits for its subtasks to finish, the thread is free to take another task from the queue (step 1.)</li> <li>When the subtasks are finished their results are merged</li> </ol> </html>"));
         vbox.add(hbox1);
 
         JPanel panel1 = new JPanel();
@@ -123,6 +185,7 @@ public abstract class AbstractVisualForkJoinMergeSort {
         hbox2.add(speed);
         hbox2.add(numThreads);
         hbox2.add(problemSize);
+        hbox2.add(sequentialThreshold);
         vbox.add(hbox2);
 
 
@@ -130,11 +193,22 @@ public abstract class AbstractVisualForkJoinMergeSort {
         hbox3.add(startButton);
         hbox3.add(randomCheckBox);
         hbox3.add(randomDelayCheckBox);
+        if (supportsRecording()) {
+            hbox3.add(recordCheckBox);
+            hbox3.add(fastRenderingCheckBox);
+            hbox3.add(fastRenderingSize);
+        }
+        hbox3.add(Box.createHorizontalStrut(20));
+        hbox3.add(recordButton);
+        hbox3.add(traceSize);
+        hbox3.add(replayButton);
         vbox.add(hbox3);
 
 
         frame.add(vbox, BorderLayout.NORTH);
-        frame.add(new JScrollPane(panel), BorderLayout.CENTER);
+        scrollPane = new JScrollPane(panel);
+        frame.add(scrollPane, BorderLayout.CENTER);
+        frame.add(replayControls, BorderLayout.SOUTH);
         frame.setVisible(true);
         frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
     }
@@ -222,12 +296,18 @@ public abstract class AbstractVisualForkJoinMergeSort {
         return result;
     }
 
-    protected void swapIfNeeded(int[] numbers) {
-        if (numbers[0] > numbers[1]) {
-            int tmp = numbers[0];
-            numbers[0] = numbers[1];
-            numbers[1] = tmp;
-        }
+    /**
+     * Sorts numbers without forking subtasks. Used for tasks not bigger than the sequential threshold.
+     */
+    protected void sortSequentially(int[] numbers) {
+        SequentialSort.sort(numbers, 0, numbers.length);
+    }
+
+    /**
+     * Tasks with at most this number of elements are not split.
+     */
+    protected int getSequentialThreshold() {
+        return sequentialThreshold.getValue();
     }
 
     /**
@@ -235,25 +315,124 @@ public abstract class AbstractVisualForkJoinMergeSort {
      */
     private void runDemo() {
         ForkJoinPool threadPool = new ForkJoinPool(numThreads.getValue());
-        int[] numbers = new int[problemSize.getValue()];
+        boolean fastRendering = isFastRendering();
+        int size = fastRendering ? (Integer) fastRenderingSize.getSelectedItem() : problemSize.getValue();
+        int[] numbers = new int[size];
 
         for (int i = 0; i < numbers.length; i++) {
             if (randomCheckBox.isSelected()) {
                 numbers[i] = random.nextInt(100);
             } else {
-                numbers[i] = problemSize.getValue() - i;
+                numbers[i] = size - i;
             }
         }
+        long start = System.nanoTime();
         threadPool.invoke(createTask(numbers));
+        long duration = System.nanoTime() - start;
+        threadPool.shutdown();
+        EventPump pump = eventPump;
+        if (pump != null) {
+            eventPump = null;
+            pump.finish();
+        }
+        FramePump fastPump = framePump;
+        if (fastPump != null) {
+            framePump = null;
+            fastPump.finish(() -> setControlsEnabled(true));
+            System.out.println("Sorted " + size + " numbers in " + duration / 1_000_000 + " ms");
+            return;
+        }
 
-        threadSafe(() -> {
-            numThreads.setEnabled(true);
-            problemSize.setEnabled(true);
-            startButton.setEnabled(true);
-        });
+        threadSafe(() -> setControlsEnabled(true));
         System.out.println("Sorted numbers: " + Arrays.toString(numbers));
     }
 
+    private void setControlsEnabled(boolean enabled) {
+        numThreads.setEnabled(enabled);
+        problemSize.setEnabled(enabled);
+        sequentialThreshold.setEnabled(enabled);
+        startButton.setEnabled(enabled);
+        fastRenderingCheckBox.setEnabled(enabled);
+        fastRenderingSize.setEnabled(enabled);
+        recordButton.setEnabled(enabled);
+        replayButton.setEnabled(enabled);
+    }
+
+    /**
+     * Sorts random numbers by the headless merge sort at full speed, records task events to a trace file and replays it.
+     */
+    private void recordTrace() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(panel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        int size = (Integer) traceSize.getSelectedItem();
+        int threads = numThreads.getValue();
+        long seed = random.nextLong();
+        setControlsEnabled(false);
+        replayControls.clear();
+        new Thread(() -> {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                int[] numbers = Distribution.RANDOM.ints(size, seed);
+                long start = System.nanoTime();
+                try (TraceSession session = TraceSession.start(file)) {
+                    new IntMergeSort(new RecordingSortObserver(session.getRecorder())).sort(pool, numbers);
+                    System.out.println("Sorted " + size + " numbers in " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                        + session.getDroppedEvents() + " events dropped");
+                }
+                List<TaskEvent> events = TraceReader.read(file);
+                SwingUtilities.invokeLater(() -> replay(events));
+            } catch (IOException e) {
+                showError("Can not record trace", e);
+            } finally {
+                pool.shutdown();
+            }
+        }).start();
+    }
+
+    private void replayTrace() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(panel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        setControlsEnabled(false);
+        replayControls.clear();
+        new Thread(() -> {
+            try {
+                List<TaskEvent> events = TraceReader.read(file);
+                SwingUtilities.invokeLater(() -> replay(events));
+            } catch (IOException e) {
+                showError("Can not read trace", e);
+            }
+        }).start();
+    }
+
+    /**
+     * Replays the events scaled to the width of the window, has to be called from the event dispatch thread.
+     */
+    private void replay(List<TaskEvent> events) {
+        int maxDepth = events.stream().mapToInt(TaskEvent::getDepth).max().orElse(0);
+        scrollPane.setViewportView(panel);
+        int width = Math.max(panel.getParent().getWidth(), 100);
+        replayView.setWidth(width);
+        panel.setPreferredSize(new Dimension(width, (maxDepth + 1) * ROW_HEIGHT + 20));
+        panel.revalidate();
+        replayControls.load(events);
+        replayControls.play();
+        setControlsEnabled(true);
+    }
+
+    private void showError(String message, Exception e) {
+        e.printStackTrace();
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(panel, message + ": " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            setControlsEnabled(true);
+        });
+    }
+
 
 
     /**
@@ -265,20 +444,249 @@ public abstract class AbstractVisualForkJoinMergeSort {
      * @param numbers
      */
     protected JLabel createLabel(int col, int row, int[] numbers) {
-        final JLabel label = new JLabel(" " + Arrays.toString(numbers));
+        final JLabel label = newTaskLabel(col, row, numbers, threadColor());
+        threadSafe(() -> panel.add(label));
+        return label;
+    }
+
+    private JLabel newTaskLabel(int col, int row, int[] numbers, Color foreground) {
+        JLabel label = new JLabel(" " + Arrays.toString(numbers));
         label.setBounds(col * COL_WIDTH, row * ROW_HEIGHT + 20, numbers.length * COL_WIDTH, ROW_HEIGHT);
         label.setBackground(COLOR_SCHEDULED);
         label.setOpaque(true);
         label.setToolTipText(Arrays.toString(numbers));
         label.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-        label.setForeground(threadColor());
+        label.setForeground(foreground);
         setDefaultFont(label);
-        threadSafe(() -> panel.add(label));
         return label;
     }
 
     protected abstract ForkJoinTask<Void> createTask(int[] numbers);
 
+    /**
+     * Returns true if the subclass is able to record events instead of updating the labels directly.
+     */
+    protected boolean supportsRecording() {
+        return false;
+    }
+
+    protected boolean isRecording() {
+        return supportsRecording() && (recordCheckBox.isSelected() || fastRenderingCheckBox.isSelected());
+    }
+
+    private boolean isFastRendering() {
+        return supportsRecording() && fastRenderingCheckBox.isSelected();
+    }
+
+    /**
+     * Creates recorder whose events are shown asynchronously in the event dispatch thread, so the workers
+     * run at full speed. In the fast rendering mode the events are aggregated to frames of the whole task tree.
+     */
+    protected TaskEventRecorder recordEvents(int[] numbers) {
+        if (isFastRendering()) {
+            TaskEventRecorder recorder = new TaskEventRecorder(FAST_RENDERING_CAPACITY);
+            int width = Math.max(scrollPane.getViewport().getWidth(), 100);
+            TaskTreeModel model = new TaskTreeModel(numbers.length, width, taskTree.getBackground(),
+                COLOR_SCHEDULED, COLOR_WAIT, COLOR_FINISHED, THREAD_COLORS);
+            FramePump pump = new FramePump(recorder, model, taskTree, EVENT_REFRESH_MILLIS);
+            framePump = pump;
+            pump.start();
+            return recorder;
+        }
+        TaskEventRecorder recorder = new TaskEventRecorder();
+        EventPump pump = new EventPump(recorder, new EventView(numbers));
+        eventPump = pump;
+        pump.start();
+        return recorder;
+    }
+
+    private static long taskKey(int depth, int from) {
+        return ((long) depth << 32) | from;
+    }
+
+    /**
+     * Periodically moves recorded events to the view.
+     */
+    private class EventPump {
+        private final TaskEventRecorder recorder;
+        private final Consumer<TaskEvent> view;
+        private final Timer timer;
+
+        private EventPump(TaskEventRecorder recorder, Consumer<TaskEvent> view) {
+            this.recorder = recorder;
+            this.view = view;
+            this.timer = new Timer(EVENT_REFRESH_MILLIS, e -> drain());
+        }
+
+        private void start() {
+            timer.start();
+        }
+
+        /**
+         * Stops the timer and shows the remaining events.
+         */
+        private void finish() {
+            timer.stop();
+            SwingUtilities.invokeLater(this::drain);
+        }
+
+        private void drain() {
+            if (recorder.drain(view) > 0) {
+                panel.repaint();
+            }
+        }
+    }
+
+    /**
+     * Applies recorded events to the labels, runs in the event dispatch thread. Replayed traces are usually too big
+     * to show the numbers, so the tasks are shown as ranges scaled to the width of the panel.
+     */
+    private class EventView implements TraceView {
+        /**
+         * Copy of the input, null when replaying a trace.
+         */
+        private final int[] numbers;
+        private final Map<Long, JLabel> labels = new HashMap<>();
+        private final Map<Long, Color> threadColors = new HashMap<>();
+        private int width;
+        private double columnWidth;
+        private int origin;
+
+        private EventView(int[] numbers) {
+            this.numbers = numbers.clone();
+        }
+
+        private EventView() {
+            this.numbers = null;
+        }
+
+        private void setWidth(int width) {
+            this.width = width;
+        }
+
+        @Override
+        public void accept(TaskEvent event) {
+            Color threadColor = threadColors.computeIfAbsent(event.getThreadId(), id -> THREAD_COLORS[threadColors.size() % THREAD_COLORS.length]);
+            long key = taskKey(event.getDepth(), event.getFrom());
+            if (event.getType() == TaskEventType.CREATED) {
+                JLabel label = numbers != null
+                    ? newTaskLabel(event.getFrom(), event.getDepth(), Arrays.copyOfRange(numbers, event.getFrom(), event.getTo()), threadColor)
+                    : newRangeLabel(event, threadColor);
+                if (label != null) {
+                    labels.put(key, label);
+                    panel.add(label);
+                }
+                return;
+            }
+            JLabel label = labels.get(key);
+            if (label == null) {
+                // creation event was dropped
+                return;
+            }
+            switch (event.getType()) {
+                case STARTED:
+                case MERGED:
+                    label.setBackground(threadColor);
+                    label.setForeground(threadColor);
+                    break;
+                case WAITING:
+                    label.setBackground(COLOR_WAIT);
+                    label.setForeground(threadColor);
+                    break;
+                case FINISHED:
+                    if (numbers != null) {
+                        int[] sorted = Arrays.copyOfRange(numbers, event.getFrom(), event.getTo());
+                        Arrays.sort(sorted);
+                        label.setText(Arrays.toString(sorted));
+                    }
+                    label.setBackground(COLOR_FINISHED);
+                    break;
+                default:
+                    // forks and steals are not visualized
+            }
+        }
+
+        private JLabel newRangeLabel(TaskEvent event, Color foreground) {
+            if (event.getDepth() == 0) {
+                origin = event.getFrom();
+                columnWidth = (double) width / Math.max(event.getTo() - event.getFrom(), 1);
+            }
+            double labelWidth = (event.getTo() - event.getFrom()) * columnWidth;
+            if (labelWidth < MIN_REPLAY_LABEL_WIDTH) {
+                return null;
+            }
+            String range = event.getFrom() + "-" + event.getTo();
+            JLabel label = new JLabel(" " + range);
+            label.setBounds((int) ((event.getFrom() - origin) * columnWidth), event.getDepth() * ROW_HEIGHT + 20, (int) labelWidth, ROW_HEIGHT);
+            label.setBackground(COLOR_SCHEDULED);
+            label.setOpaque(true);
+            label.setToolTipText(range);
+            label.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+            label.setForeground(foreground);
+            return label;
+        }
+
+        @Override
+        public void reset() {
+            labels.clear();
+            threadColors.clear();
+            panel.removeAll();
+        }
+
+        @Override
+        public void refresh() {
+            panel.repaint();
+        }
+    }
+
+    /**
+     * Visualizes tasks of the headless sort engines. The engines sort in place so the observer
+     * keeps a copy of the input to be able to show content of the tasks.
+     */
+    protected class LabelSortObserver implements SortObserver {
+        private final int[] numbers;
+        private final Map<Long, JLabel> labels = new ConcurrentHashMap<>();
+
+        public LabelSortObserver(int[] numbers) {
+            this.numbers = numbers.clone();
+        }
+
+        @Override
+        public void taskCreated(int depth, int from, int to) {
+            labels.put(taskKey(depth, from), createLabel(from, depth, Arrays.copyOfRange(numbers, from, to)));
+        }
+
+        @Override
+        public void taskStarted(int depth, int from, int to) {
+            setLabelColor(label(depth, from), threadColor());
+        }
+
+        @Override
+        public void taskWaiting(int depth, int from, int to) {
+            setLabelColor(label(depth, from), COLOR_WAIT);
+        }
+
+        @Override
+        public void mergeStarted(int depth, int from, int to) {
+            setLabelColor(label(depth, from), threadColor());
+        }
+
+        @Override
+        public void taskFinished(int depth, int from, int to) {
+            JLabel label = label(depth, from);
+            int[] sorted = Arrays.copyOfRange(numbers, from, to);
+            Arrays.sort(sorted);
+            threadSafe(() -> {
+                label.setText(Arrays.toString(sorted));
+                label.setBackground(COLOR_FINISHED);
+            });
+        }
+
+        private JLabel label(int depth, int from) {
+            return labels.get(taskKey(depth, from));
+        }
+    }
+
     protected void setDefaultFont(JLabel label) {
         label.setFont(new Font("Arial Black", Font.BOLD, 16));
     }
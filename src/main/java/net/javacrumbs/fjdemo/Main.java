@@ -0,0 +1,34 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo;
+
+import java.awt.GraphicsEnvironment;
+
+import net.javacrumbs.fjdemo.cli.SortRunner;
+
+/**
+ * Main class of the jar. Starts the visualization, or the headless {@link SortRunner} if there are any
+ * arguments or there is no display.
+ */
+public class Main {
+    public static void main(String[] args) {
+        if (args.length > 0 || GraphicsEnvironment.isHeadless()) {
+            SortRunner.main(args);
+        } else {
+            VisualForkJoinMergeSort.main(args);
+        }
+    }
+}
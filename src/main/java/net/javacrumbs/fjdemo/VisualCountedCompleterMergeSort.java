@@ -48,26 +48,20 @@ public class VisualCountedCompleterMergeSort extends AbstractVisualForkJoinMerge
         public void compute() {
             System.out.println("Thread " + threadNo() + ": Sorting " + Arrays.toString(numbers));
             setLabelColor(label, threadColor());
-            switch (numbers.length) {
-                case 1:
-                    taskFinished();
-                    tryComplete();
-                    return;
-                case 2:
-                    swapIfNeeded(numbers);
-                    taskFinished();
-                    tryComplete();
-                    return;
-                default:
-                    // not sorting in place as we should to make implementation more simple
-                    int[] left = getLeftHalf(numbers);
-                    int[] right = getRightHalf(numbers);
-                    setLabelColor(label, COLOR_WAIT);
-                    setPendingCount(1);
-                    taskLeft = new SortTask(this, left, row + 1, col);
-                    taskRight = new SortTask(this, right, row + 1, col + left.length);
-                    taskRight.fork();
-                    taskLeft.compute();
+            if (numbers.length <= getSequentialThreshold()) {
+                sortSequentially(numbers);
+                taskFinished();
+                tryComplete();
+            } else {
+                // not sorting in place as we should to make implementation more simple
+                int[] left = getLeftHalf(numbers);
+                int[] right = getRightHalf(numbers);
+                setLabelColor(label, COLOR_WAIT);
+                setPendingCount(1);
+                taskLeft = new SortTask(this, left, row + 1, col);
+                taskRight = new SortTask(this, right, row + 1, col + left.length);
+                taskRight.fork();
+                taskLeft.compute();
             }
         }
 
@@ -54,26 +54,21 @@ public class VisualForkJoinMergeSort extends AbstractVisualForkJoinMergeSort {
         protected void compute() {
             System.out.println("Thread " + threadNo() + ": Sorting " + Arrays.toString(numbers));
             setLabelColor(label, threadColor());
-            switch (numbers.length) {
-                case 1:
-                    taskFinished();
-                    return;
-                case 2:
-                    swapIfNeeded(numbers);
-                    taskFinished();
-                    return;
-                default:
-                    // not sorting in place as we should to make implementation more simple
-                    int[] left = getLeftHalf(numbers);
-                    int[] right = getRightHalf(numbers);
-                    setLabelColor(label, COLOR_WAIT);
-                    SortTask taskLeft = new SortTask(left, row + 1, col);
-                    SortTask taskRight = new SortTask(right, row + 1, col + left.length);
-                    taskRight.fork();
-                    taskLeft.compute();
-                    taskRight.join();
-                    merge(label, left, right, numbers);
-                    taskFinished();
+            if (numbers.length <= getSequentialThreshold()) {
+                sortSequentially(numbers);
+                taskFinished();
+            } else {
+                // not sorting in place as we should to make implementation more simple
+                int[] left = getLeftHalf(numbers);
+                int[] right = getRightHalf(numbers);
+                setLabelColor(label, COLOR_WAIT);
+                SortTask taskLeft = new SortTask(left, row + 1, col);
+                SortTask taskRight = new SortTask(right, row + 1, col + left.length);
+                taskRight.fork();
+                taskLeft.compute();
+                taskRight.join();
+                merge(label, left, right, numbers);
+                taskFinished();
             }
         }
 
@@ -0,0 +1,47 @@
+package net.javacrumbs.fjdemo;
+//
+//Copyright  2008-10  The original author or authors
+//
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+
+
+import java.util.concurrent.ForkJoinTask;
+
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.SortObserver;
+import net.javacrumbs.fjdemo.sort.SortSettings;
+import net.javacrumbs.fjdemo.trace.RecordingSortObserver;
+
+/**
+ * Visualizes the headless {@link IntMergeSort} engine that sorts index ranges of one array using
+ * a single scratch buffer.
+ */
+public class VisualInPlaceMergeSort extends AbstractVisualForkJoinMergeSort {
+
+    @Override
+    protected ForkJoinTask<Void> createTask(int[] numbers) {
+        SortSettings settings = SortSettings.defaults().withSequentialThreshold(getSequentialThreshold());
+        SortObserver observer = isRecording() ? new RecordingSortObserver(recordEvents(numbers)) : new LabelSortObserver(numbers);
+        return new IntMergeSort(settings, observer).createTask(numbers, 0, numbers.length);
+    }
+
+    @Override
+    protected boolean supportsRecording() {
+        return true;
+    }
+
+    public static void main(String[] args) {
+        VisualInPlaceMergeSort demo = new VisualInPlaceMergeSort();
+        demo.start();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.cli;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Garbage collections and bytes allocated by all live threads at one point in time. Allocated bytes are
+ * read from the HotSpot specific ThreadMXBean, they are -1 on JVMs that do not support it.
+ */
+final class JvmStats {
+    private final long collections;
+    private final long collectionMillis;
+    private final Map<Long, Long> allocatedBytes;
+
+    private JvmStats(long collections, long collectionMillis, Map<Long, Long> allocatedBytes) {
+        this.collections = collections;
+        this.collectionMillis = collectionMillis;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    static JvmStats capture() {
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(collector.getCollectionCount(), 0);
+            collectionMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return new JvmStats(collections, collectionMillis, allocatedBytes());
+    }
+
+    private static Map<Long, Long> allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean hotSpotThreads = (com.sun.management.ThreadMXBean) threads;
+        if (!hotSpotThreads.isThreadAllocatedMemorySupported() || !hotSpotThreads.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        long[] ids = hotSpotThreads.getAllThreadIds();
+        long[] bytes = hotSpotThreads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+
+    long getCollections() {
+        return collections;
+    }
+
+    long getCollectionMillis() {
+        return collectionMillis;
+    }
+
+    /**
+     * Returns difference of this and an earlier snapshot. Threads started in between count from zero,
+     * allocations of threads that have terminated in between are lost.
+     */
+    JvmStats since(JvmStats start) {
+        Map<Long, Long> allocated = null;
+        if (allocatedBytes != null && start.allocatedBytes != null) {
+            allocated = new HashMap<>();
+            for (Map.Entry<Long, Long> entry : allocatedBytes.entrySet()) {
+                allocated.put(entry.getKey(), entry.getValue() - start.allocatedBytes.getOrDefault(entry.getKey(), 0L));
+            }
+        }
+        return new JvmStats(collections - start.collections, collectionMillis - start.collectionMillis, allocated);
+    }
+
+    /**
+     * Returns bytes allocated by all the threads, -1 if not supported.
+     */
+    long getAllocatedBytes() {
+        if (allocatedBytes == null) {
+            return -1;
+        }
+        long result = 0;
+        for (long bytes : allocatedBytes.values()) {
+            result += bytes;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.cli;
+
+import java.util.Locale;
+
+import net.javacrumbs.fjdemo.sort.Distribution;
+import net.javacrumbs.fjdemo.sort.SortSettings;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Options of {@link SortRunner}. Instances are immutable.
+ */
+public final class RunnerOptions {
+    static final String USAGE = "Usage: java -cp fj-demo.jar net.javacrumbs.fjdemo.cli.SortRunner [options]\n"
+        + "  --size N                 number of elements to sort (default 1000000)\n"
+        + "  --distribution NAME      RANDOM, SORTED, REVERSED or FEW_UNIQUES (default RANDOM)\n"
+        + "  --threads N              parallelism of the fork/join pool (default number of processors)\n"
+        + "  --strategy NAME          MERGE, COUNTED_COMPLETER, QUICK, SAMPLE, RADIX, ADAPTIVE or PARALLEL_SORT (default MERGE)\n"
+        + "  --warmup N               iterations that are not measured (default 5)\n"
+        + "  --iterations N           measured iterations (default 10)\n"
+        + "  --threshold N            sequential threshold, 0 derives it from the size and threads (default 0)\n"
+        + "  --merge-threshold N      parallel merge threshold, 0 derives it from the size and threads (default 0)\n"
+        + "  --seed N                 seed of the generated data (default 42)\n"
+        + "  --help                   prints this message";
+
+    private static final RunnerOptions DEFAULTS = new RunnerOptions(1_000_000, Distribution.RANDOM,
+        Runtime.getRuntime().availableProcessors(), SortStrategy.MERGE, 5, 10, SortSettings.defaults(), 42);
+
+    private final int size;
+    private final Distribution distribution;
+    private final int threads;
+    private final SortStrategy strategy;
+    private final int warmupIterations;
+    private final int iterations;
+    private final SortSettings settings;
+    private final long seed;
+
+    private RunnerOptions(int size, Distribution distribution, int threads, SortStrategy strategy,
+                          int warmupIterations, int iterations, SortSettings settings, long seed) {
+        this.size = size;
+        this.distribution = distribution;
+        this.threads = threads;
+        this.strategy = strategy;
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.settings = settings;
+        this.seed = seed;
+    }
+
+    public static RunnerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Parses options in the form {@code --name value} or {@code --name=value}.
+     *
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid
+     */
+    public static RunnerOptions parse(String... args) {
+        RunnerOptions result = DEFAULTS;
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            String value;
+            int separator = name.indexOf('=');
+            if (separator >= 0) {
+                value = name.substring(separator + 1);
+                name = name.substring(0, separator);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value of " + name);
+            }
+            result = result.with(name, value);
+        }
+        return result;
+    }
+
+    private RunnerOptions with(String name, String value) {
+        switch (name) {
+            case "--size":
+                return withSize(parseInt(name, value));
+            case "--distribution":
+                return withDistribution(parseEnum(Distribution.class, name, value));
+            case "--threads":
+                return withThreads(parseInt(name, value));
+            case "--strategy":
+                return withStrategy(parseEnum(SortStrategy.class, name, value));
+            case "--warmup":
+                return withWarmupIterations(parseInt(name, value));
+            case "--iterations":
+                return withIterations(parseInt(name, value));
+            case "--threshold":
+                return withSettings(settings.withSequentialThreshold(parseInt(name, value)));
+            case "--merge-threshold":
+                return withSettings(settings.withMergeThreshold(parseInt(name, value)));
+            case "--seed":
+                try {
+                    return withSeed(Long.parseLong(value));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value of " + name + ": " + value);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown option " + name);
+        }
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value.replace("_", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + name + ": " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value of " + name + ": " + value);
+        }
+    }
+
+    public RunnerOptions withSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size can not be negative, was " + size);
+        }
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withDistribution(Distribution distribution) {
+        return new RunnerOptions(size, requireNonNull(distribution), threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads has to be positive, was " + threads);
+        }
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withStrategy(SortStrategy strategy) {
+        return new RunnerOptions(size, distribution, threads, requireNonNull(strategy), warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withWarmupIterations(int warmupIterations) {
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException("Number of warmup iterations can not be negative, was " + warmupIterations);
+        }
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withIterations(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Number of iterations has to be positive, was " + iterations);
+        }
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public RunnerOptions withSettings(SortSettings settings) {
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, requireNonNull(settings), seed);
+    }
+
+    public RunnerOptions withSeed(long seed) {
+        return new RunnerOptions(size, distribution, threads, strategy, warmupIterations, iterations, settings, seed);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public SortStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public SortSettings getSettings() {
+        return settings;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "strategy=" + strategy + ", size=" + size + ", distribution=" + distribution + ", threads=" + threads
+            + ", " + settings + ", warmup=" + warmupIterations + ", iterations=" + iterations + ", seed=" + seed;
+    }
+}
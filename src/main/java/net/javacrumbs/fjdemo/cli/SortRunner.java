@@ -0,0 +1,179 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.cli;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import net.javacrumbs.fjdemo.metrics.PhaseTimingObserver;
+import net.javacrumbs.fjdemo.sort.IntSorter;
+import net.javacrumbs.fjdemo.sort.SortObserver;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs the sort engines without any GUI, so they can be measured on headless servers and in CI. Sorts the same
+ * generated data in warmup and measured iterations and prints time per sort, throughput, garbage collections and
+ * allocations of the measured iterations. Engines that report their tasks are run once more with
+ * {@link PhaseTimingObserver} to split the time to phases; that run is not part of the measurement since
+ * the observer has overhead.
+ * <p>
+ * Every result is checked, the process exits with status 1 if the data are not sorted and with status 2 if
+ * the options are invalid.
+ */
+public class SortRunner {
+    private final RunnerOptions options;
+    private final PrintStream out;
+
+    public SortRunner(RunnerOptions options) {
+        this(options, System.out);
+    }
+
+    public SortRunner(RunnerOptions options, PrintStream out) {
+        this.options = requireNonNull(options);
+        this.out = requireNonNull(out);
+    }
+
+    /**
+     * Runs all the iterations and prints the results.
+     *
+     * @return false if some of the sorts did not sort the data
+     */
+    public boolean run() {
+        out.println(options);
+        int[] data = options.getDistribution().ints(options.getSize(), options.getSeed());
+        int[] numbers = new int[data.length];
+        ForkJoinPool pool = new ForkJoinPool(options.getThreads());
+        try {
+            IntSorter sorter = options.getStrategy().create(options.getSettings(), SortObserver.NONE);
+            boolean sorted = true;
+            for (int i = 0; i < options.getWarmupIterations(); i++) {
+                sorted &= sort(sorter, pool, data, numbers) >= 0;
+            }
+            long[] times = new long[options.getIterations()];
+            JvmStats start = JvmStats.capture();
+            for (int i = 0; i < times.length; i++) {
+                times[i] = sort(sorter, pool, data, numbers);
+                sorted &= times[i] >= 0;
+            }
+            JvmStats stats = JvmStats.capture().since(start);
+            if (!sorted) {
+                out.println("FAILED: data are not sorted");
+                return false;
+            }
+            printTimes(times);
+            printJvmStats(stats, times.length);
+            if (options.getStrategy().isObservable()) {
+                PhaseTimingObserver phases = new PhaseTimingObserver();
+                long time = sort(options.getStrategy().create(options.getSettings(), phases), pool, data, numbers);
+                if (time < 0) {
+                    out.println("FAILED: data are not sorted");
+                    return false;
+                }
+                printPhases(phases, time);
+            } else {
+                out.println("phases: not reported by " + options.getStrategy());
+            }
+            return true;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts copy of the data.
+     *
+     * @return time of the sort in nanoseconds, -1 if the result is not sorted
+     */
+    private static long sort(IntSorter sorter, ForkJoinPool pool, int[] data, int[] numbers) {
+        System.arraycopy(data, 0, numbers, 0, data.length);
+        long start = System.nanoTime();
+        sorter.sort(pool, numbers);
+        long time = System.nanoTime() - start;
+        return isSorted(numbers) ? time : -1;
+    }
+
+    private static boolean isSorted(int[] numbers) {
+        for (int i = 1; i < numbers.length; i++) {
+            if (numbers[i - 1] > numbers[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void printTimes(long[] times) {
+        long[] sortedTimes = times.clone();
+        Arrays.sort(sortedTimes);
+        double mean = Arrays.stream(times).average().orElse(0);
+        out.println(format("time per sort: mean %.3f ms, median %.3f ms, min %.3f ms, max %.3f ms",
+            millis(mean), millis(sortedTimes[sortedTimes.length / 2]), millis(sortedTimes[0]), millis(sortedTimes[sortedTimes.length - 1])));
+        out.println(format("throughput: %.2f million elements/s", mean > 0 ? options.getSize() * 1_000.0 / mean : 0));
+    }
+
+    private void printJvmStats(JvmStats stats, int iterations) {
+        out.println(format("gc: %d collections, %d ms", stats.getCollections(), stats.getCollectionMillis()));
+        long allocated = stats.getAllocatedBytes();
+        if (allocated >= 0) {
+            out.println(format("allocated: %.2f MB per sort, %.2f bytes per element", allocated / 1e6 / iterations,
+                options.getSize() > 0 ? (double) allocated / iterations / options.getSize() : 0));
+        } else {
+            out.println("allocated: not supported by the JVM");
+        }
+    }
+
+    private void printPhases(PhaseTimingObserver phases, long time) {
+        long split = phases.getSplitNanos();
+        long leaf = phases.getLeafNanos();
+        long merge = phases.getMergeNanos();
+        long wait = phases.getWaitNanos();
+        double total = Math.max(split + leaf + merge + wait, 1);
+        out.println(format("phases (one instrumented sort of %.3f ms, %d leaves, time summed over threads):",
+            millis(time), phases.getLeaves()));
+        out.println(format("  split %.3f ms (%.1f%%), leaf sort %.3f ms (%.1f%%), merge %.3f ms (%.1f%%), wait %.3f ms (%.1f%%)",
+            millis(split), 100 * split / total, millis(leaf), 100 * leaf / total,
+            millis(merge), 100 * merge / total, millis(wait), 100 * wait / total));
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(RunnerOptions.USAGE);
+            return;
+        }
+        RunnerOptions options;
+        try {
+            options = RunnerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(RunnerOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (!new SortRunner(options).run()) {
+            System.exit(1);
+        }
+    }
+}
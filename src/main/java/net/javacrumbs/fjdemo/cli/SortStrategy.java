@@ -0,0 +1,105 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.cli;
+
+import java.util.Arrays;
+
+import net.javacrumbs.fjdemo.sort.AdaptiveSort;
+import net.javacrumbs.fjdemo.sort.IntCountedCompleterMergeSort;
+import net.javacrumbs.fjdemo.sort.IntMergeSort;
+import net.javacrumbs.fjdemo.sort.IntPartitioner;
+import net.javacrumbs.fjdemo.sort.IntQuickSort;
+import net.javacrumbs.fjdemo.sort.IntRadixSort;
+import net.javacrumbs.fjdemo.sort.IntSampleSort;
+import net.javacrumbs.fjdemo.sort.IntSorter;
+import net.javacrumbs.fjdemo.sort.SortObserver;
+import net.javacrumbs.fjdemo.sort.SortSettings;
+
+/**
+ * Sort engines that can be run by {@link SortRunner}.
+ */
+public enum SortStrategy {
+    /**
+     * RecursiveAction merge sort, the headless version of the visual demo.
+     */
+    MERGE {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new IntMergeSort(settings, observer);
+        }
+    },
+    COUNTED_COMPLETER {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new IntCountedCompleterMergeSort(settings, observer);
+        }
+    },
+    QUICK {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new IntQuickSort(settings, IntPartitioner.DUAL_PIVOT, observer);
+        }
+    },
+    SAMPLE(false) {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new IntSampleSort(settings);
+        }
+    },
+    RADIX(false) {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new IntRadixSort(settings);
+        }
+    },
+    ADAPTIVE(false) {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return new AdaptiveSort(settings);
+        }
+    },
+    /**
+     * Arrays.parallelSort run in the given pool, the baseline. Its granularity does not depend on the settings.
+     */
+    PARALLEL_SORT(false) {
+        @Override
+        public IntSorter create(SortSettings settings, SortObserver observer) {
+            return (pool, numbers) -> pool.submit(() -> Arrays.parallelSort(numbers)).join();
+        }
+    };
+
+    private final boolean observable;
+
+    SortStrategy() {
+        this(true);
+    }
+
+    SortStrategy(boolean observable) {
+        this.observable = observable;
+    }
+
+    /**
+     * Creates the sorter. Strategies that are not {@link #isObservable() observable} ignore the observer.
+     */
+    public abstract IntSorter create(SortSettings settings, SortObserver observer);
+
+    /**
+     * Returns true if the sorter reports its tasks to the observer, so the phases can be measured.
+     */
+    public boolean isObservable() {
+        return observable;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.collector;
+
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Estimates number of distinct values in fixed memory using the HyperLogLog algorithm by Flajolet et al.
+ * The values are hashed to 64 bits, the first {@code precision} bits select one of 2^precision registers
+ * that keeps the maximal position of the first one bit in the rest of the hash. Combine takes the maximum
+ * of each register, so the result does not depend on how the stream was split. The standard error is
+ * about 1.04 / sqrt(2^precision), 0.8% for the default precision.
+ * Use it as {@code intStream.collect(HyperLogLog::new, HyperLogLog::accept, HyperLogLog::combine)}.
+ */
+public class HyperLogLog implements IntConsumer, LongConsumer {
+    public static final int DEFAULT_PRECISION = 14;
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision has to be between " + MIN_PRECISION + " and " + MAX_PRECISION + ", was " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    @Override
+    public void accept(int value) {
+        accept((long) value);
+    }
+
+    @Override
+    public void accept(long value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // the guard bit limits the rank when the rest of the hash is zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void combine(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can not combine precision " + precision + " with " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Returns estimated number of distinct values.
+     */
+    public long getEstimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small cardinalities are estimated better by linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads even consecutive values over all the bits.
+     */
+    static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "~" + getEstimate();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.collector;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Minimum and maximum of primitive numbers. Mutable container for parallel streams, use it as
+ * {@code intStream.collect(LongRange::new, LongRange::accept, LongRange::combine)}.
+ */
+public class LongRange implements IntConsumer, LongConsumer {
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    @Override
+    public void accept(int value) {
+        accept((long) value);
+    }
+
+    @Override
+    public void accept(long value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void combine(LongRange other) {
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @throws NoSuchElementException if no value was accepted
+     */
+    public long getMin() {
+        checkNotEmpty();
+        return min;
+    }
+
+    /**
+     * @throws NoSuchElementException if no value was accepted
+     */
+    public long getMax() {
+        checkNotEmpty();
+        return max;
+    }
+
+    /**
+     * Returns difference between the maximum and the minimum.
+     *
+     * @throws NoSuchElementException if no value was accepted
+     */
+    public long getRange() {
+        checkNotEmpty();
+        return max - min;
+    }
+
+    private void checkNotEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("No values");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[]" : "[" + min + ", " + max + "]";
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.collector;
+
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Count, sum, mean and variance of primitive numbers. Unlike {@link java.util.LongSummaryStatistics} it computes
+ * the variance, using Welford's algorithm for single values and the formula of Chan et al. to combine partial
+ * results, so the result does not lose precision when the values are big. Use it as
+ * {@code intStream.collect(LongStatistics::new, LongStatistics::accept, LongStatistics::combine)}.
+ */
+public class LongStatistics implements IntConsumer, LongConsumer {
+    private long count;
+    private long sum;
+    private double mean;
+    /**
+     * Sum of squared differences from the mean.
+     */
+    private double m2;
+
+    @Override
+    public void accept(int value) {
+        accept((long) value);
+    }
+
+    @Override
+    public void accept(long value) {
+        count++;
+        sum += value;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    public void combine(LongStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count / total * other.count;
+        count = total;
+        sum += other.sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns sum of the values, overflows silently.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns mean of the values, zero if there are none.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns population variance, zero if there are no values.
+     */
+    public double getVariance() {
+        return count > 0 ? m2 / count : 0;
+    }
+
+    /**
+     * Returns sample variance, zero if there are less than two values.
+     */
+    public double getSampleVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, sum=%d, mean=%.3f, variance=%.3f", count, sum, getMean(), getVariance());
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.collector;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * K biggest values kept in a bounded min-heap, so a value costs O(log k) and combine O(k log k).
+ * Use it as {@code intStream.collect(() -> new TopK(10), TopK::accept, TopK::combine)}.
+ */
+public class TopK implements IntConsumer, LongConsumer {
+    private final long[] heap;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("K has to be positive, was " + k);
+        }
+        this.heap = new long[k];
+    }
+
+    @Override
+    public void accept(int value) {
+        accept((long) value);
+    }
+
+    @Override
+    public void accept(long value) {
+        if (size < heap.length) {
+            siftUp(size++, value);
+        } else if (value > heap[0]) {
+            siftDown(value);
+        }
+    }
+
+    public void combine(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            accept(other.heap[i]);
+        }
+    }
+
+    /**
+     * Returns the biggest values in descending order, less than k if there were less values.
+     */
+    public long[] getTop() {
+        long[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            long tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+    public int getK() {
+        return heap.length;
+    }
+
+    private void siftUp(int index, long value) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Replaces the root by the value.
+     */
+    private void siftDown(long value) {
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(getTop());
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values with log-linear buckets in the style of HdrHistogram.
+ * Every power of two is split to {@value #SUB_BUCKETS} linear sub-buckets, so the relative error of reported
+ * values is below 7% for any magnitude while the histogram has fixed size and recording is a single atomic
+ * increment.
+ */
+public class Histogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+    static final int BUCKETS = (63 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records the value, negative values are recorded as zero.
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(index(v));
+        sum.add(v);
+    }
+
+    /**
+     * Returns all the values recorded so far.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(result, sum.sum());
+    }
+
+    /**
+     * Returns values recorded since the last call and starts a new interval. Values recorded concurrently
+     * are counted either in this or in the next interval.
+     */
+    public HistogramSnapshot snapshotAndReset() {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = counts.getAndSet(i, 0);
+        }
+        return new HistogramSnapshot(result, sum.sumThenReset());
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the lowest value stored in the bucket.
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index / HALF_SUB_BUCKETS) - 1;
+        return (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Returns the highest value stored in the bucket.
+     */
+    static long highestValue(int index) {
+        return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+/**
+ * Values recorded by a {@link Histogram} in one interval. Percentiles are reported as the highest value
+ * of the bucket they fall to.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(long[] counts, long sum) {
+        this.counts = counts;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+        this.sum = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                return Histogram.lowestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return Histogram.highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    public long getMedian() {
+        return getValueAtPercentile(50);
+    }
+
+    public long getP90() {
+        return getValueAtPercentile(90);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * Returns value that is not exceeded by given percentage of the recorded values.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Histogram.highestValue(i);
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f min=%d p50=%d p90=%d p99=%d max=%d",
+            count, getMean(), getMin(), getMedian(), getP90(), getP99(), getMax());
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spliterator that records how a parallel stream splits and processes its source into {@link SpliteratorMetrics}.
+ * Unlike the demo wrappers it neither logs nor sleeps unless a {@link SpliteratorListener} is given, so it can wrap
+ * real streams:
+ * <pre>
+ * SpliteratorMetrics metrics = new SpliteratorMetrics();
+ * StreamSupport.stream(metrics.wrap(list.spliterator()), true).map(...).collect(...);
+ * System.out.println(metrics.snapshot());
+ * </pre>
+ * Chunks processed by {@link #forEachRemaining(Consumer)} are timed as a whole. Timing every {@link #tryAdvance(Consumer)}
+ * would cost more than most stream operations, so only every n-th call is timed, see {@link SpliteratorMetrics#SpliteratorMetrics(int)}.
+ * <p>
+ * A steal is counted when the spliterator is used by a different thread than the one that created it by splitting.
+ */
+public class InstrumentedSpliterator<T> implements Spliterator<T> {
+    private final Spliterator<T> wrapped;
+    private final SpliteratorMetrics metrics;
+    private final SpliteratorListener listener;
+    private int depth;
+    private Thread owner;
+    /**
+     * Calls of tryAdvance not yet reported to the metrics.
+     */
+    private long tryAdvanceCalls;
+
+    InstrumentedSpliterator(Spliterator<T> wrapped, SpliteratorMetrics metrics, SpliteratorListener listener, int depth) {
+        this.wrapped = requireNonNull(wrapped);
+        this.metrics = requireNonNull(metrics);
+        this.listener = requireNonNull(listener);
+        this.depth = depth;
+        this.owner = currentThread();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        long calls = ++tryAdvanceCalls;
+        if ((calls & metrics.sampleMask) == 0) {
+            return timedTryAdvance(action, calls);
+        }
+        boolean advanced = wrapped.tryAdvance(action);
+        if (!advanced) {
+            metrics.tryAdvanceCalled(calls, false, 0);
+            tryAdvanceCalls = 0;
+        }
+        return advanced;
+    }
+
+    /**
+     * Kept out of {@link #tryAdvance(Consumer)} so the common path is small enough to be inlined.
+     */
+    private boolean timedTryAdvance(Consumer<? super T> action, long calls) {
+        checkOwner();
+        long start = System.nanoTime();
+        boolean advanced = wrapped.tryAdvance(action);
+        metrics.tryAdvanceCalled(calls, true, System.nanoTime() - start);
+        tryAdvanceCalls = 0;
+        return advanced;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        checkOwner();
+        listener.onEvent(SpliteratorEvent.PROCESS, this);
+        long start;
+        long size;
+        if (wrapped.hasCharacteristics(SIZED)) {
+            size = wrapped.estimateSize();
+            start = System.nanoTime();
+            wrapped.forEachRemaining(action);
+        } else {
+            // counting adds a call per element, only needed when the size is not known upfront
+            long[] count = new long[1];
+            start = System.nanoTime();
+            wrapped.forEachRemaining(t -> {
+                count[0]++;
+                action.accept(t);
+            });
+            size = count[0];
+        }
+        metrics.chunkProcessed(depth, size, System.nanoTime() - start);
+        listener.onEvent(SpliteratorEvent.PROCESS_END, this);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        checkOwner();
+        listener.onEvent(SpliteratorEvent.SPLIT, this);
+        Spliterator<T> prefix = wrapped.trySplit();
+        if (prefix == null) {
+            return null;
+        }
+        depth++;
+        metrics.split(depth);
+        return new InstrumentedSpliterator<>(prefix, metrics, listener, depth);
+    }
+
+    private void checkOwner() {
+        Thread thread = currentThread();
+        if (thread != owner) {
+            owner = thread;
+            metrics.stolen();
+            listener.onEvent(SpliteratorEvent.STOLEN, this);
+        }
+    }
+
+    /**
+     * Number of splits that led to this spliterator, zero for the source of the stream.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public long estimateSize() {
+        return wrapped.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return wrapped.getExactSizeIfKnown();
+    }
+
+    @Override
+    public int characteristics() {
+        return wrapped.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return wrapped.getComparator();
+    }
+}
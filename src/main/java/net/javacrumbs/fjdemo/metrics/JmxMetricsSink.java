@@ -0,0 +1,160 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the latest sample of every pool as an MXBean named {@code net.javacrumbs.fjdemo:type=ForkJoinPool,name=<pool name>}.
+ */
+public class JmxMetricsSink implements MetricsSink {
+    private static final String DOMAIN = "net.javacrumbs.fjdemo";
+
+    private final MBeanServer server;
+    private final Map<String, PoolMetricsBean> beans = new ConcurrentHashMap<>();
+
+    public JmxMetricsSink() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsSink(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void publish(PoolMetricsSnapshot snapshot) {
+        beans.computeIfAbsent(snapshot.getName(), this::register).snapshot = snapshot;
+    }
+
+    private PoolMetricsBean register(String poolName) {
+        try {
+            PoolMetricsBean bean = new PoolMetricsBean(objectName(poolName));
+            server.registerMBean(bean, bean.name);
+            return bean;
+        } catch (JMException e) {
+            throw new IllegalStateException("Can not register metrics of pool " + poolName, e);
+        }
+    }
+
+    static ObjectName objectName(String poolName) throws JMException {
+        return new ObjectName(DOMAIN + ":type=ForkJoinPool,name=" + ObjectName.quote(poolName));
+    }
+
+    /**
+     * Unregisters all the beans.
+     */
+    @Override
+    public void close() {
+        for (PoolMetricsBean bean : beans.values()) {
+            try {
+                server.unregisterMBean(bean.name);
+            } catch (JMException e) {
+                // already unregistered
+            }
+        }
+        beans.clear();
+    }
+
+    private static class PoolMetricsBean implements PoolMetricsMXBean {
+        private final ObjectName name;
+        private volatile PoolMetricsSnapshot snapshot;
+
+        private PoolMetricsBean(ObjectName name) {
+            this.name = name;
+        }
+
+        @Override
+        public int getParallelism() {
+            return snapshot.getParallelism();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return snapshot.getPoolSize();
+        }
+
+        @Override
+        public int getActiveThreadCount() {
+            return snapshot.getActiveThreadCount();
+        }
+
+        @Override
+        public int getRunningThreadCount() {
+            return snapshot.getRunningThreadCount();
+        }
+
+        @Override
+        public long getQueuedTaskCount() {
+            return snapshot.getQueuedTaskCount();
+        }
+
+        @Override
+        public int getQueuedSubmissionCount() {
+            return snapshot.getQueuedSubmissionCount();
+        }
+
+        @Override
+        public long getStealCount() {
+            return snapshot.getStealCount();
+        }
+
+        @Override
+        public double getStealsPerSecond() {
+            return snapshot.getStealsPerSecond();
+        }
+
+        @Override
+        public long[] getWorkerQueueDepths() {
+            return snapshot.getWorkerQueueDepths();
+        }
+
+        @Override
+        public long getSplits() {
+            return snapshot.getSplits();
+        }
+
+        @Override
+        public long getStolenTasks() {
+            return snapshot.getStolenTasks();
+        }
+
+        @Override
+        public HistogramSnapshot getLeafSizes() {
+            return snapshot.getLeafSizes();
+        }
+
+        @Override
+        public HistogramSnapshot getLeafTimes() {
+            return snapshot.getLeafTimes();
+        }
+
+        @Override
+        public HistogramSnapshot getQueueWaitTimes() {
+            return snapshot.getQueueWaitTimes();
+        }
+
+        @Override
+        public HistogramSnapshot getMergeTimes() {
+            return snapshot.getMergeTimes();
+        }
+    }
+}
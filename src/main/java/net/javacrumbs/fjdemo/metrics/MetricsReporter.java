@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Periodically samples registered pools and publishes the metrics to the sinks.
+ * <pre>
+ * try (MetricsReporter reporter = new MetricsReporter(new TextMetricsSink(), new JmxMetricsSink())) {
+ *     PoolMetrics metrics = reporter.register("sort", pool);
+ *     reporter.start(1, TimeUnit.SECONDS);
+ *     new IntMergeSort(new MetricsSortObserver(metrics)).sort(pool, numbers);
+ * }
+ * </pre>
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final List<MetricsSink> sinks;
+    private final List<PoolMetrics> pools = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "metrics-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MetricsReporter(MetricsSink... sinks) {
+        this.sinks = Arrays.asList(sinks.clone());
+    }
+
+    /**
+     * Starts collecting metrics of the pool.
+     */
+    public PoolMetrics register(String name, ForkJoinPool pool) {
+        PoolMetrics metrics = new PoolMetrics(name, pool);
+        register(metrics);
+        return metrics;
+    }
+
+    public void register(PoolMetrics metrics) {
+        pools.add(requireNonNull(metrics));
+    }
+
+    public void unregister(PoolMetrics metrics) {
+        pools.remove(metrics);
+    }
+
+    /**
+     * Starts sampling on a fixed cadence.
+     */
+    public void start(long period, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * Samples all the pools and publishes the metrics.
+     */
+    public synchronized void report() {
+        for (PoolMetrics pool : pools) {
+            PoolMetricsSnapshot snapshot = pool.sample();
+            for (MetricsSink sink : sinks) {
+                try {
+                    sink.publish(snapshot);
+                } catch (RuntimeException e) {
+                    // one failing sink should not stop the others nor the scheduler
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops sampling, publishes the last sample and closes the sinks.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+        for (MetricsSink sink : sinks) {
+            sink.close();
+        }
+    }
+}
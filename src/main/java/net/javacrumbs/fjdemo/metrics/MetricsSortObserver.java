@@ -0,0 +1,107 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.javacrumbs.fjdemo.sort.SortObserver;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records metrics of the sort engines. Tasks are tracked by (depth, from), so one observer has to be used
+ * by one sort at a time.
+ */
+public class MetricsSortObserver implements SortObserver {
+    private final PoolMetrics metrics;
+    private final ConcurrentMap<Long, TaskTiming> tasks = new ConcurrentHashMap<>();
+
+    public MetricsSortObserver(PoolMetrics metrics) {
+        this.metrics = requireNonNull(metrics);
+    }
+
+    @Override
+    public void taskForked(int depth, int from, int to) {
+        tasks.put(key(depth, from), new TaskTiming(metrics.taskForked(), System.nanoTime()));
+    }
+
+    @Override
+    public void taskStarted(int depth, int from, int to) {
+        long now = System.nanoTime();
+        TaskTiming timing = tasks.computeIfAbsent(key(depth, from), k -> new TaskTiming(-1, 0));
+        if (timing.forkNanos != 0) {
+            metrics.taskStarted(timing.forker, now - timing.forkNanos);
+        }
+        timing.startNanos = now;
+    }
+
+    @Override
+    public void taskStolen(int depth, int from, int to) {
+        metrics.taskStolen();
+    }
+
+    @Override
+    public void taskWaiting(int depth, int from, int to) {
+        metrics.taskSplit();
+        TaskTiming timing = tasks.get(key(depth, from));
+        if (timing != null) {
+            timing.split = true;
+        }
+    }
+
+    @Override
+    public void mergeStarted(int depth, int from, int to) {
+        TaskTiming timing = tasks.get(key(depth, from));
+        if (timing != null) {
+            timing.mergeNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void taskFinished(int depth, int from, int to) {
+        long now = System.nanoTime();
+        TaskTiming timing = tasks.remove(key(depth, from));
+        if (timing == null) {
+            return;
+        }
+        if (!timing.split) {
+            metrics.leafProcessed(to - from, now - timing.startNanos);
+        } else if (timing.mergeNanos != 0) {
+            metrics.merged(now - timing.mergeNanos);
+        }
+    }
+
+    private static long key(int depth, int from) {
+        return ((long) depth << 32) | from;
+    }
+
+    /**
+     * Fields are volatile since completers may finish the task in a different thread than the one that started it.
+     */
+    private static final class TaskTiming {
+        private final int forker;
+        private final long forkNanos;
+        private volatile long startNanos;
+        private volatile long mergeNanos;
+        private volatile boolean split;
+
+        private TaskTiming(int forker, long forkNanos) {
+            this.forker = forker;
+            this.forkNanos = forkNanos;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.javacrumbs.fjdemo.sort.SortObserver;
+
+/**
+ * Splits the time workers spend in sort tasks to phases: splitting (partitioning for quick sort), sorting leaves,
+ * merging and waiting for subtasks. Each thread keeps a stack of the tasks it runs and charges the time between
+ * two events to the phase of the innermost task, so tasks run by a thread while it waits for a join are not
+ * counted twice. Every thread accumulates to its own counters, there is no contention between workers.
+ * <p>
+ * Counters are read without synchronization, read them after the sort has finished.
+ */
+public class PhaseTimingObserver implements SortObserver {
+    public static final int SPLIT = 0;
+    public static final int LEAF = 1;
+    public static final int MERGE = 2;
+    public static final int WAIT = 3;
+    private static final int PHASES = 4;
+    /**
+     * Task has started, the phase is known when it either waits for subtasks or finishes.
+     */
+    private static final int STARTED = -1;
+
+    private final List<ThreadPhases> threads = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ThreadPhases> localPhases = ThreadLocal.withInitial(this::register);
+
+    @Override
+    public void taskStarted(int depth, int from, int to) {
+        ThreadPhases phases = localPhases.get();
+        phases.charge(System.nanoTime());
+        phases.push(key(depth, from), STARTED);
+    }
+
+    @Override
+    public void taskWaiting(int depth, int from, int to) {
+        ThreadPhases phases = localPhases.get();
+        phases.charge(System.nanoTime());
+        phases.resolve(key(depth, from), SPLIT, WAIT);
+    }
+
+    @Override
+    public void mergeStarted(int depth, int from, int to) {
+        ThreadPhases phases = localPhases.get();
+        phases.charge(System.nanoTime());
+        long key = key(depth, from);
+        // completers merge in the thread that finished the last subtask, not in the one that waited
+        if (!phases.resolve(key, MERGE, MERGE)) {
+            phases.push(key, MERGE);
+        }
+    }
+
+    @Override
+    public void taskFinished(int depth, int from, int to) {
+        ThreadPhases phases = localPhases.get();
+        phases.charge(System.nanoTime());
+        phases.finish(key(depth, from));
+    }
+
+    public long getSplitNanos() {
+        return total(SPLIT);
+    }
+
+    public long getLeafNanos() {
+        return total(LEAF);
+    }
+
+    public long getMergeNanos() {
+        return total(MERGE);
+    }
+
+    /**
+     * Time tasks waited for their subtasks without running any other task.
+     */
+    public long getWaitNanos() {
+        return total(WAIT);
+    }
+
+    public long getLeaves() {
+        long result = 0;
+        for (ThreadPhases phases : threads) {
+            result += phases.leaves;
+        }
+        return result;
+    }
+
+    /**
+     * Clears the counters, has to be called when no sort is running.
+     */
+    public void reset() {
+        for (ThreadPhases phases : threads) {
+            phases.reset();
+        }
+    }
+
+    private long total(int phase) {
+        long result = 0;
+        for (ThreadPhases phases : threads) {
+            result += phases.nanos[phase];
+        }
+        return result;
+    }
+
+    private ThreadPhases register() {
+        ThreadPhases phases = new ThreadPhases();
+        threads.add(phases);
+        return phases;
+    }
+
+    private static long key(int depth, int from) {
+        return ((long) depth << 32) | from;
+    }
+
+    private static final class ThreadPhases {
+        private final long[] nanos = new long[PHASES];
+        /**
+         * Tasks run by the thread, innermost last. Each entry is the task key, its phase and time of a started
+         * task that is not known to be a leaf or a split yet.
+         */
+        private final List<long[]> stack = new ArrayList<>();
+        private long lastEventNanos;
+        private long leaves;
+
+        /**
+         * Charges time since the last event to the phase of the innermost task.
+         */
+        private void charge(long now) {
+            long[] top = top();
+            if (top != null) {
+                if (top[1] == STARTED) {
+                    top[2] += now - lastEventNanos;
+                } else {
+                    nanos[(int) top[1]] += now - lastEventNanos;
+                }
+            }
+            lastEventNanos = now;
+        }
+
+        private void push(long key, int phase) {
+            stack.add(new long[]{key, phase, 0});
+        }
+
+        /**
+         * Charges pending time of the innermost task to the started phase and switches it to the next phase.
+         *
+         * @return false if the innermost task is a different one
+         */
+        private boolean resolve(long key, int startedPhase, int nextPhase) {
+            long[] top = top();
+            if (top == null || top[0] != key) {
+                return false;
+            }
+            if (top[1] == STARTED) {
+                nanos[startedPhase] += top[2];
+                top[2] = 0;
+            }
+            top[1] = nextPhase;
+            return true;
+        }
+
+        private void finish(long key) {
+            long[] top = top();
+            if (top == null || top[0] != key) {
+                return;
+            }
+            if (top[1] == STARTED) {
+                nanos[LEAF] += top[2];
+                leaves++;
+            }
+            stack.remove(stack.size() - 1);
+        }
+
+        private long[] top() {
+            return stack.isEmpty() ? null : stack.get(stack.size() - 1);
+        }
+
+        private void reset() {
+            Arrays.fill(nanos, 0);
+            stack.clear();
+            leaves = 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Metrics of one pool. Task level metrics are recorded by the workload through adapters like
+ * {@link MetricsSortObserver}, pool level metrics are sampled from the public ForkJoinPool API by {@link #sample()}.
+ * <p>
+ * Recording is thread safe and does not block, counters are striped and histograms use atomic increments.
+ */
+public class PoolMetrics {
+    private final String name;
+    private final ForkJoinPool pool;
+    /**
+     * Tasks forked by each worker that have not been started yet.
+     */
+    private final AtomicLongArray workerQueueDepths;
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder stolenTasks = new LongAdder();
+    private final Histogram leafSizes = new Histogram();
+    private final Histogram leafTimes = new Histogram();
+    private final Histogram queueWaitTimes = new Histogram();
+    private final Histogram mergeTimes = new Histogram();
+    private long lastSampleNanos = System.nanoTime();
+    private long lastStealCount;
+
+    public PoolMetrics(String name, ForkJoinPool pool) {
+        this.name = requireNonNull(name);
+        this.pool = requireNonNull(pool);
+        this.workerQueueDepths = new AtomicLongArray(pool.getParallelism());
+        this.lastStealCount = pool.getStealCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Records that the current thread forked a task.
+     *
+     * @return index of the worker that forked the task, -1 if the task was submitted from outside of the pool
+     */
+    public int taskForked() {
+        int worker = workerIndex(Thread.currentThread());
+        if (worker >= 0) {
+            workerQueueDepths.incrementAndGet(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Records that a forked task was started.
+     *
+     * @param worker    index returned by {@link #taskForked()}
+     * @param waitNanos time the task spent in the queue
+     */
+    public void taskStarted(int worker, long waitNanos) {
+        if (worker >= 0) {
+            workerQueueDepths.decrementAndGet(worker);
+        }
+        queueWaitTimes.record(waitNanos);
+    }
+
+    public void taskStolen() {
+        stolenTasks.increment();
+    }
+
+    /**
+     * Records that a task has been split to subtasks.
+     */
+    public void taskSplit() {
+        splits.increment();
+    }
+
+    /**
+     * Records a task that was processed sequentially.
+     */
+    public void leafProcessed(long size, long nanos) {
+        leafSizes.record(size);
+        leafTimes.record(nanos);
+    }
+
+    /**
+     * Records merge of results of subtasks.
+     */
+    public void merged(long nanos) {
+        mergeTimes.record(nanos);
+    }
+
+    private int workerIndex(Thread thread) {
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            // compensating threads may have higher index than parallelism
+            return ((ForkJoinWorkerThread) thread).getPoolIndex() % workerQueueDepths.length();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns state of the pool and the task metrics recorded since the previous sample.
+     */
+    public synchronized PoolMetricsSnapshot sample() {
+        long now = System.nanoTime();
+        long stealCount = pool.getStealCount();
+        double stealsPerSecond = now > lastSampleNanos ? (stealCount - lastStealCount) * 1e9 / (now - lastSampleNanos) : 0;
+        lastSampleNanos = now;
+        lastStealCount = stealCount;
+        long[] queueDepths = new long[workerQueueDepths.length()];
+        for (int i = 0; i < queueDepths.length; i++) {
+            queueDepths[i] = workerQueueDepths.get(i);
+        }
+        return new PoolMetricsSnapshot(name, System.currentTimeMillis(), pool.getParallelism(), pool.getPoolSize(),
+            pool.getActiveThreadCount(), pool.getRunningThreadCount(), pool.getQueuedTaskCount(),
+            pool.getQueuedSubmissionCount(), stealCount, stealsPerSecond, queueDepths, splits.sumThenReset(),
+            stolenTasks.sumThenReset(), leafSizes.snapshotAndReset(), leafTimes.snapshotAndReset(),
+            queueWaitTimes.snapshotAndReset(), mergeTimes.snapshotAndReset());
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+/**
+ * Latest metrics of a pool exposed over JMX. Histograms are exposed as composite data.
+ */
+public interface PoolMetricsMXBean {
+
+    int getParallelism();
+
+    int getPoolSize();
+
+    int getActiveThreadCount();
+
+    int getRunningThreadCount();
+
+    long getQueuedTaskCount();
+
+    int getQueuedSubmissionCount();
+
+    long getStealCount();
+
+    double getStealsPerSecond();
+
+    long[] getWorkerQueueDepths();
+
+    long getSplits();
+
+    long getStolenTasks();
+
+    HistogramSnapshot getLeafSizes();
+
+    HistogramSnapshot getLeafTimes();
+
+    HistogramSnapshot getQueueWaitTimes();
+
+    HistogramSnapshot getMergeTimes();
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Metrics of a pool sampled at one point in time. Counters and histograms cover the interval since
+ * the previous sample, times are in nanoseconds.
+ */
+public class PoolMetricsSnapshot {
+    private final String name;
+    private final long timestamp;
+    private final int parallelism;
+    private final int poolSize;
+    private final int activeThreadCount;
+    private final int runningThreadCount;
+    private final long queuedTaskCount;
+    private final int queuedSubmissionCount;
+    private final long stealCount;
+    private final double stealsPerSecond;
+    private final long[] workerQueueDepths;
+    private final long splits;
+    private final long stolenTasks;
+    private final HistogramSnapshot leafSizes;
+    private final HistogramSnapshot leafTimes;
+    private final HistogramSnapshot queueWaitTimes;
+    private final HistogramSnapshot mergeTimes;
+
+    PoolMetricsSnapshot(String name, long timestamp, int parallelism, int poolSize, int activeThreadCount,
+                        int runningThreadCount, long queuedTaskCount, int queuedSubmissionCount, long stealCount,
+                        double stealsPerSecond, long[] workerQueueDepths, long splits, long stolenTasks,
+                        HistogramSnapshot leafSizes, HistogramSnapshot leafTimes, HistogramSnapshot queueWaitTimes,
+                        HistogramSnapshot mergeTimes) {
+        this.name = name;
+        this.timestamp = timestamp;
+        this.parallelism = parallelism;
+        this.poolSize = poolSize;
+        this.activeThreadCount = activeThreadCount;
+        this.runningThreadCount = runningThreadCount;
+        this.queuedTaskCount = queuedTaskCount;
+        this.queuedSubmissionCount = queuedSubmissionCount;
+        this.stealCount = stealCount;
+        this.stealsPerSecond = stealsPerSecond;
+        this.workerQueueDepths = workerQueueDepths;
+        this.splits = splits;
+        this.stolenTasks = stolenTasks;
+        this.leafSizes = leafSizes;
+        this.leafTimes = leafTimes;
+        this.queueWaitTimes = queueWaitTimes;
+        this.mergeTimes = mergeTimes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Time of the sample in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveThreadCount() {
+        return activeThreadCount;
+    }
+
+    public int getRunningThreadCount() {
+        return runningThreadCount;
+    }
+
+    public long getQueuedTaskCount() {
+        return queuedTaskCount;
+    }
+
+    public int getQueuedSubmissionCount() {
+        return queuedSubmissionCount;
+    }
+
+    /**
+     * Total number of steals reported by the pool.
+     */
+    public long getStealCount() {
+        return stealCount;
+    }
+
+    public double getStealsPerSecond() {
+        return stealsPerSecond;
+    }
+
+    /**
+     * Number of forked tasks waiting in the queue of each worker.
+     */
+    public long[] getWorkerQueueDepths() {
+        return workerQueueDepths.clone();
+    }
+
+    public long getSplits() {
+        return splits;
+    }
+
+    /**
+     * Number of tasks executed by another thread than the one that forked them.
+     */
+    public long getStolenTasks() {
+        return stolenTasks;
+    }
+
+    public HistogramSnapshot getLeafSizes() {
+        return leafSizes;
+    }
+
+    public HistogramSnapshot getLeafTimes() {
+        return leafTimes;
+    }
+
+    public HistogramSnapshot getQueueWaitTimes() {
+        return queueWaitTimes;
+    }
+
+    public HistogramSnapshot getMergeTimes() {
+        return mergeTimes;
+    }
+
+    /**
+     * Formats the snapshot as multi-line text.
+     */
+    @Override
+    public String toString() {
+        return String.format("%tT %s: parallelism=%d size=%d active=%d running=%d queued=%d submissions=%d%n"
+                + "  steals=%d (%.1f/s) stolen tasks=%d splits=%d worker queues=%s%n"
+                + "  leaf sizes:       %s%n"
+                + "  leaf times [ns]:  %s%n"
+                + "  queue wait [ns]:  %s%n"
+                + "  merge times [ns]: %s",
+            new Date(timestamp), name, parallelism, poolSize, activeThreadCount, runningThreadCount, queuedTaskCount,
+            queuedSubmissionCount, stealCount, stealsPerSecond, stolenTasks, splits, Arrays.toString(workerQueueDepths),
+            leafSizes, leafTimes, queueWaitTimes, mergeTimes);
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+/**
+ * Events of {@link InstrumentedSpliterator} passed to {@link SpliteratorListener}.
+ */
+public enum SpliteratorEvent {
+    /**
+     * The spliterator is about to be split.
+     */
+    SPLIT,
+    /**
+     * Sequential processing of the remaining elements starts.
+     */
+    PROCESS,
+    /**
+     * Sequential processing of the remaining elements has finished.
+     */
+    PROCESS_END,
+    /**
+     * The spliterator is used by a different thread than the one that created it.
+     */
+    STOLEN
+}
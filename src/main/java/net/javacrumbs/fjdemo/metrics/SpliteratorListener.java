@@ -0,0 +1,70 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.io.PrintStream;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Receives events of {@link InstrumentedSpliterator}, allows to log or slow down the processing for demonstration.
+ * Called on every split and chunk, not on every element.
+ */
+@FunctionalInterface
+public interface SpliteratorListener {
+    /**
+     * Listener that ignores all the events, used by default.
+     */
+    SpliteratorListener NONE = (event, spliterator) -> {
+    };
+
+    void onEvent(SpliteratorEvent event, InstrumentedSpliterator<?> spliterator);
+
+    default SpliteratorListener andThen(SpliteratorListener next) {
+        requireNonNull(next);
+        return (event, spliterator) -> {
+            onEvent(event, spliterator);
+            next.onEvent(event, spliterator);
+        };
+    }
+
+    /**
+     * Prints events to standard output.
+     */
+    static SpliteratorListener console() {
+        return console(System.out);
+    }
+
+    static SpliteratorListener console(PrintStream out) {
+        requireNonNull(out);
+        return (event, spliterator) -> out.println(currentThread().getName() + " " + event + " depth "
+            + spliterator.getDepth() + " size " + spliterator.estimateSize());
+    }
+
+    /**
+     * Sleeps after every event, so the processing can be watched.
+     */
+    static SpliteratorListener sleeping(long millis) {
+        return (event, spliterator) -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        };
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+
+/**
+ * Collects metrics of {@link InstrumentedSpliterator}s. Counters are kept per thread and written only by the
+ * owner thread, histograms of chunks are shared since chunks are much less frequent than elements.
+ * <p>
+ * Snapshots report the counters by thread name, threads with the same name (virtual threads are usually unnamed,
+ * pools reuse names of terminated workers) are added together. Counters of terminated threads are folded
+ * into per name totals, so the number of counters stays bounded by the live threads and distinct names.
+ */
+public class SpliteratorMetrics {
+    public static final int DEFAULT_SAMPLE_INTERVAL = 1024;
+    private static final int MIN_FOLD_AT = 64;
+
+    final long sampleMask;
+    /**
+     * Counters of the threads that may be still alive, guarded by itself.
+     */
+    private final List<ThreadCounters> threads = new ArrayList<>();
+    /**
+     * Totals of terminated threads by name, guarded by threads.
+     */
+    private final Map<String, ThreadCounters> terminated = new LinkedHashMap<>();
+    /**
+     * Number of threads at which the terminated ones are folded, guarded by threads.
+     */
+    private int foldAt = MIN_FOLD_AT;
+    private final ThreadLocal<ThreadCounters> localCounters = ThreadLocal.withInitial(this::register);
+    private final Histogram chunkSizes = new Histogram();
+    private final Histogram chunkTimes = new Histogram();
+    private final Histogram chunkDepths = new Histogram();
+    private final Histogram tryAdvanceTimes = new Histogram();
+
+    public SpliteratorMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param sampleInterval every n-th call of tryAdvance is timed, has to be a power of two
+     */
+    public SpliteratorMetrics(int sampleInterval) {
+        if (sampleInterval <= 0 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Sample interval has to be a power of two, was " + sampleInterval);
+        }
+        this.sampleMask = sampleInterval - 1;
+    }
+
+    /**
+     * Wraps the spliterator so its splitting and processing is recorded.
+     */
+    public <T> Spliterator<T> wrap(Spliterator<T> spliterator) {
+        return wrap(spliterator, SpliteratorListener.NONE);
+    }
+
+    public <T> Spliterator<T> wrap(Spliterator<T> spliterator, SpliteratorListener listener) {
+        return new InstrumentedSpliterator<>(spliterator, this, listener, 0);
+    }
+
+    void split(int depth) {
+        ThreadCounters local = localCounters.get();
+        local.splits++;
+        if (depth > local.maxDepth) {
+            local.maxDepth = depth;
+        }
+    }
+
+    void chunkProcessed(int depth, long size, long nanos) {
+        ThreadCounters local = localCounters.get();
+        local.chunks++;
+        local.elements += size;
+        local.chunkNanos += nanos;
+        chunkSizes.record(size);
+        chunkTimes.record(nanos);
+        chunkDepths.record(depth);
+    }
+
+    void stolen() {
+        localCounters.get().steals++;
+    }
+
+    void tryAdvanceCalled(long calls, boolean timed, long nanos) {
+        ThreadCounters local = localCounters.get();
+        local.tryAdvanceCalls += calls;
+        if (timed) {
+            tryAdvanceTimes.record(nanos);
+        }
+    }
+
+    /**
+     * Returns everything recorded so far. Counters of threads that are just processing are read without
+     * synchronization, so they may be slightly behind.
+     */
+    public SpliteratorMetricsSnapshot snapshot() {
+        Map<String, ThreadCounters> byName = new LinkedHashMap<>();
+        synchronized (threads) {
+            foldTerminated();
+            for (ThreadCounters c : terminated.values()) {
+                byName.computeIfAbsent(c.threadName, ThreadCounters::new).add(c);
+            }
+            for (ThreadCounters c : threads) {
+                byName.computeIfAbsent(c.threadName, ThreadCounters::new).add(c);
+            }
+        }
+        List<SpliteratorMetricsSnapshot.ThreadStats> stats = new ArrayList<>();
+        for (ThreadCounters c : byName.values()) {
+            stats.add(new SpliteratorMetricsSnapshot.ThreadStats(c.threadName, c.splits, c.maxDepth, c.chunks,
+                c.elements, c.chunkNanos, c.steals, c.tryAdvanceCalls));
+        }
+        return new SpliteratorMetricsSnapshot(stats, chunkSizes.snapshot(), chunkTimes.snapshot(),
+            chunkDepths.snapshot(), tryAdvanceTimes.snapshot());
+    }
+
+    private ThreadCounters register() {
+        ThreadCounters local = new ThreadCounters(Thread.currentThread());
+        synchronized (threads) {
+            if (threads.size() >= foldAt) {
+                foldTerminated();
+                foldAt = Math.max(2 * threads.size(), MIN_FOLD_AT);
+            }
+            threads.add(local);
+        }
+        return local;
+    }
+
+    /**
+     * Moves counters of terminated threads to the totals by name. A terminated thread does not write
+     * its counters anymore and its termination happens-before isAlive returns false.
+     */
+    private void foldTerminated() {
+        for (Iterator<ThreadCounters> i = threads.iterator(); i.hasNext(); ) {
+            ThreadCounters c = i.next();
+            if (!c.owner.isAlive()) {
+                terminated.computeIfAbsent(c.threadName, ThreadCounters::new).add(c);
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Written only by the owner thread, volatile so the snapshot sees recent values. Totals without an owner
+     * are written only under the lock of the thread list.
+     */
+    private static final class ThreadCounters {
+        private final Thread owner;
+        private final String threadName;
+        private volatile long splits;
+        private volatile int maxDepth;
+        private volatile long chunks;
+        private volatile long elements;
+        private volatile long chunkNanos;
+        private volatile long steals;
+        private volatile long tryAdvanceCalls;
+
+        private ThreadCounters(Thread owner) {
+            this.owner = owner;
+            this.threadName = owner.getName();
+        }
+
+        private ThreadCounters(String threadName) {
+            this.owner = null;
+            this.threadName = threadName;
+        }
+
+        private void add(ThreadCounters other) {
+            splits += other.splits;
+            maxDepth = Math.max(maxDepth, other.maxDepth);
+            chunks += other.chunks;
+            elements += other.elements;
+            chunkNanos += other.chunkNanos;
+            steals += other.steals;
+            tryAdvanceCalls += other.tryAdvanceCalls;
+        }
+    }
+}
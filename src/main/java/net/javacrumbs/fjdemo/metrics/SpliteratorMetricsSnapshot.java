@@ -0,0 +1,165 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Metrics recorded by {@link SpliteratorMetrics}, times are in nanoseconds.
+ */
+public class SpliteratorMetricsSnapshot {
+    private final List<ThreadStats> threads;
+    private final HistogramSnapshot chunkSizes;
+    private final HistogramSnapshot chunkTimes;
+    private final HistogramSnapshot chunkDepths;
+    private final HistogramSnapshot tryAdvanceTimes;
+
+    SpliteratorMetricsSnapshot(List<ThreadStats> threads, HistogramSnapshot chunkSizes, HistogramSnapshot chunkTimes,
+                               HistogramSnapshot chunkDepths, HistogramSnapshot tryAdvanceTimes) {
+        this.threads = unmodifiableList(threads);
+        this.chunkSizes = chunkSizes;
+        this.chunkTimes = chunkTimes;
+        this.chunkDepths = chunkDepths;
+        this.tryAdvanceTimes = tryAdvanceTimes;
+    }
+
+    public List<ThreadStats> getThreads() {
+        return threads;
+    }
+
+    /**
+     * Number of elements in chunks processed sequentially by forEachRemaining.
+     */
+    public HistogramSnapshot getChunkSizes() {
+        return chunkSizes;
+    }
+
+    public HistogramSnapshot getChunkTimes() {
+        return chunkTimes;
+    }
+
+    /**
+     * Split depth of the processed chunks.
+     */
+    public HistogramSnapshot getChunkDepths() {
+        return chunkDepths;
+    }
+
+    /**
+     * Sampled times of single tryAdvance calls.
+     */
+    public HistogramSnapshot getTryAdvanceTimes() {
+        return tryAdvanceTimes;
+    }
+
+    public long getSplits() {
+        return threads.stream().mapToLong(ThreadStats::getSplits).sum();
+    }
+
+    public long getSteals() {
+        return threads.stream().mapToLong(ThreadStats::getSteals).sum();
+    }
+
+    public long getElements() {
+        return threads.stream().mapToLong(ThreadStats::getElements).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("splits=%d steals=%d elements=%d%n", getSplits(), getSteals(), getElements()));
+        result.append(String.format("  chunk sizes:        %s%n", chunkSizes));
+        result.append(String.format("  chunk times [ns]:   %s%n", chunkTimes));
+        result.append(String.format("  chunk depths:       %s%n", chunkDepths));
+        result.append(String.format("  tryAdvance [ns]:    %s%n", tryAdvanceTimes));
+        for (ThreadStats thread : threads) {
+            result.append("  ").append(thread).append(String.format("%n"));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Counters of one thread.
+     */
+    public static class ThreadStats {
+        private final String threadName;
+        private final long splits;
+        private final int maxDepth;
+        private final long chunks;
+        private final long elements;
+        private final long chunkNanos;
+        private final long steals;
+        private final long tryAdvanceCalls;
+
+        ThreadStats(String threadName, long splits, int maxDepth, long chunks, long elements, long chunkNanos,
+                    long steals, long tryAdvanceCalls) {
+            this.threadName = threadName;
+            this.splits = splits;
+            this.maxDepth = maxDepth;
+            this.chunks = chunks;
+            this.elements = elements;
+            this.chunkNanos = chunkNanos;
+            this.steals = steals;
+            this.tryAdvanceCalls = tryAdvanceCalls;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getSplits() {
+            return splits;
+        }
+
+        /**
+         * Deepest split done by the thread.
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public long getElements() {
+            return elements;
+        }
+
+        /**
+         * Time spent processing chunks.
+         */
+        public long getChunkNanos() {
+            return chunkNanos;
+        }
+
+        public long getSteals() {
+            return steals;
+        }
+
+        public long getTryAdvanceCalls() {
+            return tryAdvanceCalls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: splits=%d max depth=%d chunks=%d elements=%d chunk time=%.3f ms steals=%d tryAdvance=%d",
+                threadName, splits, maxDepth, chunks, elements, chunkNanos / 1e6, steals, tryAdvanceCalls);
+        }
+    }
+}
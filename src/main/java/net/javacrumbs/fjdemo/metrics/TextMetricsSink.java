@@ -0,0 +1,40 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.io.PrintStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Prints the metrics as plain text.
+ */
+public class TextMetricsSink implements MetricsSink {
+    private final PrintStream out;
+
+    public TextMetricsSink() {
+        this(System.out);
+    }
+
+    public TextMetricsSink(PrintStream out) {
+        this.out = requireNonNull(out);
+    }
+
+    @Override
+    public void publish(PoolMetricsSnapshot snapshot) {
+        out.println(snapshot);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static java.lang.Thread.currentThread;
+
+/**
+ * Tracks tasks reported by the task wrappers, works on any JDK. A task is placed to the queue of the thread
+ * that created it and removed when a thread takes it. Tasks created outside of the pool are placed to the first
+ * submission queue. The pool decides which of the created tasks are really forked, so the queues show tasks that
+ * are waiting for a thread rather than exact content of the work queues.
+ */
+public class AccountingQueueSnapshotProvider implements QueueSnapshotProvider {
+    private final ForkJoinPool pool;
+    private final List<List<Task>> queues = new ArrayList<>();
+
+    public AccountingQueueSnapshotProvider(ForkJoinPool pool) {
+        this.pool = pool;
+        for (int i = 0; i < pool.getParallelism() * 2; i++) {
+            queues.add(new ArrayList<>());
+        }
+    }
+
+    @Override
+    public synchronized QueueSnapshot snapshot() {
+        List<List<Task>> copy = new ArrayList<>(queues.size());
+        for (List<Task> queue : queues) {
+            copy.add(new ArrayList<>(queue));
+        }
+        return QueueSnapshot.of(pool, copy);
+    }
+
+    @Override
+    public synchronized void taskCreated(Task task) {
+        queues.get(queueIndex(currentThread())).add(task);
+    }
+
+    @Override
+    public synchronized void taskTaken(Task task) {
+        for (List<Task> queue : queues) {
+            // wrappers do not override equals, tasks are compared by identity
+            if (queue.remove(task)) {
+                return;
+            }
+        }
+    }
+
+    private int queueIndex(Thread thread) {
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            return ((ForkJoinWorkerThread) thread).getPoolIndex() % (queues.size() / 2) * 2 + 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+/**
+ * Sizes of the leaves of one calculation, shows how evenly the source was split.
+ */
+class LeafBalance {
+    private int leaves;
+    private long elements;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    synchronized void leafProcessed(long size) {
+        leaves++;
+        elements += size;
+        min = Math.min(min, size);
+        max = Math.max(max, size);
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (leaves == 0) {
+            return "No leaves";
+        }
+        return String.format("Leaves: %d, size min %d, max %d, mean %.1f", leaves, min, max, (double) elements / leaves);
+    }
+}
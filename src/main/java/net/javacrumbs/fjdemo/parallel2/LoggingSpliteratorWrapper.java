@@ -19,18 +19,31 @@ import java.util.Comparator;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 
+import net.javacrumbs.fjdemo.spliterator.RangeSpliterator;
+
 import static java.lang.Thread.currentThread;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Logs and slows down splitting and processing of a stream so it can be visualized. Use
+ * {@link net.javacrumbs.fjdemo.metrics.InstrumentedSpliterator} to diagnose real streams.
+ */
 public class LoggingSpliteratorWrapper<T> implements Spliterator<T>, Task {
     public static final String CREATED = "created";
     public static final String FOR_EACH_REMAINING = "process";
     public static final String FOR_EACH_REMAINING_END = "forEachRemainingEnd";
     public static final String STOLEN = "stolen";
     public static final String SPLIT = "split";
+    /**
+     * Position in the source that can not be derived from the sizes.
+     */
+    public static final int UNKNOWN = -1;
     private final Spliterator<T> wrapped;
     private final int taskId;
-    private final int from;
+    /**
+     * Index of the first element in the source.
+     */
+    private int from;
 
     private final Task parentTask;
     private Thread ownerThread;
@@ -59,7 +72,16 @@ public class LoggingSpliteratorWrapper<T> implements Spliterator<T>, Task {
     @Override
     public Spliterator<T> trySplit() {
         logAndSleep(SPLIT);
-        return createNewInstance(wrapped.trySplit(), taskId, from + (int) estimateSize());
+        // the prefix starts where we used to start, read it before the split moves the origin of the wrapped one
+        int prefixFrom = getFrom();
+        Spliterator<T> prefix = wrapped.trySplit();
+        if (prefix == null) {
+            return null;
+        }
+        // we continue after the prefix
+        long prefixSize = prefix.getExactSizeIfKnown();
+        from = prefixSize >= 0 ? prefixFrom + (int) prefixSize : UNKNOWN;
+        return createNewInstance(prefix, taskId, prefixFrom);
     }
 
     protected LoggingSpliteratorWrapper<T> createNewInstance(Spliterator<T> spliterator, int taskId, int from) {
@@ -87,6 +109,13 @@ public class LoggingSpliteratorWrapper<T> implements Spliterator<T>, Task {
             ownerThread = currentThread();
         }
         log(message);
+        pause();
+    }
+
+    /**
+     * Slows down the processing so it can be watched.
+     */
+    protected void pause() {
         sleep();
     }
 
@@ -115,7 +144,9 @@ public class LoggingSpliteratorWrapper<T> implements Spliterator<T>, Task {
 
     @Override
     public String getInterval() {
-        return from + "-" + (from + estimateSize());
+        int start = getFrom();
+        int end = getTo();
+        return (start != UNKNOWN ? String.valueOf(start) : "?") + "-" + (end != UNKNOWN ? String.valueOf(end) : "?");
     }
 
     @Override
@@ -123,6 +154,26 @@ public class LoggingSpliteratorWrapper<T> implements Spliterator<T>, Task {
         return taskId;
     }
 
+    @Override
+    public int getFrom() {
+        if (wrapped instanceof RangeSpliterator) {
+            return (int) ((RangeSpliterator<T>) wrapped).getOrigin();
+        }
+        return from;
+    }
+
+    /**
+     * Returns end of the interval or {@link #UNKNOWN} if the size is not known.
+     */
+    @Override
+    public int getTo() {
+        if (wrapped instanceof RangeSpliterator) {
+            return (int) ((RangeSpliterator<T>) wrapped).getFence();
+        }
+        long size = wrapped.getExactSizeIfKnown();
+        return from != UNKNOWN && size >= 0 ? from + (int) size : UNKNOWN;
+    }
+
     public Task getParentTask() {
         return parentTask;
     }
@@ -17,8 +17,6 @@ package net.javacrumbs.fjdemo.parallel2;
 
 
 import static java.lang.Thread.currentThread;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.IntStream.range;
 import static net.javacrumbs.fjdemo.parallel2.Const.label;
 import static net.javacrumbs.fjdemo.parallel2.LoggingSpliteratorWrapper.FOR_EACH_REMAINING;
 import static net.javacrumbs.fjdemo.parallel2.LoggingSpliteratorWrapper.FOR_EACH_REMAINING_END;
@@ -26,64 +24,112 @@ import static net.javacrumbs.fjdemo.parallel2.LoggingSpliteratorWrapper.SPLIT;
 import static net.javacrumbs.fjdemo.parallel2.LoggingSpliteratorWrapper.sleep;
 
 import java.awt.*;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.ForkJoinWorkerThread;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.swing.*;
 
+import net.javacrumbs.fjdemo.collector.LongRange;
+import net.javacrumbs.fjdemo.pool.NamedWorkerThreadFactory;
+import net.javacrumbs.fjdemo.pool.PoolSettings;
+import net.javacrumbs.fjdemo.pool.StreamPool;
+import net.javacrumbs.fjdemo.pool.SubmitterMode;
+import net.javacrumbs.fjdemo.trace.ReplayControls;
+import net.javacrumbs.fjdemo.trace.TaskEvent;
+import net.javacrumbs.fjdemo.trace.TaskEventRecorder;
+import net.javacrumbs.fjdemo.trace.TaskEventType;
+import net.javacrumbs.fjdemo.trace.TraceReader;
+import net.javacrumbs.fjdemo.trace.TraceSession;
+import net.javacrumbs.fjdemo.trace.TraceView;
+
 public class PSDemo {
 
     private static final String MERGE = "merge";
     private static final String MERGE_FINISHED = "mergeFinished";
+    private static final int TRACE_SIZE = 1_000_000;
+    private static final int SAMPLE_MILLIS = 100;
+    private static final Map<String, TaskEventType> EVENT_TYPES = new HashMap<>();
+
+    static {
+        EVENT_TYPES.put(LoggingSpliteratorWrapper.CREATED, TaskEventType.CREATED);
+        EVENT_TYPES.put(LoggingSpliteratorWrapper.STOLEN, TaskEventType.STOLEN);
+        EVENT_TYPES.put(SPLIT, TaskEventType.FORKED);
+        EVENT_TYPES.put(FOR_EACH_REMAINING, TaskEventType.STARTED);
+        EVENT_TYPES.put(FOR_EACH_REMAINING_END, TaskEventType.FINISHED);
+        EVENT_TYPES.put(MERGE, TaskEventType.MERGED);
+        EVENT_TYPES.put(MERGE_FINISHED, TaskEventType.FINISHED);
+    }
 
     static {
         System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
     }
 
-    private static int FJ_THREADS = 4;
     private static int EX_THREADS = 10;
 
-    private final QueueBox[] queueBoxes = new QueueBox[FJ_THREADS * 2];
-    private final ThreadBox[] fjThreadBoxes = new ThreadBox[FJ_THREADS];
+    private final List<PoolPanel> poolPanels;
     private final ThreadBox[] exThreadBoxes = new ThreadBox[EX_THREADS];
     private final JFrame frame = new JFrame("Visualisation of parallel stream processing");
-    private final Executor executor = new ThreadPoolExecutor(EX_THREADS, EX_THREADS,
-        Long.MAX_VALUE, TimeUnit.SECONDS,
-        new LinkedBlockingQueue<>());
+    private final Executor executor;
     private final AtomicInteger taskIdGenerator = new AtomicInteger();
+    private final ReplayView replayView = new ReplayView();
+    private final ReplayControls replayControls = new ReplayControls(replayView);
+    private final JButton recordButton = new JButton("Record trace...");
+    private final JButton replayButton = new JButton("Replay trace...");
+    /**
+     * Recorder of the running recording, there is at most one at a time.
+     */
+    private volatile TaskEventRecorder traceRecorder;
+    private final Timer samplingTimer = new Timer(SAMPLE_MILLIS, e -> sampleQueues());
+    private final JComboBox<Source> sourceBox = new JComboBox<>(Source.values());
+    private final JComboBox<String> poolBox = new JComboBox<>();
+    /**
+     * Pools of the running calculations by task id.
+     */
+    private final Map<Integer, PoolPanel> calculationPools = new ConcurrentHashMap<>();
+    private final JLabel balanceLabel = new JLabel();
+    private final AtomicInteger runningCalculations = new AtomicInteger();
+    /**
+     * True if a calculation was running during the last sample, accessed only by the sampling timer.
+     */
+    private boolean sampledRunning;
+
+    /**
+     * @param poolPanels pools the calculations can run in, shown side by side
+     * @param submitterMode threads that submit the calculations to the pools
+     */
+    public PSDemo(List<PoolPanel> poolPanels, SubmitterMode submitterMode) {
+        this.poolPanels = poolPanels;
+        this.executor = submitterMode.newExecutor("submitter-", EX_THREADS);
+        frame.setTitle(frame.getTitle() + " (" + submitterMode.name().toLowerCase() + " submitters)");
+    }
 
     private void start() {
         frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        frame.setSize(1300, 450);
+        frame.setSize(1600, 500);
         frame.setLayout(new BorderLayout());
 
         JPanel threadPanel = new JPanel();
         threadPanel.setLayout(new BoxLayout(threadPanel, BoxLayout.PAGE_AXIS));
 
         Box fjPanel = Box.createHorizontalBox();
-
-        for (int i = 0; i < FJ_THREADS; i++) {
-            QueueBox submissionQueue = new QueueBox("submission");
-            queueBoxes[i * 2] = submissionQueue;
-            QueueBox workerQueue = new QueueBox("worker");
-            queueBoxes[i * 2 + 1] = workerQueue;
-            ThreadBox threadBox = new ThreadBox(null, FlowLayout.CENTER);
-            fjThreadBoxes[i] = threadBox;
-            fjPanel.add(new WorkerBox(threadBox, submissionQueue, workerQueue));
+        for (PoolPanel poolPanel : poolPanels) {
+            fjPanel.add(poolPanel);
+            poolBox.addItem(poolPanel.getPoolName());
         }
 
         for (int i = 0; i < EX_THREADS; i++) {
@@ -97,66 +143,212 @@ public class PSDemo {
         buttonPanel.setLayout(new BorderLayout());
 
         JButton startButton = new JButton("Start");
-        startButton.addActionListener(e -> executor.execute(this::runCalculation));
+        startButton.addActionListener(e -> {
+            replayControls.clear();
+            Source source = (Source) sourceBox.getSelectedItem();
+            PoolPanel poolPanel = getSelectedPool();
+            executor.execute(() -> runCalculation(source, poolPanel));
+        });
         buttonPanel.add(startButton);
 
+        recordButton.setToolTipText("Processes " + TRACE_SIZE + " numbers at full speed, saves the events and replays them");
+        recordButton.addActionListener(e -> recordTrace((Source) sourceBox.getSelectedItem(), getSelectedPool()));
+        replayButton.addActionListener(e -> replayTrace());
+        Box traceButtons = Box.createHorizontalBox();
+        traceButtons.add(recordButton);
+        traceButtons.add(replayButton);
+        buttonPanel.add(traceButtons, BorderLayout.EAST);
+        buttonPanel.add(replayControls, BorderLayout.NORTH);
+        Box sourcePanel = Box.createHorizontalBox();
+        sourcePanel.add(new JLabel("Source: "));
+        sourcePanel.add(sourceBox);
+        sourcePanel.add(new JLabel(" Pool: "));
+        sourcePanel.add(poolBox);
+        sourcePanel.add(Box.createHorizontalStrut(10));
+        sourcePanel.add(balanceLabel);
+        buttonPanel.add(sourcePanel, BorderLayout.SOUTH);
+
 
         frame.add(threadPanel, BorderLayout.WEST);
-        frame.add(fjPanel, BorderLayout.CENTER);
+        frame.add(new JScrollPane(fjPanel), BorderLayout.CENTER);
         frame.add(buttonPanel, BorderLayout.SOUTH);
 
         frame.setVisible(true);
+        samplingTimer.start();
+    }
+    private PoolPanel getSelectedPool() {
+        return poolPanels.get(poolBox.getSelectedIndex());
     }
-    private void runCalculation() {
+
+    private void runCalculation(Source source, PoolPanel poolPanel) {
         int taskId = taskIdGenerator.getAndIncrement();
-        SwingLoggingSpliteratorWrapper<Integer> spliterator = new SwingLoggingSpliteratorWrapper<>(range(0, 1000).spliterator(), taskId, 0, null);
-        Stream<Integer> stream = StreamSupport.stream(spliterator, true);
+        LeafBalance balance = new LeafBalance();
+        calculationPools.put(taskId, poolPanel);
+        runningCalculations.incrementAndGet();
+        try {
+            runInPool(poolPanel, () -> {
+                SwingLoggingSpliteratorWrapper<Integer> spliterator = new SwingLoggingSpliteratorWrapper<>(source.create(1000), taskId, 0, null, balance);
+                Stream<Integer> stream = StreamSupport.stream(spliterator, true);
+
+                return stream.parallel().collect(() -> new NumberCollector(taskId, this::logTask, LoggingSpliteratorWrapper::sleep), NumberCollector::append, NumberCollector::combine);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningCalculations.decrementAndGet();
+            calculationPools.remove(taskId);
+            SwingUtilities.invokeLater(() -> balanceLabel.setText(taskId + ": " + balance));
+        }
+    }
+
+    /**
+     * Runs the stream in the dedicated pool, streams of the common pool run directly in the calling thread,
+     * which then helps the workers.
+     */
+    private static <T> T runInPool(PoolPanel poolPanel, Supplier<T> calculation) throws InterruptedException {
+        StreamPool streamPool = poolPanel.getStreamPool();
+        return streamPool != null ? streamPool.invoke(calculation) : calculation.get();
+    }
+
+    /**
+     * Runs the calculation at full speed and records the events to the trace file.
+     */
+    private void recordCalculation(Path file, Source source, PoolPanel poolPanel) throws IOException, InterruptedException {
+        int taskId = taskIdGenerator.getAndIncrement();
+        try (TraceSession session = TraceSession.start(file)) {
+            traceRecorder = session.getRecorder();
+            runInPool(poolPanel, () -> {
+                RecordingSpliteratorWrapper<Integer> spliterator = new RecordingSpliteratorWrapper<>(source.create(TRACE_SIZE), taskId, 0, null);
+                return StreamSupport.stream(spliterator, true)
+                    .collect(() -> new NumberCollector(taskId, this::recordTask, () -> { }), NumberCollector::append, NumberCollector::combine);
+            });
+        } finally {
+            traceRecorder = null;
+        }
+    }
+
+    private void recordTask(String message, Task task) {
+        traceRecorder.record(EVENT_TYPES.get(message), task.getTaskId(), task.getFrom(), task.getTo());
+    }
+
+    private void recordTrace(Source source, PoolPanel poolPanel) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        setTraceButtonsEnabled(false);
+        replayControls.clear();
+        executor.execute(() -> {
+            try {
+                recordCalculation(file, source, poolPanel);
+                loadTrace(file);
+            } catch (IOException e) {
+                showError("Can not record trace", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void replayTrace() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        setTraceButtonsEnabled(false);
+        replayControls.clear();
+        executor.execute(() -> {
+            try {
+                loadTrace(file);
+            } catch (IOException e) {
+                showError("Can not read trace", e);
+            }
+        });
+    }
 
-        stream.parallel().collect(() -> new NumberCollector(taskId, this::logTask), NumberCollector::append, NumberCollector::combine);
+    private void loadTrace(Path file) throws IOException {
+        List<TaskEvent> events = TraceReader.read(file);
+        SwingUtilities.invokeLater(() -> {
+            replayControls.load(events);
+            replayControls.play();
+            setTraceButtonsEnabled(true);
+        });
+    }
+
+    private void setTraceButtonsEnabled(boolean enabled) {
+        recordButton.setEnabled(enabled);
+        replayButton.setEnabled(enabled);
+    }
+
+    private void showError(String message, Exception e) {
+        e.printStackTrace();
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(frame, message + ": " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            setTraceButtonsEnabled(true);
+        });
     }
 
     /**
-     * Assumes sorted numbers on input.
+     * Assumes sorted numbers on input. The collector itself is the task shown while it merges another collector,
+     * so merging does not allocate.
      */
-    private static class NumberCollector {
+    private static class NumberCollector implements Task {
         private final int taskId;
         private final BiConsumer<String, Task> logger;
-        private Integer from;
-        private Integer to;
-
-        private NumberCollector(int taskId, BiConsumer<String, Task> logger) {
+        private final Runnable pause;
+        private final LongRange range = new LongRange();
+        /**
+         * End of the range being merged (exclusive).
+         */
+        private int mergeTo;
+
+        private NumberCollector(int taskId, BiConsumer<String, Task> logger, Runnable pause) {
             this.taskId = taskId;
             this.logger = logger;
+            this.pause = pause;
         }
 
         private void append(Integer i) {
-            if (from == null) {
-                from = i;
-            }
-            to = i;
+            range.accept(i.intValue());
         }
 
         private void combine(NumberCollector other) {
-            logger.accept(MERGE, new Task() {
-                @Override
-                public String getIdentifier() {
-                    return taskId + "[" + getInterval() + "]";
-                }
+            if (range.isEmpty() || other.range.isEmpty()) {
+                range.combine(other.range);
+                return;
+            }
+            mergeTo = (int) other.range.getMax() + 1;
+            logger.accept(MERGE, this);
+            pause.run();
+            logger.accept(MERGE_FINISHED, this);
+            range.combine(other.range);
+        }
 
-                @Override
-                public String getInterval() {
-                    return from + "-" + (to + 1) + "-" + (other.to + 1);
-                }
+        @Override
+        public String getIdentifier() {
+            return taskId + "[" + getInterval() + "]";
+        }
 
-                @Override
-                public int getTaskId() {
-                    return taskId;
-                }
-            });
-            from = Math.min(from, other.from);
-            to = Math.max(to, other.to);
-            sleep();
-            logger.accept(MERGE_FINISHED, null);
+        @Override
+        public String getInterval() {
+            return range.getMin() + "-" + (range.getMax() + 1) + "-" + mergeTo;
+        }
+
+        @Override
+        public int getTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public int getFrom() {
+            return (int) range.getMin();
+        }
+
+        @Override
+        public int getTo() {
+            return mergeTo;
         }
     }
 
@@ -172,17 +364,39 @@ public class PSDemo {
 //        if (STOLEN.equals(message) && !isFJThread(currentThread)) {
 //            System.out.println("Ha");
 //        }
-        logQueues();
+        QueueSnapshotProvider queueSnapshotProvider = calculationPools.get(task.getTaskId()).getQueueSnapshotProvider();
+        if (LoggingSpliteratorWrapper.CREATED.equals(message)) {
+            queueSnapshotProvider.taskCreated(task);
+        }
+        if (FOR_EACH_REMAINING.equals(message) || SPLIT.equals(message) || LoggingSpliteratorWrapper.STOLEN.equals(message)) {
+            queueSnapshotProvider.taskTaken(task);
+        }
     }
 
     private class SwingLoggingSpliteratorWrapper<T> extends LoggingSpliteratorWrapper<T> {
-        public SwingLoggingSpliteratorWrapper(Spliterator<T> wrapped, int taskId, int from, Task parentTask) {
+        private final LeafBalance balance;
+
+        public SwingLoggingSpliteratorWrapper(Spliterator<T> wrapped, int taskId, int from, Task parentTask, LeafBalance balance) {
             super(wrapped, taskId, from, parentTask);
+            this.balance = balance;
         }
 
         @Override
         protected LoggingSpliteratorWrapper<T> createNewInstance(Spliterator<T> spliterator, int taskId, int from) {
-            return new SwingLoggingSpliteratorWrapper<>(spliterator, taskId, from, this);
+            return new SwingLoggingSpliteratorWrapper<>(spliterator, taskId, from, this, balance);
+        }
+
+        /**
+         * Counts the elements, sources of unknown size do not know the size of the leaf upfront.
+         */
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            long[] count = new long[1];
+            super.forEachRemaining(t -> {
+                count[0]++;
+                action.accept(t);
+            });
+            balance.leafProcessed(count[0]);
         }
 
         @Override
@@ -197,75 +411,181 @@ public class PSDemo {
         }
     }
 
-    private ThreadBox getThreadBox(Thread thread) {
-        String threadName = thread.getName();
-        int threadNo = Integer.parseInt(threadName.substring(threadName.lastIndexOf('-') + 1));
-        if (isFJThread(thread)) {
-            return fjThreadBoxes[threadNo];
-        } else {
-            return exThreadBoxes[threadNo % EX_THREADS];
+    /**
+     * Records events instead of printing them, does not slow the processing down.
+     */
+    private class RecordingSpliteratorWrapper<T> extends LoggingSpliteratorWrapper<T> {
+        public RecordingSpliteratorWrapper(Spliterator<T> wrapped, int taskId, int from, Task parentTask) {
+            super(wrapped, taskId, from, parentTask);
+        }
+
+        @Override
+        protected LoggingSpliteratorWrapper<T> createNewInstance(Spliterator<T> spliterator, int taskId, int from) {
+            return new RecordingSpliteratorWrapper<>(spliterator, taskId, from, this);
+        }
+
+        @Override
+        protected void log(String message) {
+            recordTask(message, this);
         }
-    }
 
-    private boolean isFJThread(Thread thread) {
-        return thread instanceof ForkJoinWorkerThread;
+        @Override
+        protected void pause() {
+        }
     }
 
-    private void logQueues() {
-        //implementation specific
-        Object[] ws = (Object[]) getFieldValue(ForkJoinPool.commonPool(), "workQueues");
-        if (ws != null) {
-            //Worker queues are at odd indices. Shared (submission) queues are at even indices,
-            for (int i = 0; i < ws.length; i += 1) {
-                int j = i;
-                List<Task> tasks = getTasks(ws[i]);
-                threadSafe(() -> queueBoxes[j].setTasks(tasks));
-                System.out.println("Queue content: " + i + " " + tasks);
+    /**
+     * Replays recorded events. Queues can not be recorded, they show tasks created by the thread
+     * that were not picked up by any thread yet. Threads are assigned to the pools by their names,
+     * tasks created outside of the pools are shown in the submission queue of the selected pool.
+     */
+    private class ReplayView implements TraceView {
+        private final Map<PoolPanel, Map<Integer, List<Task>>> pendingTasks = new HashMap<>();
+
+        @Override
+        public void accept(TaskEvent event) {
+            String threadName = event.getThreadName();
+            ThreadBox threadBox = getThreadBox(threadName);
+            Task task = new ReplayedTask(event.getDepth(), event.getFrom(), event.getTo());
+            switch (event.getType()) {
+                case CREATED:
+                    PoolPanel poolPanel = getPoolPanel(threadName);
+                    int queue = 0;
+                    if (poolPanel != null) {
+                        queue = poolPanel.getWorkerQueue(threadNo(threadName));
+                    } else {
+                        poolPanel = getSelectedPool();
+                    }
+                    List<Task> tasks = pendingTasks.computeIfAbsent(poolPanel, p -> new HashMap<>())
+                        .computeIfAbsent(queue, q -> new ArrayList<>());
+                    tasks.add(task);
+                    poolPanel.setQueue(queue, tasks);
+                    break;
+                case FORKED:
+                    removePending(task);
+                    threadBox.setTask(task, SPLIT);
+                    break;
+                case STARTED:
+                    removePending(task);
+                    threadBox.setTask(task, FOR_EACH_REMAINING);
+                    break;
+                case MERGED:
+                    threadBox.setTask(task, MERGE);
+                    break;
+                case FINISHED:
+                    threadBox.setTask(null, "");
+                    break;
+                default:
+                    // steals are visible as tasks moving between threads
             }
         }
+
+        private void removePending(Task task) {
+            pendingTasks.forEach((poolPanel, queues) -> queues.forEach((queue, tasks) -> {
+                if (tasks.removeIf(t -> t.getTaskId() == task.getTaskId() && t.getFrom() == task.getFrom())) {
+                    poolPanel.setQueue(queue, tasks);
+                }
+            }));
+        }
+
+        @Override
+        public void reset() {
+            pendingTasks.clear();
+            for (PoolPanel poolPanel : poolPanels) {
+                poolPanel.reset();
+            }
+            for (ThreadBox threadBox : exThreadBoxes) {
+                threadBox.setTask(null, "");
+            }
+        }
+
+        @Override
+        public void refresh() {
+            frame.repaint();
+        }
     }
 
+    private static class ReplayedTask implements Task {
+        private final int taskId;
+        private final int from;
+        private final int to;
 
-    private Object getFieldValue(Object object, String fieldName) {
-        try {
-            return getFieldValue(object.getClass(), object, fieldName);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            e.printStackTrace();
-            return null;
+        private ReplayedTask(int taskId, int from, int to) {
+            this.taskId = taskId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String getInterval() {
+            return from + "-" + to;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return taskId + "[" + getInterval() + "]";
+        }
+
+        @Override
+        public int getTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public int getFrom() {
+            return from;
+        }
+
+        @Override
+        public int getTo() {
+            return to;
         }
     }
 
-    private Object getFieldValue(Class<?> sourceClass, Object object, String fieldName) throws NoSuchFieldException, IllegalAccessException {
-        Field field = sourceClass.getDeclaredField(fieldName);
-        field.setAccessible(true);
-        return field.get(object);
+    private ThreadBox getThreadBox(Thread thread) {
+        return getThreadBox(thread.getName());
     }
 
+    private ThreadBox getThreadBox(String threadName) {
+        int threadNo = threadNo(threadName);
+        PoolPanel poolPanel = getPoolPanel(threadName);
+        if (poolPanel != null) {
+            return poolPanel.getThreadBox(threadNo);
+        } else {
+            return exThreadBoxes[threadNo % EX_THREADS];
+        }
+    }
 
-    private List<Task> getTasks(Object workQueue) {
-        if (workQueue != null) {
-            ForkJoinTask<?>[] queue = (ForkJoinTask<?>[]) getFieldValue(workQueue, "array");
-            int base = (int) getFieldValue(workQueue, "base");
-            int top = (int) getFieldValue(workQueue, "top");
-            if (base != top) {
-                return Arrays.stream(Arrays.copyOfRange(queue, base, top)).map(this::getSpliterator).collect(toList());
+    /**
+     * Returns panel of the pool of the worker, null if the thread is not a worker of any of the pools.
+     */
+    private PoolPanel getPoolPanel(String threadName) {
+        for (PoolPanel poolPanel : poolPanels) {
+            if (poolPanel.isWorker(threadName)) {
+                return poolPanel;
             }
         }
-        return Collections.emptyList();
+        return null;
     }
 
+    private static int threadNo(String threadName) {
+        return Integer.parseInt(threadName.substring(threadName.lastIndexOf('-') + 1));
+    }
 
-    private Task getSpliterator(ForkJoinTask<?> object) {
-        try {
-            return (Task) getFieldValue(Class.forName("java.util.stream.AbstractTask"), object, "spliterator");
-        } catch (NoSuchFieldException | IllegalAccessException | ClassNotFoundException e) {
-            throw new IllegalArgumentException(e);
-        } catch (NullPointerException ignore) {
-            return null;
+    /**
+     * Shows content of the queues, called periodically by the sampling timer.
+     */
+    private void sampleQueues() {
+        boolean running = runningCalculations.get() > 0;
+        // one more sample after the calculations finish to show the empty queues
+        if (running || sampledRunning) {
+            for (PoolPanel poolPanel : poolPanels) {
+                poolPanel.sample();
+            }
         }
+        sampledRunning = running;
     }
 
-
     /**
      * Runs closure in Swing Event thread and repaints the panel. Sleeps after the change.
      *
@@ -280,7 +600,54 @@ public class PSDemo {
         }
     }
 
+    /**
+     * Reads the real content of the queues by reflection if the system property fjdemo.reflectiveQueues is set
+     * to true and the JDK allows it, otherwise the queues are derived from the tasks reported by the spliterators.
+     */
+    private static QueueSnapshotProvider createQueueSnapshotProvider(ForkJoinPool pool) {
+        if (Boolean.getBoolean("fjdemo.reflectiveQueues")) {
+            try {
+                return new ReflectiveQueueSnapshotProvider(pool);
+            } catch (IllegalStateException e) {
+                System.out.println("Can not read queues by reflection, falling back to task accounting: " + e.getCause());
+            }
+        }
+        return new AccountingQueueSnapshotProvider(pool);
+    }
+
+    private static PoolPanel poolPanel(StreamPool streamPool) {
+        PoolSettings settings = streamPool.getSettings();
+        String title = streamPool.getName() + " (" + (settings.isAsyncMode() ? "FIFO" : "LIFO")
+            + ", max " + settings.getMaxConcurrentStreams() + " streams)";
+        return new PoolPanel(title, streamPool.getPool(), streamPool,
+            NamedWorkerThreadFactory.threadNamePrefix(streamPool.getName()), createQueueSnapshotProvider(streamPool.getPool()));
+    }
+
+    /**
+     * Shows the common pool and two dedicated pools. Pool a admits one stream at a time, the others wait.
+     */
     public static void main(String[] args) {
-        new PSDemo().start();
+        ForkJoinPool commonPool = ForkJoinPool.commonPool();
+        StreamPool poolA = new StreamPool("pool-a", PoolSettings.defaults().withParallelism(2).withMaxConcurrentStreams(1));
+        StreamPool poolB = new StreamPool("pool-b", PoolSettings.defaults().withParallelism(2).withAsyncMode(true).withMaxConcurrentStreams(2));
+        new PSDemo(Arrays.asList(
+            new PoolPanel("common pool", commonPool, null, "ForkJoinPool.commonPool-worker-", createQueueSnapshotProvider(commonPool)),
+            poolPanel(poolA),
+            poolPanel(poolB)
+        ), createSubmitterMode()).start();
+    }
+
+    /**
+     * Submits the calculations from virtual threads if the system property fjdemo.virtualSubmitters is set to true
+     * and the JVM supports them, otherwise from a fixed pool of platform threads.
+     */
+    private static SubmitterMode createSubmitterMode() {
+        if (Boolean.getBoolean("fjdemo.virtualSubmitters")) {
+            if (SubmitterMode.VIRTUAL.isSupported()) {
+                return SubmitterMode.VIRTUAL;
+            }
+            System.out.println("Virtual threads are not supported, falling back to platform threads");
+        }
+        return SubmitterMode.PLATFORM;
     }
 }
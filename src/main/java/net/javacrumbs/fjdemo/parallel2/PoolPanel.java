@@ -0,0 +1,127 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.javacrumbs.fjdemo.pool.StreamPool;
+
+/**
+ * Workers and queues of one pool.
+ */
+public class PoolPanel extends JPanel {
+    private static final long serialVersionUID = -8047026284067541870L;
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final StreamPool streamPool;
+    private final String threadNamePrefix;
+    private final QueueSnapshotProvider queueSnapshotProvider;
+    private final QueueBox[] queueBoxes;
+    private final ThreadBox[] threadBoxes;
+    private final JLabel statsLabel = new JLabel();
+
+    /**
+     * @param streamPool dedicated pool, null if streams run directly in the calling thread
+     * @param threadNamePrefix prefix of names of the workers, used to assign replayed events to the pool
+     */
+    public PoolPanel(String name, ForkJoinPool pool, StreamPool streamPool, String threadNamePrefix, QueueSnapshotProvider queueSnapshotProvider) {
+        this.name = name;
+        this.pool = pool;
+        this.streamPool = streamPool;
+        this.threadNamePrefix = threadNamePrefix;
+        this.queueSnapshotProvider = queueSnapshotProvider;
+        int parallelism = pool.getParallelism();
+        this.queueBoxes = new QueueBox[parallelism * 2];
+        this.threadBoxes = new ThreadBox[parallelism];
+
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder(name));
+        Box workers = Box.createHorizontalBox();
+        for (int i = 0; i < parallelism; i++) {
+            QueueBox submissionQueue = new QueueBox("submission");
+            queueBoxes[i * 2] = submissionQueue;
+            QueueBox workerQueue = new QueueBox("worker");
+            queueBoxes[i * 2 + 1] = workerQueue;
+            ThreadBox threadBox = new ThreadBox(null, FlowLayout.CENTER);
+            threadBoxes[i] = threadBox;
+            workers.add(new WorkerBox(threadBox, submissionQueue, workerQueue));
+        }
+        add(workers, BorderLayout.CENTER);
+        add(statsLabel, BorderLayout.SOUTH);
+    }
+
+    public ThreadBox getThreadBox(int workerNo) {
+        return threadBoxes[workerNo % threadBoxes.length];
+    }
+
+    /**
+     * Returns the worker queue of the worker.
+     */
+    public int getWorkerQueue(int workerNo) {
+        return workerNo % threadBoxes.length * 2 + 1;
+    }
+
+    public void setQueue(int queue, List<Task> tasks) {
+        queueBoxes[queue].setTasks(tasks);
+    }
+
+    /**
+     * Shows current content of the queues and statistics of the pool.
+     */
+    public void sample() {
+        QueueSnapshot snapshot = queueSnapshotProvider.snapshot();
+        List<List<Task>> queues = snapshot.getQueues();
+        for (int i = 0; i < queueBoxes.length; i++) {
+            queueBoxes[i].setTasks(i < queues.size() ? queues.get(i) : Collections.emptyList());
+        }
+        statsLabel.setText(snapshot + (streamPool != null ? ", streams running: " + streamPool.getRunningStreams()
+            + ", waiting for admission: " + streamPool.getWaitingStreams() : ""));
+    }
+
+    public void reset() {
+        for (QueueBox queueBox : queueBoxes) {
+            queueBox.setTasks(Collections.emptyList());
+        }
+        for (ThreadBox threadBox : threadBoxes) {
+            threadBox.setTask(null, "");
+        }
+    }
+
+    public boolean isWorker(String threadName) {
+        return threadName.startsWith(threadNamePrefix);
+    }
+
+    public String getPoolName() {
+        return name;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public StreamPool getStreamPool() {
+        return streamPool;
+    }
+
+    public QueueSnapshotProvider getQueueSnapshotProvider() {
+        return queueSnapshotProvider;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Content of the queues and public metrics of the pool at one point in time. Queues are indexed like in the pool,
+ * shared (submission) queues are at even indices, worker queues at odd indices.
+ */
+public class QueueSnapshot {
+    private final List<List<Task>> queues;
+    private final long queuedTaskCount;
+    private final int queuedSubmissionCount;
+    private final long stealCount;
+    private final int activeThreadCount;
+
+    public QueueSnapshot(List<List<Task>> queues, long queuedTaskCount, int queuedSubmissionCount, long stealCount, int activeThreadCount) {
+        this.queues = unmodifiableList(queues);
+        this.queuedTaskCount = queuedTaskCount;
+        this.queuedSubmissionCount = queuedSubmissionCount;
+        this.stealCount = stealCount;
+        this.activeThreadCount = activeThreadCount;
+    }
+
+    /**
+     * Creates snapshot with the queues and current metrics of the pool.
+     */
+    public static QueueSnapshot of(ForkJoinPool pool, List<List<Task>> queues) {
+        return new QueueSnapshot(queues, pool.getQueuedTaskCount(), pool.getQueuedSubmissionCount(), pool.getStealCount(), pool.getActiveThreadCount());
+    }
+
+    public List<List<Task>> getQueues() {
+        return queues;
+    }
+
+    public long getQueuedTaskCount() {
+        return queuedTaskCount;
+    }
+
+    public int getQueuedSubmissionCount() {
+        return queuedSubmissionCount;
+    }
+
+    public long getStealCount() {
+        return stealCount;
+    }
+
+    public int getActiveThreadCount() {
+        return activeThreadCount;
+    }
+
+    @Override
+    public String toString() {
+        return "queued tasks: " + queuedTaskCount + ", queued submissions: " + queuedSubmissionCount
+            + ", steals: " + stealCount + ", active threads: " + activeThreadCount;
+    }
+}
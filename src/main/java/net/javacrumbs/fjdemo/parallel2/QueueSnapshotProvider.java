@@ -0,0 +1,37 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+/**
+ * Provides snapshots of the queues of the pool. Implementations that can not look into the queues
+ * track the tasks themselves, the wrappers report creation of tasks and the moment they are taken by a thread.
+ */
+public interface QueueSnapshotProvider {
+
+    QueueSnapshot snapshot();
+
+    /**
+     * Called by the thread that created the task.
+     */
+    default void taskCreated(Task task) {
+    }
+
+    /**
+     * Called by the thread that started to process the task.
+     */
+    default void taskTaken(Task task) {
+    }
+}
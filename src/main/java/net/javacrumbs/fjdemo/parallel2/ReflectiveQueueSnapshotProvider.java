@@ -0,0 +1,106 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads real content of the work queues using reflection. Implementation specific, works only with
+ * the JDK 8 ForkJoinPool and needs access to private fields, so on newer JDKs it has to be run with
+ * {@code --add-opens java.base/java.util.concurrent=ALL-UNNAMED --add-opens java.base/java.util.stream=ALL-UNNAMED}.
+ */
+public class ReflectiveQueueSnapshotProvider implements QueueSnapshotProvider {
+    private final ForkJoinPool pool;
+    private final Field workQueuesField;
+    private final Field arrayField;
+    private final Field baseField;
+    private final Field topField;
+    private final Field spliteratorField;
+
+    /**
+     * @throws IllegalStateException if the fields are not accessible
+     */
+    public ReflectiveQueueSnapshotProvider(ForkJoinPool pool) {
+        this.pool = pool;
+        try {
+            workQueuesField = field(ForkJoinPool.class, "workQueues");
+            Class<?> workQueueClass = Class.forName("java.util.concurrent.ForkJoinPool$WorkQueue");
+            arrayField = field(workQueueClass, "array");
+            baseField = field(workQueueClass, "base");
+            topField = field(workQueueClass, "top");
+            spliteratorField = field(Class.forName("java.util.stream.AbstractTask"), "spliterator");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Can not access ForkJoinPool internals", e);
+        }
+    }
+
+    private static Field field(Class<?> sourceClass, String fieldName) throws NoSuchFieldException {
+        Field field = sourceClass.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @Override
+    public QueueSnapshot snapshot() {
+        List<List<Task>> queues = new ArrayList<>();
+        try {
+            Object[] ws = (Object[]) workQueuesField.get(pool);
+            if (ws != null) {
+                for (Object workQueue : ws) {
+                    queues.add(getTasks(workQueue));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return QueueSnapshot.of(pool, queues);
+    }
+
+    private List<Task> getTasks(Object workQueue) throws IllegalAccessException {
+        List<Task> result = new ArrayList<>();
+        if (workQueue != null) {
+            ForkJoinTask<?>[] queue = (ForkJoinTask<?>[]) arrayField.get(workQueue);
+            int base = (int) baseField.get(workQueue);
+            int top = (int) topField.get(workQueue);
+            // the queue is read without synchronization, the snapshot may be inconsistent
+            if (queue != null && top - base > 0) {
+                for (int i = base; i != top && result.size() < queue.length; i++) {
+                    Task task = getSpliterator(queue[i & (queue.length - 1)]);
+                    if (task != null) {
+                        result.add(task);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Task getSpliterator(ForkJoinTask<?> task) {
+        if (task == null || !spliteratorField.getDeclaringClass().isInstance(task)) {
+            return null;
+        }
+        try {
+            Object spliterator = spliteratorField.get(task);
+            return spliterator instanceof Task ? (Task) spliterator : null;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import net.javacrumbs.fjdemo.spliterator.BatchingIteratorSpliterator;
+import net.javacrumbs.fjdemo.spliterator.CostWeightedSpliterator;
+import net.javacrumbs.fjdemo.spliterator.MappedRecordSpliterator;
+import net.javacrumbs.fjdemo.spliterator.MinimumLeafSpliterator;
+
+import static java.util.stream.IntStream.range;
+
+/**
+ * Sources of numbers 0 to size - 1 processed by the demo, they differ in how they split.
+ */
+public enum Source {
+    RANGE("Range") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            return range(0, size).spliterator();
+        }
+    },
+    /**
+     * Iterator as split by the JDK. The first batch has 1024 elements and the stream does not split batches
+     * of unsized sources any further, so smaller sources are processed by a single thread.
+     */
+    ITERATOR("Iterator (JDK)") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            return Spliterators.spliteratorUnknownSize(iterator(size), Spliterator.ORDERED);
+        }
+    },
+    BATCHING_ITERATOR("Iterator (batches 4 + 4n)") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            return new BatchingIteratorSpliterator<>(iterator(size), Spliterator.ORDERED, 4, 4);
+        }
+    },
+    MINIMUM_LEAF("Range (leaves of 100+)") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            return new MinimumLeafSpliterator<>(range(0, size).spliterator(), 100);
+        }
+    },
+    /**
+     * Cost of a number grows with its value, so the leaves get smaller towards the end.
+     */
+    COST_WEIGHTED("Cost weighted (cost = n)") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            List<Integer> numbers = range(0, size).boxed().collect(Collectors.toList());
+            return new CostWeightedSpliterator<>(numbers, n -> n + 1);
+        }
+    },
+    /**
+     * Lines of a temporary file mapped to memory. Intervals of the tasks are byte offsets in the file.
+     * The file of every size is written and mapped only once and reused by the following runs.
+     */
+    MAPPED_FILE("Mapped file lines") {
+        @Override
+        public Spliterator<Integer> create(int size) {
+            return new MappedRecordSpliterator<>(MAPPED_FILES.computeIfAbsent(size, Source::mapFile), (byte) '\n',
+                line -> Integer.valueOf(MappedRecordSpliterator.decodeLine(line, StandardCharsets.US_ASCII)))
+                .withMinimumSplit(16);
+        }
+    };
+
+    /**
+     * Mapped files by size, a mapping can not be released, so they are kept for the life of the JVM.
+     */
+    private static final ConcurrentMap<Integer, ByteBuffer> MAPPED_FILES = new ConcurrentHashMap<>();
+
+    private final String description;
+
+    Source(String description) {
+        this.description = description;
+    }
+
+    public abstract Spliterator<Integer> create(int size);
+
+    private static ByteBuffer mapFile(int size) {
+        try {
+            Path file = Files.createTempFile("fjdemo", ".txt");
+            file.toFile().deleteOnExit();
+            Files.write(file, (Iterable<String>) range(0, size).mapToObj(Integer::toString)::iterator, StandardCharsets.US_ASCII);
+            return MappedRecordSpliterator.map(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Iterator<Integer> iterator(int size) {
+        return range(0, size).boxed().collect(Collectors.toCollection(LinkedList::new)).iterator();
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
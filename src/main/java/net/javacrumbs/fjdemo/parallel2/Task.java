@@ -7,4 +7,14 @@ public interface Task {
     String getIdentifier();
 
     int getTaskId();
+
+    /**
+     * Start of the interval (inclusive).
+     */
+    int getFrom();
+
+    /**
+     * End of the interval (exclusive).
+     */
+    int getTo();
 }
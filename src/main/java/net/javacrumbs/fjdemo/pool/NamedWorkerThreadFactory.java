@@ -0,0 +1,59 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.pool;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates daemon worker threads named {@code <prefix>-worker-<n>}, so thread dumps and the visualization
+ * show which pool a thread belongs to.
+ */
+public class NamedWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+    private final String prefix;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    public NamedWorkerThreadFactory(String prefix) {
+        this.prefix = requireNonNull(prefix);
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+        };
+        thread.setName(getThreadNamePrefix() + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Returns prefix of the names of the threads, the number of the thread follows.
+     */
+    public String getThreadNamePrefix() {
+        return threadNamePrefix(prefix);
+    }
+
+    /**
+     * Returns prefix of the names of the threads created by a factory with given prefix.
+     */
+    public static String threadNamePrefix(String prefix) {
+        return prefix + "-worker-";
+    }
+}
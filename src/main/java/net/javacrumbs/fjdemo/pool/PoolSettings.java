@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.pool;
+
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of a {@link StreamPool}. Instances are immutable.
+ */
+public final class PoolSettings {
+    /**
+     * Number of concurrent streams is not limited.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final PoolSettings DEFAULTS = new PoolSettings(Runtime.getRuntime().availableProcessors(), false, null, UNLIMITED);
+
+    private final int parallelism;
+    private final boolean asyncMode;
+    private final ForkJoinWorkerThreadFactory threadFactory;
+    private final int maxConcurrentStreams;
+
+    private PoolSettings(int parallelism, boolean asyncMode, ForkJoinWorkerThreadFactory threadFactory, int maxConcurrentStreams) {
+        this.parallelism = parallelism;
+        this.asyncMode = asyncMode;
+        this.threadFactory = threadFactory;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public static PoolSettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Number of worker threads, streams split to roughly four leaves per thread.
+     */
+    public PoolSettings withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism has to be positive, was " + parallelism);
+        }
+        return new PoolSettings(parallelism, asyncMode, threadFactory, maxConcurrentStreams);
+    }
+
+    /**
+     * Workers process their local queues in FIFO order. Suits event style tasks that are never joined,
+     * streams join their subtasks and usually run better in the default LIFO mode.
+     */
+    public PoolSettings withAsyncMode(boolean asyncMode) {
+        return new PoolSettings(parallelism, asyncMode, threadFactory, maxConcurrentStreams);
+    }
+
+    /**
+     * Factory of the worker threads, by default daemon threads named after the pool are created.
+     */
+    public PoolSettings withThreadFactory(ForkJoinWorkerThreadFactory threadFactory) {
+        return new PoolSettings(parallelism, asyncMode, requireNonNull(threadFactory), maxConcurrentStreams);
+    }
+
+    /**
+     * Streams submitted when maxConcurrentStreams streams are running wait for admission.
+     */
+    public PoolSettings withMaxConcurrentStreams(int maxConcurrentStreams) {
+        if (maxConcurrentStreams < 1) {
+            throw new IllegalArgumentException("Max concurrent streams has to be positive, was " + maxConcurrentStreams);
+        }
+        return new PoolSettings(parallelism, asyncMode, threadFactory, maxConcurrentStreams);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isAsyncMode() {
+        return asyncMode;
+    }
+
+    /**
+     * Returns the thread factory, null if the default one is used.
+     */
+    public ForkJoinWorkerThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolSettings{parallelism=" + parallelism + ", asyncMode=" + asyncMode
+            + ", maxConcurrentStreams=" + (maxConcurrentStreams == UNLIMITED ? "unlimited" : Integer.toString(maxConcurrentStreams)) + "}";
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.pool;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Named ForkJoinPool dedicated to parallel streams. A parallel stream forks its tasks to the pool of the thread
+ * that runs its terminal operation, so a stream invoked by this class never touches the common pool and a noisy
+ * stream can only starve the streams of its own pool. The calling thread just waits, unlike a caller of the common
+ * pool it does not process the tasks of the stream.
+ * <p>
+ * Admission control limits the number of streams running at the same time, the other callers wait for a permit.
+ * Streams invoked from a worker of the pool are already admitted and run directly, waiting for a permit could
+ * deadlock.
+ */
+public class StreamPool implements AutoCloseable {
+    private final String name;
+    private final PoolSettings settings;
+    private final ForkJoinPool pool;
+    private final Semaphore admission;
+    private final AtomicInteger waitingStreams = new AtomicInteger();
+    private final AtomicLong completedStreams = new AtomicLong();
+    private final AtomicLong rejectedStreams = new AtomicLong();
+
+    public StreamPool(String name) {
+        this(name, PoolSettings.defaults());
+    }
+
+    public StreamPool(String name, PoolSettings settings) {
+        this.name = requireNonNull(name);
+        this.settings = requireNonNull(settings);
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = settings.getThreadFactory() != null
+            ? settings.getThreadFactory() : new NamedWorkerThreadFactory(name);
+        this.pool = new ForkJoinPool(settings.getParallelism(), threadFactory, null, settings.isAsyncMode());
+        this.admission = new Semaphore(settings.getMaxConcurrentStreams(), true);
+    }
+
+    /**
+     * Runs the stream in the pool, waits for admission if too many streams are running.
+     * Exceptions thrown by the stream are rethrown.
+     *
+     * @param stream calculation that runs the terminal operation of a parallel stream
+     */
+    public <T> T invoke(Supplier<T> stream) throws InterruptedException {
+        if (isWorkerOfThisPool()) {
+            return stream.get();
+        }
+        waitingStreams.incrementAndGet();
+        try {
+            admission.acquire();
+        } finally {
+            waitingStreams.decrementAndGet();
+        }
+        return invokeAdmitted(stream);
+    }
+
+    /**
+     * Runs the stream in the pool if it is admitted within the timeout.
+     *
+     * @throws RejectedExecutionException if the stream was not admitted in time
+     */
+    public <T> T invoke(Supplier<T> stream, long timeout, TimeUnit unit) throws InterruptedException {
+        if (isWorkerOfThisPool()) {
+            return stream.get();
+        }
+        boolean admitted;
+        waitingStreams.incrementAndGet();
+        try {
+            admitted = admission.tryAcquire(timeout, unit);
+        } finally {
+            waitingStreams.decrementAndGet();
+        }
+        if (!admitted) {
+            rejectedStreams.incrementAndGet();
+            throw new RejectedExecutionException("Stream was not admitted to pool " + name + " in " + timeout + " " + unit);
+        }
+        return invokeAdmitted(stream);
+    }
+
+    private <T> T invokeAdmitted(Supplier<T> stream) {
+        try {
+            return pool.invoke(ForkJoinTask.adapt(stream::get));
+        } finally {
+            admission.release();
+            completedStreams.incrementAndGet();
+        }
+    }
+
+    private boolean isWorkerOfThisPool() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the pool, for example to register it to {@link net.javacrumbs.fjdemo.metrics.MetricsReporter}.
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getRunningStreams() {
+        return settings.getMaxConcurrentStreams() - admission.availablePermits();
+    }
+
+    public int getWaitingStreams() {
+        return waitingStreams.get();
+    }
+
+    public long getCompletedStreams() {
+        return completedStreams.get();
+    }
+
+    public long getRejectedStreams() {
+        return rejectedStreams.get();
+    }
+
+    /**
+     * Shuts the pool down, running streams are finished.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": running streams: " + getRunningStreams() + ", waiting: " + getWaitingStreams()
+            + ", completed: " + getCompletedStreams() + ", rejected: " + getRejectedStreams();
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.pool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that submit streams to the pools, like request handlers of a server. Platform submitters are a fixed
+ * pool of threads, requests wait in its queue when all the threads are busy. Virtual submitters start a virtual
+ * thread per request, so blocking requests do not occupy platform threads while they wait. Virtual threads need
+ * Java 21, they are created by reflection so the code still runs on Java 8.
+ */
+public enum SubmitterMode {
+    PLATFORM {
+        @Override
+        public ExecutorService newExecutor(String namePrefix, int threads) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return new ThreadPoolExecutor(threads, threads, Long.MAX_VALUE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        }
+
+        @Override
+        public boolean isSupported() {
+            return true;
+        }
+    },
+    VIRTUAL {
+        /**
+         * Starts a new virtual thread for each task, the number of threads is not limited.
+         *
+         * @throws UnsupportedOperationException if the JVM does not support virtual threads
+         */
+        @Override
+        public ExecutorService newExecutor(String namePrefix, int threads) {
+            if (!isSupported()) {
+                throw new UnsupportedOperationException("Virtual threads need Java 21 or newer, running on " + System.getProperty("java.version"));
+            }
+            try {
+                Object builder = VirtualThreads.OF_VIRTUAL.invoke(null);
+                builder = VirtualThreads.NAME.invoke(builder, namePrefix, 0L);
+                ThreadFactory threadFactory = (ThreadFactory) VirtualThreads.FACTORY.invoke(builder);
+                return (ExecutorService) VirtualThreads.NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Can not create virtual thread executor", e);
+            }
+        }
+
+        @Override
+        public boolean isSupported() {
+            return VirtualThreads.OF_VIRTUAL != null;
+        }
+    };
+
+    /**
+     * Creates executor with threads named namePrefix followed by a number.
+     *
+     * @param threads number of platform threads, ignored by modes that create a thread per task
+     */
+    public abstract ExecutorService newExecutor(String namePrefix, int threads);
+
+    public abstract boolean isSupported();
+
+    /**
+     * Methods of the virtual thread API, null if not available. In a separate class, so the lookup is done
+     * only when virtual threads are used.
+     */
+    private static class VirtualThreads {
+        private static final Method OF_VIRTUAL;
+        private static final Method NAME;
+        private static final Method FACTORY;
+        private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+        static {
+            Method ofVirtual = null;
+            Method name = null;
+            Method factory = null;
+            Method newThreadPerTaskExecutor = null;
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                // the last one, so it is null if any of the methods is missing
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                // preview API of Java 19 and 20 throws if preview features are disabled
+                ofVirtual.invoke(null);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                ofVirtual = null;
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            FACTORY = factory;
+            NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        }
+    }
+}
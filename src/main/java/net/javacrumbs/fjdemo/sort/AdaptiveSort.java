@@ -0,0 +1,76 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Picks radix or merge sort based on the size of the input and the range of the keys. Radix sort needs two passes
+ * over the data (histogram and scatter) per byte of the key range, merge sort needs about log2(n) passes, but
+ * its passes are cheaper. Small inputs are always merge sorted, the radix sort does not pay off there.
+ */
+public class AdaptiveSort implements IntSorter {
+    /**
+     * Smaller inputs are merge sorted.
+     */
+    static final int MIN_RADIX_SIZE = 1 << 16;
+    /**
+     * Estimated cost of one radix pass compared to one merge pass.
+     */
+    static final int RADIX_PASS_COST = 3;
+
+    private final SortSettings settings;
+
+    public AdaptiveSort() {
+        this(SortSettings.defaults());
+    }
+
+    public AdaptiveSort(SortSettings settings) {
+        this.settings = requireNonNull(settings);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        if (numbers.length >= MIN_RADIX_SIZE) {
+            int threshold = Math.max(settings.sequentialThreshold(numbers.length, pool.getParallelism()), 1);
+            int[] range = pool.invoke(new IntRadixSort.RangeTask(numbers, 0, numbers.length, threshold));
+            if (useRadix(numbers.length, IntRadixSort.passes(range[0], range[1]))) {
+                new IntRadixSort(settings).sort(pool, numbers, 0, numbers.length, range);
+                return;
+            }
+        }
+        new IntMergeSort(settings).sort(pool, numbers);
+    }
+
+    public void sort(ForkJoinPool pool, long[] numbers) {
+        if (numbers.length >= MIN_RADIX_SIZE) {
+            int threshold = Math.max(settings.sequentialThreshold(numbers.length, pool.getParallelism()), 1);
+            long[] range = pool.invoke(new LongRadixSort.RangeTask(numbers, 0, numbers.length, threshold));
+            if (useRadix(numbers.length, LongRadixSort.passes(range[0], range[1]))) {
+                new LongRadixSort(settings).sort(pool, numbers, 0, numbers.length, range);
+                return;
+            }
+        }
+        new LongMergeSort(settings).sort(pool, numbers);
+    }
+
+    static boolean useRadix(int size, int passes) {
+        int mergePasses = Integer.SIZE - Integer.numberOfLeadingZeros(size);
+        return passes * RADIX_PASS_COST <= mergePasses;
+    }
+}
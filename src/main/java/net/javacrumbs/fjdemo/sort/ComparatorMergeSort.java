@@ -0,0 +1,262 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+import static net.javacrumbs.fjdemo.sort.SequentialSort.INSERTION_SORT_THRESHOLD;
+
+/**
+ * Stable fork/join merge sort of object arrays and lists ordered by a Comparator. Uses the CountedCompleter
+ * structure of the demo, the halves are merged in {@link CountedCompleter#onCompletion(CountedCompleter)}.
+ * <p>
+ * Halves are sorted in place and merged back using a single scratch array shared by all tasks. A merge is skipped
+ * if the halves are already in order and elements that are already on their place are not moved at all.
+ * A fully ascending or strictly descending input is detected upfront. Together it makes sorting of nearly sorted
+ * data close to linear. The merge threshold is not used, merges are sequential.
+ */
+public class ComparatorMergeSort {
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public ComparatorMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public ComparatorMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public ComparatorMergeSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    public <T> void sort(ForkJoinPool pool, T[] items, Comparator<? super T> comparator) {
+        pool.invoke(createTask(items, 0, items.length, comparator, pool.getParallelism()));
+    }
+
+    /**
+     * Sorts the list, elements are copied to an array, sorted and written back.
+     */
+    public <T> void sort(ForkJoinPool pool, List<T> list, Comparator<? super T> comparator) {
+        @SuppressWarnings("unchecked")
+        T[] items = (T[]) list.toArray();
+        sort(pool, items, comparator);
+        ListIterator<T> iterator = list.listIterator();
+        for (T item : items) {
+            iterator.next();
+            iterator.set(item);
+        }
+    }
+
+    public <T> ForkJoinTask<Void> createTask(T[] items, int from, int to, Comparator<? super T> comparator, int parallelism) {
+        checkRange(items.length, from, to);
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        return new SortTask<>(null, items, new Object[to - from], from, requireNonNull(comparator), threshold, from, to, 0);
+    }
+
+    /**
+     * Sorts the range sequentially by the same algorithm the tasks use.
+     */
+    static <T> void sortSequentially(T[] items, Object[] scratch, int offset, int from, int to, Comparator<? super T> comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            binaryInsertionSort(items, from, to, comparator);
+            return;
+        }
+        int middle = from + (to - from) / 2;
+        sortSequentially(items, scratch, offset, from, middle, comparator);
+        sortSequentially(items, scratch, offset, middle, to, comparator);
+        merge(items, scratch, offset, from, middle, to, comparator);
+    }
+
+    /**
+     * Stable merge of sorted ranges [from, middle) and [middle, to). Only the part of the left range that is not
+     * on its place is copied to the scratch array (at the same position shifted by offset).
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void merge(T[] items, Object[] scratch, int offset, int from, int middle, int to, Comparator<? super T> comparator) {
+        if (comparator.compare(items[middle - 1], items[middle]) <= 0) {
+            return;
+        }
+        // left elements not bigger than the first right element and right elements not smaller
+        // than the last left element are already on their place
+        from = upperBound(items, from, middle, items[middle], comparator);
+        to = lowerBound(items, middle, to, items[middle - 1], comparator);
+
+        System.arraycopy(items, from, scratch, from - offset, middle - from);
+        int i = from - offset, end = middle - offset, j = middle, idx = from;
+        while (i < end && j < to) {
+            if (comparator.compare((T) scratch[i], items[j]) <= 0) {
+                items[idx++] = (T) scratch[i++];
+            } else {
+                items[idx++] = items[j++];
+            }
+        }
+        // rest of the right range is already on its place
+        System.arraycopy(scratch, i, items, idx, end - i);
+    }
+
+    /**
+     * Returns index of the first element in sorted range from-to that is not smaller than value.
+     */
+    private static <T> int lowerBound(T[] items, int from, int to, T value, Comparator<? super T> comparator) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (comparator.compare(items[middle], value) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Returns index of the first element in sorted range from-to that is bigger than value.
+     */
+    private static <T> int upperBound(T[] items, int from, int to, T value, Comparator<? super T> comparator) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (comparator.compare(items[middle], value) <= 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private static <T> void binaryInsertionSort(T[] items, int from, int to, Comparator<? super T> comparator) {
+        for (int i = from + 1; i < to; i++) {
+            T item = items[i];
+            int position = upperBound(items, from, i, item, comparator);
+            System.arraycopy(items, position, items, position + 1, i - position);
+            items[position] = item;
+        }
+    }
+
+    /**
+     * Returns true if the range was sorted already, reverses it if it's strictly descending.
+     */
+    private static <T> boolean handleSortedRange(T[] items, int from, int to, Comparator<? super T> comparator) {
+        if (to - from < 2) {
+            return true;
+        }
+        int i = from + 1;
+        if (comparator.compare(items[i], items[from]) < 0) {
+            // only a strictly descending run can be reversed without breaking stability
+            while (i < to && comparator.compare(items[i], items[i - 1]) < 0) {
+                i++;
+            }
+            if (i == to) {
+                reverse(items, from, to);
+                return true;
+            }
+        } else {
+            while (i < to && comparator.compare(items[i], items[i - 1]) >= 0) {
+                i++;
+            }
+            return i == to;
+        }
+        return false;
+    }
+
+    private static void reverse(Object[] items, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            Object tmp = items[i];
+            items[i] = items[j];
+            items[j] = tmp;
+        }
+    }
+
+    private class SortTask<T> extends CountedCompleter<Void> {
+        private static final long serialVersionUID = -8177414335093628571L;
+
+        private final T[] items;
+        private final Object[] scratch;
+        /**
+         * Index i of items corresponds to index i - offset of scratch.
+         */
+        private final int offset;
+        private final Comparator<? super T> comparator;
+        private final int threshold;
+        private final int from;
+        private final int middle;
+        private final int to;
+        private final int depth;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(SortTask<T> completer, T[] items, Object[] scratch, int offset, Comparator<? super T> comparator,
+                         int threshold, int from, int to, int depth) {
+            super(completer);
+            this.items = items;
+            this.scratch = scratch;
+            this.offset = offset;
+            this.comparator = comparator;
+            this.threshold = threshold;
+            this.from = from;
+            this.middle = from + (to - from) / 2;
+            this.to = to;
+            this.depth = depth;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        public void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (depth == 0 && handleSortedRange(items, from, to, comparator)) {
+                observer.taskFinished(depth, from, to);
+                tryComplete();
+            } else if (to - from <= threshold) {
+                sortSequentially(items, scratch, offset, from, to, comparator);
+                observer.taskFinished(depth, from, to);
+                tryComplete();
+            } else {
+                SortTask<T> taskLeft = new SortTask<>(this, items, scratch, offset, comparator, threshold, from, middle, depth + 1);
+                SortTask<T> taskRight = new SortTask<>(this, items, scratch, offset, comparator, threshold, middle, to, depth + 1);
+                observer.taskWaiting(depth, from, to);
+                setPendingCount(1);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+            }
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (caller != this) {
+                observer.mergeStarted(depth, from, to);
+                merge(items, scratch, offset, from, middle, to, comparator);
+                observer.taskFinished(depth, from, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Random;
+
+/**
+ * Shapes of input data for benchmarks and test runs.
+ */
+public enum Distribution {
+    RANDOM {
+        @Override
+        int value(Random random, int index, int size) {
+            return random.nextInt();
+        }
+    },
+    SORTED {
+        @Override
+        int value(Random random, int index, int size) {
+            return index;
+        }
+    },
+    /**
+     * Same data as used by the visual demos.
+     */
+    REVERSED {
+        @Override
+        int value(Random random, int index, int size) {
+            return size - index;
+        }
+    },
+    FEW_UNIQUES {
+        @Override
+        int value(Random random, int index, int size) {
+            return random.nextInt(FEW_UNIQUES_COUNT);
+        }
+    };
+
+    private static final int FEW_UNIQUES_COUNT = 16;
+
+    abstract int value(Random random, int index, int size);
+
+    /**
+     * Generates size numbers, the same seed always generates the same data.
+     */
+    public int[] ints(int size, long seed) {
+        Random random = new Random(seed);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = value(random, i, size);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import static net.javacrumbs.fjdemo.sort.SinglePivotPartitioner.swap;
+
+/**
+ * Dual pivot partitioning into elements smaller than the first pivot, elements between the pivots
+ * and elements bigger than the second pivot.
+ */
+class DualPivotPartitioner implements IntPartitioner {
+    @Override
+    public int partition(int[] numbers, int from, int to, int[] ranges) {
+        int last = to - 1;
+        int third = (to - from) / 3;
+        swap(numbers, from, from + third);
+        swap(numbers, last, last - third);
+        if (numbers[from] > numbers[last]) {
+            swap(numbers, from, last);
+        }
+        int pivot1 = numbers[from];
+        int pivot2 = numbers[last];
+
+        int less = from + 1;
+        int great = last - 1;
+        for (int k = less; k <= great; k++) {
+            if (numbers[k] < pivot1) {
+                swap(numbers, k, less++);
+            } else if (numbers[k] > pivot2) {
+                while (numbers[great] > pivot2 && k < great) {
+                    great--;
+                }
+                swap(numbers, k, great--);
+                if (numbers[k] < pivot1) {
+                    swap(numbers, k, less++);
+                }
+            }
+        }
+        less--;
+        great++;
+        swap(numbers, from, less);
+        swap(numbers, last, great);
+
+        int count = 0;
+        ranges[count++] = from;
+        ranges[count++] = less;
+        if (pivot1 < pivot2) {
+            // if pivots are equal, all the elements between them are equal too
+            ranges[count++] = less + 1;
+            ranges[count++] = great;
+        }
+        ranges[count++] = great + 1;
+        ranges[count++] = to;
+        return count / 2;
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts binary files of fixed width numbers that do not fit to the heap.
+ * <p>
+ * The input is read by memory mapped chunks of chunkSize numbers, every chunk is sorted by the fork/join
+ * merge sort and written to a temporary file (a run). Runs are then merged by a {@link LoserTree} into the output
+ * file. Files are accessed through mapped windows, so the data are copied only between the page cache and the
+ * chunk array. Only one chunk array is allocated, the heap needs to hold chunkSize numbers plus the sort scratch buffer.
+ * <p>
+ * Mapped buffers are released by the garbage collector, on some platforms it prevents immediate removal of the
+ * temporary files.
+ */
+public class ExternalSort {
+    /**
+     * Size of the mapped window of every run and of the output during the merge.
+     */
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 20;
+
+    public enum Format {
+        INT(Integer.BYTES) {
+            @Override
+            Chunk newChunk(int capacity, SortSettings settings) {
+                return new IntChunk(capacity, settings);
+            }
+
+            @Override
+            long get(ByteBuffer buffer) {
+                return buffer.getInt();
+            }
+
+            @Override
+            void put(ByteBuffer buffer, long value) {
+                buffer.putInt((int) value);
+            }
+        },
+        LONG(Long.BYTES) {
+            @Override
+            Chunk newChunk(int capacity, SortSettings settings) {
+                return new LongChunk(capacity, settings);
+            }
+
+            @Override
+            long get(ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+
+            @Override
+            void put(ByteBuffer buffer, long value) {
+                buffer.putLong(value);
+            }
+        };
+
+        private final int width;
+
+        Format(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        abstract Chunk newChunk(int capacity, SortSettings settings);
+
+        abstract long get(ByteBuffer buffer);
+
+        abstract void put(ByteBuffer buffer, long value);
+    }
+
+    private final Format format;
+    private final ByteOrder byteOrder;
+    private final int chunkSize;
+    private final Path tempDirectory;
+    private final SortSettings settings;
+
+    /**
+     * Big endian numbers, temporary files are created in the default temporary directory.
+     */
+    public ExternalSort(Format format, int chunkSize) {
+        this(format, ByteOrder.BIG_ENDIAN, chunkSize, null, SortSettings.defaults());
+    }
+
+    /**
+     * @param chunkSize     number of elements sorted in memory at once
+     * @param tempDirectory directory for the runs, null for the default temporary directory
+     */
+    public ExternalSort(Format format, ByteOrder byteOrder, int chunkSize, Path tempDirectory, SortSettings settings) {
+        if (chunkSize <= 0 || (long) chunkSize * format.getWidth() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Chunk has to be bigger than zero and smaller than 2GB, was " + chunkSize);
+        }
+        this.format = requireNonNull(format);
+        this.byteOrder = requireNonNull(byteOrder);
+        this.chunkSize = chunkSize;
+        this.tempDirectory = tempDirectory;
+        this.settings = requireNonNull(settings);
+    }
+
+    /**
+     * Sorts numbers from input file to output file. Output is overwritten.
+     */
+    public void sort(ForkJoinPool pool, Path input, Path output) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try {
+            try (FileChannel in = FileChannel.open(input, READ)) {
+                long size = in.size();
+                if (size % format.getWidth() != 0) {
+                    throw new IllegalArgumentException("Size of " + input + " is not a multiple of " + format.getWidth());
+                }
+                if (size <= (long) chunkSize * format.getWidth()) {
+                    // fits to one chunk, no need to merge
+                    sortChunk(pool, in, 0, size, output);
+                    return;
+                }
+                Chunk chunk = format.newChunk(chunkSize, settings);
+                long chunkBytes = (long) chunkSize * format.getWidth();
+                for (long position = 0; position < size; position += chunkBytes) {
+                    Path run = tempDirectory != null ? Files.createTempFile(tempDirectory, "fj-sort-run", ".bin")
+                        : Files.createTempFile("fj-sort-run", ".bin");
+                    runs.add(run);
+                    sortChunk(pool, chunk, in, position, Math.min(chunkBytes, size - position), run);
+                }
+            }
+            merge(runs, output);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private void sortChunk(ForkJoinPool pool, FileChannel in, long position, long length, Path target) throws IOException {
+        sortChunk(pool, format.newChunk((int) (length / format.getWidth()), settings), in, position, length, target);
+    }
+
+    private void sortChunk(ForkJoinPool pool, Chunk chunk, FileChannel in, long position, long length, Path target) throws IOException {
+        int count = (int) (length / format.getWidth());
+        chunk.load(in.map(READ_ONLY, position, length).order(byteOrder), count);
+        chunk.sort(pool, count);
+        try (FileChannel out = FileChannel.open(target, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            chunk.store(out.map(READ_WRITE, 0, length).order(byteOrder), count);
+        }
+    }
+
+    private void merge(List<Path> runPaths, Path output) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            MappedRun[] runs = new MappedRun[runPaths.size()];
+            long size = 0;
+            for (int i = 0; i < runs.length; i++) {
+                FileChannel channel = FileChannel.open(runPaths.get(i), READ);
+                channels.add(channel);
+                runs[i] = new MappedRun(channel);
+                size += channel.size();
+            }
+            LoserTree tree = new LoserTree(runs);
+            try (FileChannel out = FileChannel.open(output, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                long position = 0;
+                MappedByteBuffer window = null;
+                while (!tree.isExhausted()) {
+                    if (window == null || !window.hasRemaining()) {
+                        window = map(out, READ_WRITE, position, size);
+                        position += window.capacity();
+                    }
+                    format.put(window, tree.min());
+                    tree.advance();
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+        long windowSize = DEFAULT_WINDOW_SIZE - DEFAULT_WINDOW_SIZE % format.getWidth();
+        MappedByteBuffer buffer = channel.map(mode, position, Math.min(windowSize, size - position));
+        buffer.order(byteOrder);
+        return buffer;
+    }
+
+    /**
+     * Sorted run read through a sliding mapped window.
+     */
+    private class MappedRun implements LoserTree.Run {
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+        private MappedByteBuffer window;
+        private long current;
+        private boolean exhausted;
+
+        private MappedRun(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            advance();
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return exhausted;
+        }
+
+        @Override
+        public long current() {
+            return current;
+        }
+
+        @Override
+        public void advance() {
+            if (window == null || !window.hasRemaining()) {
+                if (position >= size) {
+                    exhausted = true;
+                    return;
+                }
+                try {
+                    window = map(channel, READ_ONLY, position, size);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Can not read run", e);
+                }
+                position += window.capacity();
+            }
+            current = format.get(window);
+        }
+    }
+
+    /**
+     * Reusable in-memory buffer for one chunk.
+     */
+    interface Chunk {
+        void load(ByteBuffer buffer, int count);
+
+        void sort(ForkJoinPool pool, int count);
+
+        void store(ByteBuffer buffer, int count);
+    }
+
+    private static class IntChunk implements Chunk {
+        private final int[] numbers;
+        private final IntMergeSort sort;
+
+        private IntChunk(int capacity, SortSettings settings) {
+            this.numbers = new int[capacity];
+            this.sort = new IntMergeSort(settings);
+        }
+
+        @Override
+        public void load(ByteBuffer buffer, int count) {
+            buffer.asIntBuffer().get(numbers, 0, count);
+        }
+
+        @Override
+        public void sort(ForkJoinPool pool, int count) {
+            sort.sort(pool, numbers, 0, count);
+        }
+
+        @Override
+        public void store(ByteBuffer buffer, int count) {
+            buffer.asIntBuffer().put(numbers, 0, count);
+        }
+    }
+
+    private static class LongChunk implements Chunk {
+        private final long[] numbers;
+        private final LongMergeSort sort;
+
+        private LongChunk(int capacity, SortSettings settings) {
+            this.numbers = new long[capacity];
+            this.sort = new LongMergeSort(settings);
+        }
+
+        @Override
+        public void load(ByteBuffer buffer, int count) {
+            buffer.asLongBuffer().get(numbers, 0, count);
+        }
+
+        @Override
+        public void sort(ForkJoinPool pool, int count) {
+            sort.sort(pool, numbers, 0, count);
+        }
+
+        @Override
+        public void store(ByteBuffer buffer, int count) {
+            buffer.asLongBuffer().put(numbers, 0, count);
+        }
+    }
+}
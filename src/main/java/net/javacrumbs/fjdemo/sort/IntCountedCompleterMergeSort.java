@@ -0,0 +1,137 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.sortLeaf;
+
+/**
+ * Headless counterpart of the CountedCompleter merge sort demo. Works on index ranges with a single scratch
+ * buffer like {@link IntMergeSort}, but tasks do not wait for their subtasks. The merge is done in
+ * {@link CountedCompleter#onCompletion(CountedCompleter)} by the thread that finished the last subtask.
+ */
+public class IntCountedCompleterMergeSort implements IntSorter {
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public IntCountedCompleterMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public IntCountedCompleterMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public IntCountedCompleterMergeSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, int[] numbers, int from, int to) {
+        pool.invoke(createTask(numbers, from, to, pool.getParallelism()));
+    }
+
+    /**
+     * Creates task that sorts range from (inclusive) to (exclusive) of the array in place
+     * in a pool with given parallelism.
+     */
+    public ForkJoinTask<Void> createTask(int[] numbers, int from, int to, int parallelism) {
+        checkRange(numbers.length, from, to);
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        int mergeThreshold = Math.max(settings.mergeThreshold(to - from, parallelism), 2);
+        return new SortTask(null, numbers, new int[to - from], from, threshold, mergeThreshold, from, to, 0, false);
+    }
+
+    private class SortTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 3049271722946011622L;
+
+        private final int[] numbers;
+        private final int[] scratch;
+        private final int offset;
+        private final int threshold;
+        private final int mergeThreshold;
+        private final int from;
+        private final int middle;
+        private final int to;
+        private final int depth;
+        private final boolean toScratch;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(SortTask completer, int[] numbers, int[] scratch, int offset, int threshold, int mergeThreshold,
+                         int from, int to, int depth, boolean toScratch) {
+            super(completer);
+            this.numbers = numbers;
+            this.scratch = scratch;
+            this.offset = offset;
+            this.threshold = threshold;
+            this.mergeThreshold = mergeThreshold;
+            this.from = from;
+            this.middle = from + (to - from) / 2;
+            this.to = to;
+            this.depth = depth;
+            this.toScratch = toScratch;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        public void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                sortLeaf(numbers, scratch, offset, from, to, toScratch);
+                observer.taskFinished(depth, from, to);
+                tryComplete();
+            } else {
+                SortTask taskLeft = new SortTask(this, numbers, scratch, offset, threshold, mergeThreshold, from, middle, depth + 1, !toScratch);
+                SortTask taskRight = new SortTask(this, numbers, scratch, offset, threshold, mergeThreshold, middle, to, depth + 1, !toScratch);
+                observer.taskWaiting(depth, from, to);
+                setPendingCount(1);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+            }
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (caller != this) {
+                observer.mergeStarted(depth, from, to);
+                if (toScratch) {
+                    new IntMergeSort.MergeTask(numbers, from, middle, middle, to, scratch, from - offset, mergeThreshold).invoke();
+                } else {
+                    new IntMergeSort.MergeTask(scratch, from - offset, middle - offset, middle - offset, to - offset, numbers, from, mergeThreshold).invoke();
+                }
+                observer.taskFinished(depth, from, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Headless fork/join merge sort of int arrays. Unlike the visual demos it does not copy the halves, tasks work on
+ * index ranges of the sorted array and share one scratch buffer allocated upfront. Levels of the task tree alternate
+ * between the array and the scratch buffer (ping-pong merging) so every merge is a single pass without copying back.
+ * <p>
+ * Ranges smaller than the sequential threshold from {@link SortSettings} are sorted by {@link SequentialSort}.
+ * Merges bigger than the merge threshold are split into parallel subtasks, so the merges close to the root
+ * do not run on a single thread while the rest of the pool is idle.
+ */
+public class IntMergeSort implements IntSorter {
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public IntMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public IntMergeSort(SortObserver observer) {
+        this(SortSettings.defaults(), observer);
+    }
+
+    public IntMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public IntMergeSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, int[] numbers, int from, int to) {
+        pool.invoke(createTask(numbers, from, to, pool.getParallelism()));
+    }
+
+    /**
+     * Creates task that sorts range from (inclusive) to (exclusive) of the array in place.
+     * Automatic thresholds are derived from the parallelism of the common pool.
+     */
+    public ForkJoinTask<Void> createTask(int[] numbers, int from, int to) {
+        return createTask(numbers, from, to, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Creates task that sorts range from (inclusive) to (exclusive) of the array in place
+     * in a pool with given parallelism.
+     */
+    public ForkJoinTask<Void> createTask(int[] numbers, int from, int to, int parallelism) {
+        checkRange(numbers.length, from, to);
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        // merge of two single elements can not be split any further
+        int mergeThreshold = Math.max(settings.mergeThreshold(to - from, parallelism), 2);
+        return new SortTask(numbers, new int[to - from], from, threshold, mergeThreshold, from, to, 0, false);
+    }
+
+    static void checkRange(int length, int from, int to) {
+        if (from < 0 || from > to || to > length) {
+            throw new ArrayIndexOutOfBoundsException("Invalid range " + from + "-" + to + " of array of length " + length);
+        }
+    }
+
+    /**
+     * Merges sorted runs src[from1, to1) and src[from2, to2) into dst starting at index dstFrom.
+     * Elements of the first run go first if equal.
+     */
+    static void merge(int[] src, int from1, int to1, int from2, int to2, int[] dst, int dstFrom) {
+        int i = from1, j = from2, idx = dstFrom;
+        while (i < to1 && j < to2) {
+            if (src[i] <= src[j]) {
+                dst[idx++] = src[i++];
+            } else {
+                dst[idx++] = src[j++];
+            }
+        }
+        if (i < to1) {
+            System.arraycopy(src, i, dst, idx, to1 - i);
+        } else {
+            System.arraycopy(src, j, dst, idx, to2 - j);
+        }
+    }
+
+    /**
+     * Returns index of the first element in sorted range from-to that is not smaller than value.
+     */
+    static int lowerBound(int[] numbers, int from, int to, int value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (numbers[middle] < value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Returns index of the first element in sorted range from-to that is bigger than value.
+     */
+    static int upperBound(int[] numbers, int from, int to, int value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (numbers[middle] <= value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Splits sorted runs src[from1, to1) and src[from2, to2) into two pairs that can be merged independently.
+     * The longer run is split in the middle, the position of the middle element in the other run is found
+     * by binary search. Returns the split index of the first run in the upper and of the second run in the lower
+     * 32 bits.
+     */
+    static long splitRuns(int[] src, int from1, int to1, int from2, int to2) {
+        int split1, split2;
+        if (to1 - from1 >= to2 - from2) {
+            split1 = (from1 + to1) >>> 1;
+            split2 = lowerBound(src, from2, to2, src[split1]);
+        } else {
+            split2 = (from2 + to2) >>> 1;
+            split1 = upperBound(src, from1, to1, src[split2]);
+        }
+        return ((long) split1 << 32) | split2;
+    }
+
+    /**
+     * Returns true if the runs are merged by a single thread.
+     */
+    static boolean isSequentialMerge(int length1, int length2, int threshold) {
+        return length1 + length2 <= threshold || length1 == 0 || length2 == 0;
+    }
+
+    /**
+     * Sorts leaf range from-to of numbers sequentially, copying it to the scratch buffer first if toScratch.
+     * Index i of numbers corresponds to index i - offset of scratch.
+     */
+    static void sortLeaf(int[] numbers, int[] scratch, int offset, int from, int to, boolean toScratch) {
+        int[] target = numbers;
+        int lo = from;
+        if (toScratch) {
+            System.arraycopy(numbers, from, scratch, from - offset, to - from);
+            target = scratch;
+            lo = from - offset;
+        }
+        SequentialSort.sort(target, lo, lo + to - from);
+    }
+
+    /**
+     * Merges two sorted runs in parallel. The longer run is split in the middle, the position of the middle
+     * element in the other run is found by binary search and both halves are merged as independent subtasks.
+     */
+    static class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = -2370180612410985416L;
+
+        private final int[] src;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final int[] dst;
+        private final int dstFrom;
+        private final int threshold;
+
+        MergeTask(int[] src, int from1, int to1, int from2, int to2, int[] dst, int dstFrom, int threshold) {
+            this.src = src;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (isSequentialMerge(to1 - from1, to2 - from2, threshold)) {
+                merge(src, from1, to1, from2, to2, dst, dstFrom);
+                return;
+            }
+            long split = splitRuns(src, from1, to1, from2, to2);
+            int split1 = (int) (split >>> 32);
+            int split2 = (int) split;
+            int dstSplit = dstFrom + (split1 - from1) + (split2 - from2);
+            MergeTask taskLeft = new MergeTask(src, from1, split1, from2, split2, dst, dstFrom, threshold);
+            MergeTask taskRight = new MergeTask(src, split1, to1, split2, to2, dst, dstSplit, threshold);
+            taskRight.fork();
+            taskLeft.compute();
+            taskRight.join();
+        }
+    }
+
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 5386468012853785409L;
+
+        private final int[] numbers;
+        private final int[] scratch;
+        /**
+         * Index i of numbers corresponds to index i - offset of scratch.
+         */
+        private final int offset;
+        private final int threshold;
+        private final int mergeThreshold;
+        private final int from;
+        private final int to;
+        private final int depth;
+        /**
+         * If true, the sorted range is written to the scratch buffer instead of numbers.
+         */
+        private final boolean toScratch;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(int[] numbers, int[] scratch, int offset, int threshold, int mergeThreshold,
+                         int from, int to, int depth, boolean toScratch) {
+            this.numbers = numbers;
+            this.scratch = scratch;
+            this.offset = offset;
+            this.threshold = threshold;
+            this.mergeThreshold = mergeThreshold;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.toScratch = toScratch;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                sortLeaf(numbers, scratch, offset, from, to, toScratch);
+            } else {
+                int middle = from + (to - from) / 2;
+                // children write to the other buffer, we merge them back to our target
+                SortTask taskLeft = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, from, middle, depth + 1, !toScratch);
+                SortTask taskRight = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, middle, to, depth + 1, !toScratch);
+                observer.taskWaiting(depth, from, to);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+                taskRight.join();
+                observer.mergeStarted(depth, from, to);
+                if (toScratch) {
+                    new MergeTask(numbers, from, middle, middle, to, scratch, from - offset, mergeThreshold).compute();
+                } else {
+                    new MergeTask(scratch, from - offset, middle - offset, middle - offset, to - offset, numbers, from, mergeThreshold).compute();
+                }
+            }
+            observer.taskFinished(depth, from, to);
+        }
+    }
+}
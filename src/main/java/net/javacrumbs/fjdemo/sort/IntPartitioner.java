@@ -0,0 +1,45 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+/**
+ * Partitions a range of an int array for quicksort. Partitioning rearranges the range in place and reports
+ * sub-ranges that still need to be sorted, elements outside of them are already on their final place.
+ */
+public interface IntPartitioner {
+    /**
+     * Classic single pivot Hoare partitioning with median of three pivot.
+     */
+    IntPartitioner SINGLE_PIVOT = new SinglePivotPartitioner();
+
+    /**
+     * Yaroslavskiy's dual pivot partitioning with pivots taken from tertiles, same as used by Arrays.sort.
+     */
+    IntPartitioner DUAL_PIVOT = new DualPivotPartitioner();
+
+    /**
+     * Maximal number of ranges returned by any partitioner.
+     */
+    int MAX_RANGES = 3;
+
+    /**
+     * Partitions range from (inclusive) to (exclusive) that has at least three elements.
+     *
+     * @param ranges array of 2 * MAX_RANGES ints, start and end of every resulting range is stored here
+     * @return number of ranges stored
+     */
+    int partition(int[] numbers, int from, int to, int[] ranges);
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+
+/**
+ * Fork/join introsort. The range is partitioned in place by an {@link IntPartitioner} and the resulting ranges
+ * are sorted by subtasks, so unlike the merge sort it does not need any scratch memory. Ranges not bigger than
+ * the sequential threshold are sorted by {@link SequentialSort}. If partitioning gets too deep because of bad
+ * pivots, the range is heap sorted, which keeps the worst case at O(n log n).
+ */
+public class IntQuickSort implements IntSorter {
+    private final SortSettings settings;
+    private final IntPartitioner partitioner;
+    private final SortObserver observer;
+
+    public IntQuickSort() {
+        this(SortSettings.defaults());
+    }
+
+    public IntQuickSort(SortSettings settings) {
+        this(settings, IntPartitioner.DUAL_PIVOT);
+    }
+
+    public IntQuickSort(SortSettings settings, IntPartitioner partitioner) {
+        this(settings, partitioner, SortObserver.NONE);
+    }
+
+    public IntQuickSort(SortSettings settings, IntPartitioner partitioner, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.partitioner = requireNonNull(partitioner);
+        this.observer = requireNonNull(observer);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, int[] numbers, int from, int to) {
+        pool.invoke(createTask(numbers, from, to, pool.getParallelism()));
+    }
+
+    public ForkJoinTask<Void> createTask(int[] numbers, int from, int to, int parallelism) {
+        checkRange(numbers.length, from, to);
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 2);
+        int depthLimit = 2 * (Integer.SIZE - Integer.numberOfLeadingZeros(to - from));
+        return new SortTask(numbers, threshold, depthLimit, from, to, 0);
+    }
+
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = -3716839580163452731L;
+
+        private final int[] numbers;
+        private final int threshold;
+        private final int depthLimit;
+        private final int from;
+        private final int to;
+        private final int depth;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(int[] numbers, int threshold, int depthLimit, int from, int to, int depth) {
+            this.numbers = numbers;
+            this.threshold = threshold;
+            this.depthLimit = depthLimit;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                SequentialSort.sort(numbers, from, to);
+            } else if (depth >= depthLimit) {
+                SequentialSort.heapSort(numbers, from, to);
+            } else {
+                int[] ranges = new int[2 * IntPartitioner.MAX_RANGES];
+                int count = partitioner.partition(numbers, from, to, ranges);
+                List<SortTask> tasks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    // ranges with a single element are sorted already
+                    if (ranges[2 * i + 1] - ranges[2 * i] > 1) {
+                        tasks.add(new SortTask(numbers, threshold, depthLimit, ranges[2 * i], ranges[2 * i + 1], depth + 1));
+                    }
+                }
+                observer.taskWaiting(depth, from, to);
+                // the first range is sorted by this thread, the others are forked
+                for (int i = tasks.size() - 1; i > 0; i--) {
+                    SortTask task = tasks.get(i);
+                    task.forkedBy = Thread.currentThread();
+                    observer.taskForked(task.depth, task.from, task.to);
+                    task.fork();
+                }
+                if (!tasks.isEmpty()) {
+                    tasks.get(0).compute();
+                }
+                for (int i = 1; i < tasks.size(); i++) {
+                    tasks.get(i).join();
+                }
+            }
+            observer.taskFinished(depth, from, to);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+
+/**
+ * Fork/join LSD radix sort of int arrays. Needs O(n * passes) work instead of O(n log n) of the merge sort.
+ * <p>
+ * The array is cut into blocks of the sequential threshold size. Every pass computes a histogram of one byte
+ * per block in parallel, the histograms are combined by a parallel prefix sum into the target position of every
+ * (digit, block) pair, and every block then scatters its numbers to the scratch buffer in parallel. Numbers are
+ * sorted by their distance from the minimum, so a narrow key range needs less than four passes and passes where
+ * all the numbers have the same digit are skipped.
+ */
+public class IntRadixSort implements IntSorter {
+    static final int RADIX_BITS = 8;
+    static final int RADIX = 1 << RADIX_BITS;
+    private static final int MASK = RADIX - 1;
+
+    private final SortSettings settings;
+
+    public IntRadixSort() {
+        this(SortSettings.defaults());
+    }
+
+    public IntRadixSort(SortSettings settings) {
+        this.settings = requireNonNull(settings);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, int[] numbers, int from, int to) {
+        checkRange(numbers.length, from, to);
+        int blockSize = Math.max(settings.sequentialThreshold(to - from, pool.getParallelism()), 1);
+        pool.invoke(new SortTask(numbers, from, to, blockSize, null));
+    }
+
+    /**
+     * Sorts numbers knowing their minimum and maximum.
+     */
+    void sort(ForkJoinPool pool, int[] numbers, int from, int to, int[] range) {
+        checkRange(numbers.length, from, to);
+        int blockSize = Math.max(settings.sequentialThreshold(to - from, pool.getParallelism()), 1);
+        pool.invoke(new SortTask(numbers, from, to, blockSize, range));
+    }
+
+    /**
+     * Returns number of radix passes needed to sort numbers from min to max.
+     */
+    static int passes(int min, int max) {
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(max - min);
+        return (bits + RADIX_BITS - 1) / RADIX_BITS;
+    }
+
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 2711458920437714212L;
+
+        private final int[] numbers;
+        private final int from;
+        private final int to;
+        private final int blockSize;
+        private final int blocks;
+        private int[] range;
+
+        private SortTask(int[] numbers, int from, int to, int blockSize, int[] range) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+            this.blockSize = blockSize;
+            this.blocks = (int) (((long) to - from + blockSize - 1) / blockSize);
+            this.range = range;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2) {
+                return;
+            }
+            if (range == null) {
+                range = new RangeTask(numbers, from, to, blockSize).compute();
+            }
+            int min = range[0];
+            int passes = passes(min, range[1]);
+
+            int[] src = numbers;
+            int srcFrom = from;
+            int[] dst = new int[to - from];
+            int dstFrom = 0;
+            int[] counts = new int[RADIX * blocks];
+            for (int pass = 0; pass < passes; pass++) {
+                int shift = pass * RADIX_BITS;
+                Arrays.fill(counts, 0);
+                new HistogramTask(src, srcFrom, to - from, blockSize, min, shift, counts, blocks, 0, blocks).compute();
+                if (isSingleDigit(counts, to - from)) {
+                    continue;
+                }
+                // counts are indexed by digit * blocks + block, so the prefix sum is the end position of every block's digit
+                Arrays.parallelPrefix(counts, Integer::sum);
+                new ScatterTask(src, srcFrom, to - from, blockSize, min, shift, counts, blocks, dst, dstFrom, 0, blocks).compute();
+
+                int[] tmp = src;
+                src = dst;
+                dst = tmp;
+                int tmpFrom = srcFrom;
+                srcFrom = dstFrom;
+                dstFrom = tmpFrom;
+            }
+            if (src != numbers) {
+                System.arraycopy(src, srcFrom, numbers, from, to - from);
+            }
+        }
+
+        private boolean isSingleDigit(int[] counts, int size) {
+            for (int digit = 0; digit < RADIX; digit++) {
+                int total = 0;
+                for (int block = 0; block < blocks; block++) {
+                    total += counts[digit * blocks + block];
+                }
+                if (total == size) {
+                    return true;
+                } else if (total != 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Computes minimum and maximum.
+     */
+    static class RangeTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = -3419226590118612208L;
+
+        private final int[] numbers;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeTask(int[] numbers, int from, int to, int threshold) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= threshold) {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int i = from; i < to; i++) {
+                    min = Math.min(min, numbers[i]);
+                    max = Math.max(max, numbers[i]);
+                }
+                return new int[]{min, max};
+            }
+            int middle = from + (to - from) / 2;
+            RangeTask taskLeft = new RangeTask(numbers, from, middle, threshold);
+            RangeTask taskRight = new RangeTask(numbers, middle, to, threshold);
+            taskRight.fork();
+            int[] left = taskLeft.compute();
+            int[] right = taskRight.join();
+            return new int[]{Math.min(left[0], right[0]), Math.max(left[1], right[1])};
+        }
+    }
+
+    /**
+     * Counts digits of blocks firstBlock .. lastBlock - 1.
+     */
+    private static class HistogramTask extends RecursiveAction {
+        private static final long serialVersionUID = -6188329472981374105L;
+
+        private final int[] numbers;
+        private final int from;
+        private final int size;
+        private final int blockSize;
+        private final int min;
+        private final int shift;
+        private final int[] counts;
+        private final int blocks;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        private HistogramTask(int[] numbers, int from, int size, int blockSize, int min, int shift,
+                              int[] counts, int blocks, int firstBlock, int lastBlock) {
+            this.numbers = numbers;
+            this.from = from;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.min = min;
+            this.shift = shift;
+            this.counts = counts;
+            this.blocks = blocks;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock == 1) {
+                int start = from + firstBlock * blockSize;
+                int end = from + (int) Math.min((long) lastBlock * blockSize, size);
+                for (int i = start; i < end; i++) {
+                    counts[(((numbers[i] - min) >>> shift) & MASK) * blocks + firstBlock]++;
+                }
+                return;
+            }
+            int middle = (firstBlock + lastBlock) >>> 1;
+            invokeAll(new HistogramTask(numbers, from, size, blockSize, min, shift, counts, blocks, firstBlock, middle),
+                new HistogramTask(numbers, from, size, blockSize, min, shift, counts, blocks, middle, lastBlock));
+        }
+    }
+
+    /**
+     * Moves numbers of blocks firstBlock .. lastBlock - 1 to their positions in dst.
+     */
+    private static class ScatterTask extends RecursiveAction {
+        private static final long serialVersionUID = 7781020567335260147L;
+
+        private final int[] src;
+        private final int srcFrom;
+        private final int size;
+        private final int blockSize;
+        private final int min;
+        private final int shift;
+        private final int[] ends;
+        private final int blocks;
+        private final int[] dst;
+        private final int dstFrom;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        private ScatterTask(int[] src, int srcFrom, int size, int blockSize, int min, int shift, int[] ends, int blocks,
+                            int[] dst, int dstFrom, int firstBlock, int lastBlock) {
+            this.src = src;
+            this.srcFrom = srcFrom;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.min = min;
+            this.shift = shift;
+            this.ends = ends;
+            this.blocks = blocks;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock == 1) {
+                int[] positions = new int[RADIX];
+                for (int digit = 0; digit < RADIX; digit++) {
+                    int index = digit * blocks + firstBlock;
+                    positions[digit] = dstFrom + (index > 0 ? ends[index - 1] : 0);
+                }
+                int start = srcFrom + firstBlock * blockSize;
+                int end = srcFrom + (int) Math.min((long) lastBlock * blockSize, size);
+                for (int i = start; i < end; i++) {
+                    int value = src[i];
+                    dst[positions[((value - min) >>> shift) & MASK]++] = value;
+                }
+                return;
+            }
+            int middle = (firstBlock + lastBlock) >>> 1;
+            invokeAll(new ScatterTask(src, srcFrom, size, blockSize, min, shift, ends, blocks, dst, dstFrom, firstBlock, middle),
+                new ScatterTask(src, srcFrom, size, blockSize, min, shift, ends, blocks, dst, dstFrom, middle, lastBlock));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+
+/**
+ * Fork/join sample sort. Splitters are picked from a random sample so that the input is divided into buckets of
+ * about the sequential threshold size. Numbers are distributed to the buckets in parallel the same way the radix sort
+ * scatters them (per block histograms, prefix sum, scatter), then every bucket is sorted by its own task.
+ * Unlike the merge sort every number is moved only twice, but an O(n) scratch buffer is needed.
+ */
+public class IntSampleSort implements IntSorter {
+    /**
+     * Number of samples per bucket, more samples give more even buckets.
+     */
+    static final int OVERSAMPLING = 32;
+    static final int MAX_BUCKETS = 1 << 10;
+
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public IntSampleSort() {
+        this(SortSettings.defaults());
+    }
+
+    public IntSampleSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    /**
+     * The observer sees the tasks that sort the buckets, distribution of the numbers to the buckets is not reported.
+     */
+    public IntSampleSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    @Override
+    public void sort(ForkJoinPool pool, int[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, int[] numbers, int from, int to) {
+        checkRange(numbers.length, from, to);
+        int size = to - from;
+        int threshold = Math.max(settings.sequentialThreshold(size, pool.getParallelism()), 1);
+        int buckets = (int) Math.min(((long) size + threshold - 1) / threshold, MAX_BUCKETS);
+        if (buckets < 2) {
+            SequentialSort.sort(numbers, from, to);
+            return;
+        }
+        int[] splitters = splitters(numbers, from, to, buckets);
+        int blockSize = (size + buckets - 1) / buckets;
+        int blocks = (size + blockSize - 1) / blockSize;
+        int[] counts = new int[buckets * blocks];
+        int[] scratch = new int[size];
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 5021367935542405853L;
+
+            @Override
+            protected void compute() {
+                new DistributeTask(numbers, from, size, blockSize, splitters, counts, blocks, null, 0, blocks).compute();
+                // counts are indexed by bucket * blocks + block, so the prefix sum is the end position of every block's bucket
+                Arrays.parallelPrefix(counts, Integer::sum);
+                new DistributeTask(numbers, from, size, blockSize, splitters, counts, blocks, scratch, 0, blocks).compute();
+                new BucketTask(numbers, from, scratch, counts, blocks, threshold, 0, splitters.length + 1, 0).compute();
+            }
+        });
+    }
+
+    /**
+     * Picks buckets - 1 splitters from a sorted random sample.
+     */
+    private static int[] splitters(int[] numbers, int from, int to, int buckets) {
+        Random random = new Random(to - from);
+        int[] sample = new int[buckets * OVERSAMPLING];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = numbers[from + random.nextInt(to - from)];
+        }
+        Arrays.sort(sample);
+        int[] splitters = new int[buckets - 1];
+        for (int i = 0; i < splitters.length; i++) {
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        }
+        return splitters;
+    }
+
+    /**
+     * Returns index of the first splitter that is not smaller than value.
+     */
+    static int bucket(int[] splitters, int value) {
+        return IntMergeSort.lowerBound(splitters, 0, splitters.length, value);
+    }
+
+    /**
+     * Counts bucket sizes of blocks firstBlock .. lastBlock - 1 if target is null, moves numbers
+     * to their buckets in target otherwise.
+     */
+    private static class DistributeTask extends RecursiveAction {
+        private static final long serialVersionUID = -2593108245412519342L;
+
+        private final int[] numbers;
+        private final int from;
+        private final int size;
+        private final int blockSize;
+        private final int[] splitters;
+        private final int[] counts;
+        private final int blocks;
+        private final int[] target;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        private DistributeTask(int[] numbers, int from, int size, int blockSize, int[] splitters, int[] counts,
+                               int blocks, int[] target, int firstBlock, int lastBlock) {
+            this.numbers = numbers;
+            this.from = from;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.splitters = splitters;
+            this.counts = counts;
+            this.blocks = blocks;
+            this.target = target;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock > 1) {
+                int middle = (firstBlock + lastBlock) >>> 1;
+                invokeAll(new DistributeTask(numbers, from, size, blockSize, splitters, counts, blocks, target, firstBlock, middle),
+                    new DistributeTask(numbers, from, size, blockSize, splitters, counts, blocks, target, middle, lastBlock));
+                return;
+            }
+            int start = from + firstBlock * blockSize;
+            int end = from + Math.min(lastBlock * blockSize, size);
+            if (target == null) {
+                for (int i = start; i < end; i++) {
+                    counts[bucket(splitters, numbers[i]) * blocks + firstBlock]++;
+                }
+            } else {
+                int[] positions = new int[splitters.length + 1];
+                for (int bucket = 0; bucket < positions.length; bucket++) {
+                    int index = bucket * blocks + firstBlock;
+                    positions[bucket] = index > 0 ? counts[index - 1] : 0;
+                }
+                for (int i = start; i < end; i++) {
+                    int value = numbers[i];
+                    target[positions[bucket(splitters, value)]++] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts buckets firstBucket .. lastBucket - 1 in the scratch buffer and copies them back. Reported to the observer
+     * by the range of the sorted array the buckets end up in.
+     */
+    private class BucketTask extends RecursiveAction {
+        private static final long serialVersionUID = 8826514037261148391L;
+
+        private final int[] numbers;
+        private final int from;
+        private final int[] scratch;
+        private final int[] ends;
+        private final int blocks;
+        private final int threshold;
+        private final int firstBucket;
+        private final int lastBucket;
+        private final int depth;
+        /**
+         * Range of the buckets in the scratch buffer.
+         */
+        private final int start;
+        private final int end;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private BucketTask(int[] numbers, int from, int[] scratch, int[] ends, int blocks, int threshold,
+                           int firstBucket, int lastBucket, int depth) {
+            this.numbers = numbers;
+            this.from = from;
+            this.scratch = scratch;
+            this.ends = ends;
+            this.blocks = blocks;
+            this.threshold = threshold;
+            this.firstBucket = firstBucket;
+            this.lastBucket = lastBucket;
+            this.depth = depth;
+            this.start = firstBucket > 0 ? ends[firstBucket * blocks - 1] : 0;
+            this.end = ends[lastBucket * blocks - 1];
+            observer.taskCreated(depth, from + start, from + end);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from + start, from + end);
+            }
+            observer.taskStarted(depth, from + start, from + end);
+            if (lastBucket - firstBucket > 1) {
+                int middle = (firstBucket + lastBucket) >>> 1;
+                int split = ends[middle * blocks - 1];
+                if (split == start || split == end) {
+                    // one half is empty and would have the same range as the other one, it is not worth a task
+                    new BucketTask(numbers, from, scratch, ends, blocks, threshold, split == start ? middle : firstBucket,
+                        split == start ? lastBucket : middle, depth + 1).compute();
+                } else {
+                    BucketTask taskLeft = new BucketTask(numbers, from, scratch, ends, blocks, threshold, firstBucket, middle, depth + 1);
+                    BucketTask taskRight = new BucketTask(numbers, from, scratch, ends, blocks, threshold, middle, lastBucket, depth + 1);
+                    observer.taskWaiting(depth, from + start, from + end);
+                    taskRight.forkedBy = Thread.currentThread();
+                    observer.taskForked(depth + 1, from + split, from + end);
+                    taskRight.fork();
+                    taskLeft.compute();
+                    taskRight.join();
+                }
+            } else if (end - start > 2 * threshold) {
+                // many duplicates of a splitter, do not sort the big bucket on a single thread
+                new IntQuickSort(settings).createTask(scratch, start, end, getPool().getParallelism()).invoke();
+                System.arraycopy(scratch, start, numbers, from + start, end - start);
+            } else {
+                SequentialSort.sort(scratch, start, end);
+                System.arraycopy(scratch, start, numbers, from + start, end - start);
+            }
+            observer.taskFinished(depth, from + start, from + end);
+        }
+    }
+}
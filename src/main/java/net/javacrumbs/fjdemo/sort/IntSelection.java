@@ -0,0 +1,458 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Parallel partial sort and selection for when only the smallest values or a percentile are needed, so a full
+ * sort is a waste. None of the operations modifies the input array.
+ * <p>
+ * {@link #smallest} and {@link #largest} split the array to ranges like {@link IntMergeSort}, every leaf keeps
+ * its k best values in a bounded heap and the heaps are merged on the way up the task tree. Most values are
+ * rejected by a single comparison with the root of a full heap, so for k much smaller than n the work is about
+ * O(n + k log k) instead of O(n log n). Leaf heaps are not bigger than their leaves and grow when merged. When k is
+ * a big part of a leaf, heaps would reject few values, so the k-th value is selected instead, the values
+ * before it are copied in parallel and sorted by {@link IntMergeSort}.
+ * <p>
+ * {@link #select} and {@link #percentile} use quickselect with parallel partitioning. In every round a pivot is
+ * picked from a random sample slightly past the wanted rank, so the side that contains the rank is small.
+ * Elements smaller and bigger than the pivot are counted per block in parallel, and the side that contains
+ * the rank is copied to a new array in parallel using per-block offsets. Rounds stop once the rest is smaller
+ * than the sequential threshold and it is sorted sequentially. The expected work is O(n).
+ */
+public class IntSelection {
+    /**
+     * After this number of rounds the rest is sorted, protects against pathologic pivots.
+     */
+    private static final int MAX_ROUNDS = 64;
+    private static final int MIN_SAMPLE = 32;
+    private static final int MAX_SAMPLE = 1024;
+    /**
+     * Heaps are used for k up to this part of a leaf, bigger heaps would reject too few values, so bigger k
+     * is selected and sorted instead.
+     */
+    private static final int MAX_HEAP_FRACTION = 16;
+
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public IntSelection() {
+        this(SortSettings.defaults());
+    }
+
+    public IntSelection(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    /**
+     * @param observer notified about tasks of {@link #smallest} and {@link #largest} (heap tasks or the sort
+     *                 of the selected values), selection rounds are not reported
+     */
+    public IntSelection(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    /**
+     * Returns the k smallest numbers in ascending order, all the numbers sorted if there are less than k.
+     */
+    public int[] smallest(ForkJoinPool pool, int[] numbers, int k) {
+        return topK(pool, numbers, k, false);
+    }
+
+    /**
+     * Returns the k biggest numbers in descending order, all the numbers sorted if there are less than k.
+     */
+    public int[] largest(ForkJoinPool pool, int[] numbers, int k) {
+        return topK(pool, numbers, k, true);
+    }
+
+    private int[] topK(ForkJoinPool pool, int[] numbers, int k, boolean largest) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K can not be negative, was " + k);
+        }
+        if (k == 0 || numbers.length == 0) {
+            return new int[0];
+        }
+        k = Math.min(k, numbers.length);
+        int threshold = Math.max(settings.sequentialThreshold(numbers.length, pool.getParallelism()), 1);
+        if ((long) k * MAX_HEAP_FRACTION > Math.min(threshold, numbers.length)) {
+            return selectTopK(pool, numbers, k, largest);
+        }
+        BoundedHeap heap = pool.invoke(new TopKTask(numbers, k, largest, threshold, 0, numbers.length, 0));
+        return heap.toSortedArray(largest);
+    }
+
+    /**
+     * Selects the k-th value, copies the values before it in parallel and sorts them. Needs O(n) memory
+     * no matter how many leaves there are.
+     */
+    private int[] selectTopK(ForkJoinPool pool, int[] numbers, int k, boolean largest) {
+        int length = numbers.length;
+        int pivot = select(pool, numbers, largest ? length - k : k - 1);
+        int threshold = Math.max(settings.sequentialThreshold(length, pool.getParallelism()), 1);
+        int blocks = (length + threshold - 1) / threshold;
+        int[] less = new int[blocks];
+        int[] greater = new int[blocks];
+        pool.invoke(new CountTask(numbers, length, threshold, pivot, less, greater, 0, blocks));
+        int[] counts = largest ? greater : less;
+        int[] offsets = new int[blocks];
+        for (int block = 1; block < blocks; block++) {
+            offsets[block] = offsets[block - 1] + counts[block - 1];
+        }
+        int[] result = new int[k];
+        pool.invoke(new CopyTask(numbers, length, threshold, pivot, largest ? 1 : -1, offsets, result, 0, blocks));
+        // fewer than k values are strictly before the pivot, the rest are equal to it
+        Arrays.fill(result, sum(counts), k, pivot);
+        new IntMergeSort(settings, observer).sort(pool, result);
+        if (largest) {
+            for (int i = 0, j = k - 1; i < j; i++, j--) {
+                int tmp = result[i];
+                result[i] = result[j];
+                result[j] = tmp;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the k-th smallest number, counted from zero, i.e. the number that would be at index k if the array
+     * was sorted.
+     */
+    public int select(ForkJoinPool pool, int[] numbers, int k) {
+        if (k < 0 || k >= numbers.length) {
+            throw new IllegalArgumentException("Rank " + k + " is out of array of length " + numbers.length);
+        }
+        Random random = new Random(numbers.length);
+        int[] current = numbers;
+        int length = numbers.length;
+        for (int round = 0; ; round++) {
+            int threshold = Math.max(settings.sequentialThreshold(length, pool.getParallelism()), 1);
+            if (length <= threshold || round >= MAX_ROUNDS) {
+                int[] rest = Arrays.copyOf(current, length);
+                SequentialSort.sort(rest, 0, length);
+                return rest[k];
+            }
+            int pivot = pivot(current, length, k, random);
+            int blocks = (length + threshold - 1) / threshold;
+            int[] less = new int[blocks];
+            int[] greater = new int[blocks];
+            pool.invoke(new CountTask(current, length, threshold, pivot, less, greater, 0, blocks));
+            int lessCount = sum(less);
+            int greaterCount = sum(greater);
+            int[] counts;
+            int side;
+            if (k < lessCount) {
+                counts = less;
+                side = -1;
+            } else if (k >= length - greaterCount) {
+                k -= length - greaterCount;
+                counts = greater;
+                side = 1;
+            } else {
+                return pivot;
+            }
+            int[] offsets = new int[blocks];
+            for (int block = 1; block < blocks; block++) {
+                offsets[block] = offsets[block - 1] + counts[block - 1];
+            }
+            int[] next = new int[side < 0 ? lessCount : greaterCount];
+            pool.invoke(new CopyTask(current, length, threshold, pivot, side, offsets, next, 0, blocks));
+            current = next;
+            length = next.length;
+        }
+    }
+
+    /**
+     * Returns the percentile of the numbers by the nearest rank method, e.g. 99 for the 99th percentile.
+     */
+    public int percentile(ForkJoinPool pool, int[] numbers, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile has to be between 0 and 100, was " + percentile);
+        }
+        if (numbers.length == 0) {
+            throw new IllegalArgumentException("Can not compute percentile of no numbers");
+        }
+        int rank = (int) Math.ceil(percentile / 100 * numbers.length) - 1;
+        return select(pool, numbers, Math.min(Math.max(rank, 0), numbers.length - 1));
+    }
+
+    /**
+     * Picks pivot from a sorted random sample at the position of the rank moved a few standard deviations
+     * toward the middle, so that the rank most likely falls to the smaller side of the partition.
+     */
+    private static int pivot(int[] numbers, int length, int k, Random random) {
+        int sampleSize = Math.min(Math.max((int) Math.sqrt(length), MIN_SAMPLE), MAX_SAMPLE);
+        int[] sample = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = numbers[random.nextInt(length)];
+        }
+        Arrays.sort(sample);
+        int rank = (int) ((long) k * sampleSize / length);
+        int gap = 2 * (int) Math.sqrt(sampleSize);
+        rank = k < length / 2 ? rank + gap : rank - gap;
+        return sample[Math.min(Math.max(rank, 0), sampleSize - 1)];
+    }
+
+    private static int sum(int[] counts) {
+        int result = 0;
+        for (int count : counts) {
+            result += count;
+        }
+        return result;
+    }
+
+    private class TopKTask extends RecursiveTask<BoundedHeap> {
+        private static final long serialVersionUID = -4036018813451929346L;
+
+        private final int[] numbers;
+        private final int k;
+        private final boolean largest;
+        private final int threshold;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        private TopKTask(int[] numbers, int k, boolean largest, int threshold, int from, int to, int depth) {
+            this.numbers = numbers;
+            this.k = k;
+            this.largest = largest;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected BoundedHeap compute() {
+            observer.taskStarted(depth, from, to);
+            BoundedHeap result;
+            if (to - from <= threshold) {
+                result = new BoundedHeap(k, to - from);
+                for (int i = from; i < to; i++) {
+                    result.accept(key(numbers[i], largest));
+                }
+            } else {
+                int middle = from + (to - from) / 2;
+                TopKTask taskLeft = new TopKTask(numbers, k, largest, threshold, from, middle, depth + 1);
+                TopKTask taskRight = new TopKTask(numbers, k, largest, threshold, middle, to, depth + 1);
+                observer.taskWaiting(depth, from, to);
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                BoundedHeap left = taskLeft.compute();
+                BoundedHeap right = taskRight.join();
+                observer.mergeStarted(depth, from, to);
+                result = left.merge(right);
+            }
+            observer.taskFinished(depth, from, to);
+            return result;
+        }
+    }
+
+    /**
+     * Keys of the largest values are their bitwise complements, it reverses the order without overflow,
+     * so the heap always keeps the smallest keys.
+     */
+    private static int key(int value, boolean largest) {
+        return largest ? ~value : value;
+    }
+
+    /**
+     * Max-heap that keeps at most k smallest values. The array starts at the expected number of values
+     * and grows up to k.
+     */
+    private static final class BoundedHeap {
+        private final int k;
+        private int[] heap;
+        private int size;
+
+        private BoundedHeap(int k, int expectedSize) {
+            this.k = k;
+            this.heap = new int[Math.max(Math.min(k, expectedSize), 1)];
+        }
+
+        private void accept(int value) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min(k, 2L * heap.length));
+                }
+                siftUp(size++, value);
+            } else if (value < heap[0]) {
+                siftDown(value);
+            }
+        }
+
+        /**
+         * Merges the smaller heap to the bigger one.
+         */
+        private BoundedHeap merge(BoundedHeap other) {
+            BoundedHeap target = size >= other.size ? this : other;
+            BoundedHeap source = target == this ? other : this;
+            for (int i = 0; i < source.size; i++) {
+                target.accept(source.heap[i]);
+            }
+            return target;
+        }
+
+        private int[] toSortedArray(boolean largest) {
+            int[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            for (int i = 0; i < result.length; i++) {
+                result[i] = key(result[i], largest);
+            }
+            return result;
+        }
+
+        private void siftUp(int index, int value) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] >= value) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = value;
+        }
+
+        /**
+         * Replaces the root by the value.
+         */
+        private void siftDown(int value) {
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1] > heap[child]) {
+                    child++;
+                }
+                if (value >= heap[child]) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = value;
+        }
+    }
+
+    /**
+     * Counts elements smaller and bigger than the pivot in blocks fromBlock (inclusive) to toBlock (exclusive).
+     */
+    private static class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 3163254911893452130L;
+
+        private final int[] numbers;
+        private final int length;
+        private final int blockSize;
+        private final int pivot;
+        private final int[] less;
+        private final int[] greater;
+        private final int fromBlock;
+        private final int toBlock;
+
+        private CountTask(int[] numbers, int length, int blockSize, int pivot, int[] less, int[] greater, int fromBlock, int toBlock) {
+            this.numbers = numbers;
+            this.length = length;
+            this.blockSize = blockSize;
+            this.pivot = pivot;
+            this.less = less;
+            this.greater = greater;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBlock - fromBlock > 1) {
+                int middle = (fromBlock + toBlock) >>> 1;
+                invokeAll(new CountTask(numbers, length, blockSize, pivot, less, greater, fromBlock, middle),
+                    new CountTask(numbers, length, blockSize, pivot, less, greater, middle, toBlock));
+                return;
+            }
+            int lessCount = 0;
+            int greaterCount = 0;
+            int end = (int) Math.min((long) (fromBlock + 1) * blockSize, length);
+            for (int i = fromBlock * blockSize; i < end; i++) {
+                int value = numbers[i];
+                if (value < pivot) {
+                    lessCount++;
+                } else if (value > pivot) {
+                    greaterCount++;
+                }
+            }
+            less[fromBlock] = lessCount;
+            greater[fromBlock] = greaterCount;
+        }
+    }
+
+    /**
+     * Copies elements smaller (side -1) or bigger (side 1) than the pivot of blocks fromBlock (inclusive)
+     * to toBlock (exclusive) to the target, every block starts at its offset.
+     */
+    private static class CopyTask extends RecursiveAction {
+        private static final long serialVersionUID = -5914727064361452425L;
+
+        private final int[] numbers;
+        private final int length;
+        private final int blockSize;
+        private final int pivot;
+        private final int side;
+        private final int[] offsets;
+        private final int[] target;
+        private final int fromBlock;
+        private final int toBlock;
+
+        private CopyTask(int[] numbers, int length, int blockSize, int pivot, int side, int[] offsets, int[] target,
+                         int fromBlock, int toBlock) {
+            this.numbers = numbers;
+            this.length = length;
+            this.blockSize = blockSize;
+            this.pivot = pivot;
+            this.side = side;
+            this.offsets = offsets;
+            this.target = target;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBlock - fromBlock > 1) {
+                int middle = (fromBlock + toBlock) >>> 1;
+                invokeAll(new CopyTask(numbers, length, blockSize, pivot, side, offsets, target, fromBlock, middle),
+                    new CopyTask(numbers, length, blockSize, pivot, side, offsets, target, middle, toBlock));
+                return;
+            }
+            int position = offsets[fromBlock];
+            int end = (int) Math.min((long) (fromBlock + 1) * blockSize, length);
+            for (int i = fromBlock * blockSize; i < end; i++) {
+                int value = numbers[i];
+                if (side < 0 ? value < pivot : value > pivot) {
+                    target[position++] = value;
+                }
+            }
+        }
+    }
+}
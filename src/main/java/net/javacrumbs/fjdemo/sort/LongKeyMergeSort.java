@@ -0,0 +1,290 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+import static net.javacrumbs.fjdemo.sort.SequentialSort.INSERTION_SORT_THRESHOLD;
+
+/**
+ * Stable fork/join merge sort of long keys with int values stored in a parallel array. Values are moved together
+ * with their keys, which makes it possible to sort records by a primitive key or to get the sorting permutation
+ * (argsort). Works the same way as {@link IntMergeSort}, leaves are sorted by a sequential merge sort since
+ * Arrays.sort is not able to move the values.
+ */
+public class LongKeyMergeSort {
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public LongKeyMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public LongKeyMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public LongKeyMergeSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    /**
+     * Sorts keys in place, values are permuted the same way. Equal keys keep their order.
+     */
+    public void sort(ForkJoinPool pool, long[] keys, int[] values) {
+        pool.invoke(createTask(keys, values, 0, keys.length, pool.getParallelism()));
+    }
+
+    public ForkJoinTask<Void> createTask(long[] keys, int[] values, int from, int to, int parallelism) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values have different length " + keys.length + " != " + values.length);
+        }
+        checkRange(keys.length, from, to);
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        int mergeThreshold = Math.max(settings.mergeThreshold(to - from, parallelism), 2);
+        return new SortTask(keys, values, new long[to - from], new int[to - from], from, threshold, mergeThreshold, from, to, 0, false);
+    }
+
+    /**
+     * Returns indexes of keys in sorted order, keys are not modified.
+     */
+    public int[] argsort(ForkJoinPool pool, long[] keys) {
+        long[] sortedKeys = keys.clone();
+        int[] indexes = identity(keys.length);
+        sort(pool, sortedKeys, indexes);
+        return indexes;
+    }
+
+    /**
+     * Returns indexes of keys in sorted order, keys are not modified.
+     */
+    public int[] argsort(ForkJoinPool pool, int[] keys) {
+        long[] sortedKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortedKeys[i] = keys[i];
+        }
+        int[] indexes = identity(keys.length);
+        sort(pool, sortedKeys, indexes);
+        return indexes;
+    }
+
+    /**
+     * Returns indexes of keys in the order defined by {@link Double#compare(double, double)}, keys are not modified.
+     */
+    public int[] argsort(ForkJoinPool pool, double[] keys) {
+        long[] sortedKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortedKeys[i] = sortableBits(keys[i]);
+        }
+        int[] indexes = identity(keys.length);
+        sort(pool, sortedKeys, indexes);
+        return indexes;
+    }
+
+    /**
+     * Maps double to long so that the longs are ordered the same way as Double.compare orders the doubles.
+     * Negative numbers have all bits but the sign flipped, NaNs are collapsed to the canonical NaN which ends up last.
+     */
+    public static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int[] identity(int length) {
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    /**
+     * Merges sorted runs [from1, to1) and [from2, to2) of srcKeys and srcValues into dstKeys and dstValues
+     * starting at index dstFrom. Elements of the first run go first if equal.
+     */
+    static void merge(long[] srcKeys, int[] srcValues, int from1, int to1, int from2, int to2,
+                      long[] dstKeys, int[] dstValues, int dstFrom) {
+        int i = from1, j = from2, idx = dstFrom;
+        while (i < to1 && j < to2) {
+            if (srcKeys[i] <= srcKeys[j]) {
+                dstValues[idx] = srcValues[i];
+                dstKeys[idx++] = srcKeys[i++];
+            } else {
+                dstValues[idx] = srcValues[j];
+                dstKeys[idx++] = srcKeys[j++];
+            }
+        }
+        if (i < to1) {
+            System.arraycopy(srcKeys, i, dstKeys, idx, to1 - i);
+            System.arraycopy(srcValues, i, dstValues, idx, to1 - i);
+        } else {
+            System.arraycopy(srcKeys, j, dstKeys, idx, to2 - j);
+            System.arraycopy(srcValues, j, dstValues, idx, to2 - j);
+        }
+    }
+
+    /**
+     * Parallel merge, see {@link IntMergeSort.MergeTask}.
+     */
+    private static class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1290937413373816252L;
+
+        private final long[] srcKeys;
+        private final int[] srcValues;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final long[] dstKeys;
+        private final int[] dstValues;
+        private final int dstFrom;
+        private final int threshold;
+
+        private MergeTask(long[] srcKeys, int[] srcValues, int from1, int to1, int from2, int to2,
+                          long[] dstKeys, int[] dstValues, int dstFrom, int threshold) {
+            this.srcKeys = srcKeys;
+            this.srcValues = srcValues;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.dstKeys = dstKeys;
+            this.dstValues = dstValues;
+            this.dstFrom = dstFrom;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= threshold || length1 == 0 || length2 == 0) {
+                merge(srcKeys, srcValues, from1, to1, from2, to2, dstKeys, dstValues, dstFrom);
+                return;
+            }
+            int split1, split2;
+            if (length1 >= length2) {
+                split1 = (from1 + to1) >>> 1;
+                split2 = LongMergeSort.lowerBound(srcKeys, from2, to2, srcKeys[split1]);
+            } else {
+                split2 = (from2 + to2) >>> 1;
+                split1 = LongMergeSort.upperBound(srcKeys, from1, to1, srcKeys[split2]);
+            }
+            int dstSplit = dstFrom + (split1 - from1) + (split2 - from2);
+            MergeTask taskLeft = new MergeTask(srcKeys, srcValues, from1, split1, from2, split2, dstKeys, dstValues, dstFrom, threshold);
+            MergeTask taskRight = new MergeTask(srcKeys, srcValues, split1, to1, split2, to2, dstKeys, dstValues, dstSplit, threshold);
+            taskRight.fork();
+            taskLeft.compute();
+            taskRight.join();
+        }
+    }
+
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = -5527409813315630017L;
+
+        private final long[] keys;
+        private final int[] values;
+        private final long[] scratchKeys;
+        private final int[] scratchValues;
+        /**
+         * Index i of keys corresponds to index i - offset of scratchKeys.
+         */
+        private final int offset;
+        private final int threshold;
+        private final int mergeThreshold;
+        private final int from;
+        private final int to;
+        private final int depth;
+        private final boolean toScratch;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(long[] keys, int[] values, long[] scratchKeys, int[] scratchValues, int offset,
+                         int threshold, int mergeThreshold, int from, int to, int depth, boolean toScratch) {
+            this.keys = keys;
+            this.values = values;
+            this.scratchKeys = scratchKeys;
+            this.scratchValues = scratchValues;
+            this.offset = offset;
+            this.threshold = threshold;
+            this.mergeThreshold = mergeThreshold;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.toScratch = toScratch;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                sortSequentially(from, to, toScratch);
+            } else {
+                int middle = from + (to - from) / 2;
+                SortTask taskLeft = new SortTask(keys, values, scratchKeys, scratchValues, offset, threshold, mergeThreshold, from, middle, depth + 1, !toScratch);
+                SortTask taskRight = new SortTask(keys, values, scratchKeys, scratchValues, offset, threshold, mergeThreshold, middle, to, depth + 1, !toScratch);
+                observer.taskWaiting(depth, from, to);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+                taskRight.join();
+                observer.mergeStarted(depth, from, to);
+                if (toScratch) {
+                    new MergeTask(keys, values, from, middle, middle, to, scratchKeys, scratchValues, from - offset, mergeThreshold).compute();
+                } else {
+                    new MergeTask(scratchKeys, scratchValues, from - offset, middle - offset, middle - offset, to - offset, keys, values, from, mergeThreshold).compute();
+                }
+            }
+            observer.taskFinished(depth, from, to);
+        }
+
+        /**
+         * Same ping-pong merge sort as the tasks do, just without forking.
+         */
+        private void sortSequentially(int lo, int hi, boolean intoScratch) {
+            if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+                if (intoScratch) {
+                    System.arraycopy(keys, lo, scratchKeys, lo - offset, hi - lo);
+                    System.arraycopy(values, lo, scratchValues, lo - offset, hi - lo);
+                    SequentialSort.insertionSort(scratchKeys, scratchValues, lo - offset, hi - offset);
+                } else {
+                    SequentialSort.insertionSort(keys, values, lo, hi);
+                }
+                return;
+            }
+            int middle = lo + (hi - lo) / 2;
+            sortSequentially(lo, middle, !intoScratch);
+            sortSequentially(middle, hi, !intoScratch);
+            if (intoScratch) {
+                merge(keys, values, lo, middle, middle, hi, scratchKeys, scratchValues, lo - offset);
+            } else {
+                merge(scratchKeys, scratchValues, lo - offset, middle - offset, middle - offset, hi - offset, keys, values, lo);
+            }
+        }
+    }
+}
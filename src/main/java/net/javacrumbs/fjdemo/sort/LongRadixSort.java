@@ -0,0 +1,287 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+
+/**
+ * Fork/join LSD radix sort of long arrays, works the same way as {@link IntRadixSort}.
+ */
+public class LongRadixSort {
+    private static final int RADIX_BITS = IntRadixSort.RADIX_BITS;
+    private static final int RADIX = IntRadixSort.RADIX;
+    private static final int MASK = RADIX - 1;
+
+    private final SortSettings settings;
+
+    public LongRadixSort() {
+        this(SortSettings.defaults());
+    }
+
+    public LongRadixSort(SortSettings settings) {
+        this.settings = requireNonNull(settings);
+    }
+
+    public void sort(ForkJoinPool pool, long[] numbers) {
+        sort(pool, numbers, 0, numbers.length);
+    }
+
+    public void sort(ForkJoinPool pool, long[] numbers, int from, int to) {
+        checkRange(numbers.length, from, to);
+        int blockSize = Math.max(settings.sequentialThreshold(to - from, pool.getParallelism()), 1);
+        pool.invoke(new SortTask(numbers, from, to, blockSize, null));
+    }
+
+    /**
+     * Sorts numbers knowing their minimum and maximum.
+     */
+    void sort(ForkJoinPool pool, long[] numbers, int from, int to, long[] range) {
+        checkRange(numbers.length, from, to);
+        int blockSize = Math.max(settings.sequentialThreshold(to - from, pool.getParallelism()), 1);
+        pool.invoke(new SortTask(numbers, from, to, blockSize, range));
+    }
+
+    /**
+     * Returns number of radix passes needed to sort numbers from min to max.
+     */
+    static int passes(long min, long max) {
+        int bits = Long.SIZE - Long.numberOfLeadingZeros(max - min);
+        return (bits + RADIX_BITS - 1) / RADIX_BITS;
+    }
+
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = -8304427851669413760L;
+
+        private final long[] numbers;
+        private final int from;
+        private final int to;
+        private final int blockSize;
+        private final int blocks;
+        private long[] range;
+
+        private SortTask(long[] numbers, int from, int to, int blockSize, long[] range) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+            this.blockSize = blockSize;
+            this.blocks = (int) (((long) to - from + blockSize - 1) / blockSize);
+            this.range = range;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2) {
+                return;
+            }
+            if (range == null) {
+                range = new RangeTask(numbers, from, to, blockSize).compute();
+            }
+            long min = range[0];
+            int passes = passes(min, range[1]);
+
+            long[] src = numbers;
+            int srcFrom = from;
+            long[] dst = new long[to - from];
+            int dstFrom = 0;
+            int[] counts = new int[RADIX * blocks];
+            for (int pass = 0; pass < passes; pass++) {
+                int shift = pass * RADIX_BITS;
+                Arrays.fill(counts, 0);
+                new HistogramTask(src, srcFrom, to - from, blockSize, min, shift, counts, blocks, 0, blocks).compute();
+                if (isSingleDigit(counts, to - from)) {
+                    continue;
+                }
+                // counts are indexed by digit * blocks + block, so the prefix sum is the end position of every block's digit
+                Arrays.parallelPrefix(counts, Integer::sum);
+                new ScatterTask(src, srcFrom, to - from, blockSize, min, shift, counts, blocks, dst, dstFrom, 0, blocks).compute();
+
+                long[] tmp = src;
+                src = dst;
+                dst = tmp;
+                int tmpFrom = srcFrom;
+                srcFrom = dstFrom;
+                dstFrom = tmpFrom;
+            }
+            if (src != numbers) {
+                System.arraycopy(src, srcFrom, numbers, from, to - from);
+            }
+        }
+
+        private boolean isSingleDigit(int[] counts, int size) {
+            for (int digit = 0; digit < RADIX; digit++) {
+                int total = 0;
+                for (int block = 0; block < blocks; block++) {
+                    total += counts[digit * blocks + block];
+                }
+                if (total == size) {
+                    return true;
+                } else if (total != 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Computes minimum and maximum.
+     */
+    static class RangeTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 5062938193002176619L;
+
+        private final long[] numbers;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeTask(long[] numbers, int from, int to, int threshold) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (int i = from; i < to; i++) {
+                    min = Math.min(min, numbers[i]);
+                    max = Math.max(max, numbers[i]);
+                }
+                return new long[]{min, max};
+            }
+            int middle = from + (to - from) / 2;
+            RangeTask taskLeft = new RangeTask(numbers, from, middle, threshold);
+            RangeTask taskRight = new RangeTask(numbers, middle, to, threshold);
+            taskRight.fork();
+            long[] left = taskLeft.compute();
+            long[] right = taskRight.join();
+            return new long[]{Math.min(left[0], right[0]), Math.max(left[1], right[1])};
+        }
+    }
+
+    /**
+     * Counts digits of blocks firstBlock .. lastBlock - 1.
+     */
+    private static class HistogramTask extends RecursiveAction {
+        private static final long serialVersionUID = 1947742083719963405L;
+
+        private final long[] numbers;
+        private final int from;
+        private final int size;
+        private final int blockSize;
+        private final long min;
+        private final int shift;
+        private final int[] counts;
+        private final int blocks;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        private HistogramTask(long[] numbers, int from, int size, int blockSize, long min, int shift,
+                              int[] counts, int blocks, int firstBlock, int lastBlock) {
+            this.numbers = numbers;
+            this.from = from;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.min = min;
+            this.shift = shift;
+            this.counts = counts;
+            this.blocks = blocks;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock == 1) {
+                int start = from + firstBlock * blockSize;
+                int end = from + (int) Math.min((long) lastBlock * blockSize, size);
+                for (int i = start; i < end; i++) {
+                    counts[(int) (((numbers[i] - min) >>> shift) & MASK) * blocks + firstBlock]++;
+                }
+                return;
+            }
+            int middle = (firstBlock + lastBlock) >>> 1;
+            invokeAll(new HistogramTask(numbers, from, size, blockSize, min, shift, counts, blocks, firstBlock, middle),
+                new HistogramTask(numbers, from, size, blockSize, min, shift, counts, blocks, middle, lastBlock));
+        }
+    }
+
+    /**
+     * Moves numbers of blocks firstBlock .. lastBlock - 1 to their positions in dst.
+     */
+    private static class ScatterTask extends RecursiveAction {
+        private static final long serialVersionUID = -2219870443851736922L;
+
+        private final long[] src;
+        private final int srcFrom;
+        private final int size;
+        private final int blockSize;
+        private final long min;
+        private final int shift;
+        private final int[] ends;
+        private final int blocks;
+        private final long[] dst;
+        private final int dstFrom;
+        private final int firstBlock;
+        private final int lastBlock;
+
+        private ScatterTask(long[] src, int srcFrom, int size, int blockSize, long min, int shift, int[] ends, int blocks,
+                            long[] dst, int dstFrom, int firstBlock, int lastBlock) {
+            this.src = src;
+            this.srcFrom = srcFrom;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.min = min;
+            this.shift = shift;
+            this.ends = ends;
+            this.blocks = blocks;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock == 1) {
+                int[] positions = new int[RADIX];
+                for (int digit = 0; digit < RADIX; digit++) {
+                    int index = digit * blocks + firstBlock;
+                    positions[digit] = dstFrom + (index > 0 ? ends[index - 1] : 0);
+                }
+                int start = srcFrom + firstBlock * blockSize;
+                int end = srcFrom + (int) Math.min((long) lastBlock * blockSize, size);
+                for (int i = start; i < end; i++) {
+                    long value = src[i];
+                    dst[positions[(int) ((value - min) >>> shift) & MASK]++] = value;
+                }
+                return;
+            }
+            int middle = (firstBlock + lastBlock) >>> 1;
+            invokeAll(new ScatterTask(src, srcFrom, size, blockSize, min, shift, ends, blocks, dst, dstFrom, firstBlock, middle),
+                new ScatterTask(src, srcFrom, size, blockSize, min, shift, ends, blocks, dst, dstFrom, middle, lastBlock));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+/**
+ * Tournament tree used for k-way merge of sorted runs. Inner nodes keep the loser of the match played in them,
+ * the overall winner is kept separately, so replacing the winner takes only log k comparisons along one path.
+ */
+class LoserTree {
+    /**
+     * Sorted input of the merge.
+     */
+    interface Run {
+        boolean isExhausted();
+
+        long current();
+
+        /**
+         * Moves to the next value.
+         */
+        void advance();
+    }
+
+    private final Run[] runs;
+    /**
+     * Losers in inner nodes 1 .. k-1, leaves k .. 2k-1 are implicit.
+     */
+    private final int[] tree;
+    private int winner;
+
+    LoserTree(Run[] runs) {
+        this.runs = runs;
+        this.tree = new int[Math.max(runs.length, 1)];
+        this.winner = runs.length > 0 ? build(1) : -1;
+    }
+
+    private int build(int node) {
+        if (node >= runs.length) {
+            return node - runs.length;
+        }
+        int left = build(2 * node);
+        int right = build(2 * node + 1);
+        if (less(left, right)) {
+            tree[node] = right;
+            return left;
+        } else {
+            tree[node] = left;
+            return right;
+        }
+    }
+
+    boolean isExhausted() {
+        return winner < 0 || runs[winner].isExhausted();
+    }
+
+    /**
+     * Returns the smallest current value of all the runs.
+     */
+    long min() {
+        return runs[winner].current();
+    }
+
+    /**
+     * Advances the run with the smallest value and replays its matches.
+     */
+    void advance() {
+        runs[winner].advance();
+        int candidate = winner;
+        for (int node = (candidate + runs.length) >> 1; node >= 1; node >>= 1) {
+            if (less(tree[node], candidate)) {
+                int tmp = tree[node];
+                tree[node] = candidate;
+                candidate = tmp;
+            }
+        }
+        winner = candidate;
+    }
+
+    /**
+     * Exhausted runs are bigger than anything, ties are broken by run index.
+     */
+    private boolean less(int a, int b) {
+        Run runA = runs[a];
+        Run runB = runs[b];
+        if (runA.isExhausted()) {
+            return false;
+        }
+        if (runB.isExhausted()) {
+            return true;
+        }
+        long valueA = runA.current();
+        long valueB = runB.current();
+        return valueA < valueB || (valueA == valueB && a < b);
+    }
+}
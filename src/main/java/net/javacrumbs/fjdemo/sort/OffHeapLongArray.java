@@ -0,0 +1,160 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Array of longs outside of the heap split to segments, so it can be bigger than the 2 GB limit of a single buffer.
+ * All segments but the last one have the same power of two length and an element is addressed by an int index,
+ * the array holds up to Integer.MAX_VALUE longs (16 GB). Segments are accessed only by absolute get and put.
+ */
+public final class OffHeapLongArray {
+    /**
+     * Segments of 2^27 longs take 1 GB each.
+     */
+    static final int DEFAULT_SEGMENT_SHIFT = 27;
+    /**
+     * Every non-negative int index falls to the first segment.
+     */
+    private static final int SINGLE_SEGMENT_SHIFT = 31;
+
+    private final LongBuffer[] segments;
+    /**
+     * The only segment, null if there are more of them. Spares the segment lookup in the common case.
+     */
+    private final LongBuffer single;
+    /**
+     * Direct buffers backing the segments if they were allocated by this class, null otherwise.
+     */
+    private final ByteBuffer[] memory;
+    private final int shift;
+    private final int mask;
+    private final int length;
+
+    private OffHeapLongArray(LongBuffer[] segments, ByteBuffer[] memory, int shift, int length) {
+        this.segments = segments;
+        this.single = segments.length == 1 ? segments[0] : null;
+        this.memory = memory;
+        this.shift = shift;
+        this.mask = (int) ((1L << shift) - 1);
+        this.length = length;
+    }
+
+    /**
+     * Allocates direct memory for the array in native byte order, it has to be released by {@link #free()}.
+     */
+    public static OffHeapLongArray allocate(int length) {
+        return allocate(length, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    static OffHeapLongArray allocate(int length, int segmentShift) {
+        checkLength(length);
+        int count = segmentCount(length, segmentShift);
+        LongBuffer[] segments = new LongBuffer[count];
+        ByteBuffer[] memory = new ByteBuffer[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                memory[i] = OffHeapMemory.allocate(segmentLength(length, segmentShift, i) * Long.BYTES);
+                segments[i] = memory[i].asLongBuffer();
+            }
+        } catch (RuntimeException | Error e) {
+            free(memory);
+            throw e;
+        }
+        return new OffHeapLongArray(segments, memory, segmentShift, length);
+    }
+
+    /**
+     * Maps length longs of the file starting at byte position, every segment is mapped separately.
+     * The mappings are released when they are garbage collected.
+     */
+    public static OffHeapLongArray map(FileChannel channel, FileChannel.MapMode mode, long position, int length,
+                                       ByteOrder order) throws IOException {
+        checkLength(length);
+        int count = segmentCount(length, DEFAULT_SEGMENT_SHIFT);
+        LongBuffer[] segments = new LongBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long segmentPosition = position + ((long) i << DEFAULT_SEGMENT_SHIFT) * Long.BYTES;
+            long bytes = (long) segmentLength(length, DEFAULT_SEGMENT_SHIFT, i) * Long.BYTES;
+            segments[i] = channel.map(mode, segmentPosition, bytes).order(order).asLongBuffer();
+        }
+        return new OffHeapLongArray(segments, null, DEFAULT_SEGMENT_SHIFT, length);
+    }
+
+    /**
+     * Wraps a single buffer, index i of the array is index i of the buffer regardless of its position.
+     * The array ends at the limit of the buffer.
+     */
+    public static OffHeapLongArray wrap(LongBuffer buffer) {
+        return new OffHeapLongArray(new LongBuffer[]{buffer}, null, SINGLE_SEGMENT_SHIFT, buffer.limit());
+    }
+
+    public long get(int index) {
+        if (single != null) {
+            return single.get(index);
+        }
+        return segments[index >>> shift].get(index & mask);
+    }
+
+    public void put(int index, long value) {
+        if (single != null) {
+            single.put(index, value);
+        } else {
+            segments[index >>> shift].put(index & mask, value);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Releases memory allocated by {@link #allocate(int)}, the array must not be used afterwards.
+     * Does nothing for mapped and wrapped buffers.
+     */
+    public void free() {
+        if (memory != null) {
+            free(memory);
+        }
+    }
+
+    private static void free(ByteBuffer[] memory) {
+        for (ByteBuffer buffer : memory) {
+            if (buffer != null) {
+                OffHeapMemory.free(buffer);
+            }
+        }
+    }
+
+    private static void checkLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length can not be negative, was " + length);
+        }
+    }
+
+    private static int segmentCount(int length, int shift) {
+        return (int) ((length + (1L << shift) - 1) >>> shift);
+    }
+
+    private static int segmentLength(int length, int shift, int segment) {
+        return (int) Math.min(1L << shift, length - ((long) segment << shift));
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.SequentialSort.INSERTION_SORT_THRESHOLD;
+
+/**
+ * Fork/join merge sort of longs stored outside of the heap, in a direct or memory mapped buffer or
+ * in an {@link OffHeapLongArray}. Works the same way as {@link IntMergeSort}, tasks partition the data by index
+ * ranges and the scratch array is allocated off-heap by {@link OffHeapMemory} and freed as soon as the sort
+ * finishes. Leaves are sorted by a sequential merge sort in place, so no data are copied to the heap at all.
+ * <p>
+ * A single buffer holds at most 2 GB (268M longs), bigger data are sorted as an OffHeapLongArray of several
+ * buffers, up to Integer.MAX_VALUE longs (16 GB) in one sort. The scratch array is split to segments the same way.
+ * Buffers are accessed only by absolute get and put, so the position and limit of the sorted buffer are not changed.
+ */
+public class OffHeapLongMergeSort {
+    private final SortSettings settings;
+    private final SortObserver observer;
+    /**
+     * Segment size of the scratch array, smaller in tests so the segment boundaries are crossed.
+     */
+    private final int scratchSegmentShift;
+
+    public OffHeapLongMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public OffHeapLongMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public OffHeapLongMergeSort(SortSettings settings, SortObserver observer) {
+        this(settings, observer, OffHeapLongArray.DEFAULT_SEGMENT_SHIFT);
+    }
+
+    OffHeapLongMergeSort(SortSettings settings, SortObserver observer, int scratchSegmentShift) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+        this.scratchSegmentShift = scratchSegmentShift;
+    }
+
+    /**
+     * Sorts longs between position and limit of the buffer, using its byte order.
+     */
+    public void sort(ForkJoinPool pool, ByteBuffer buffer) {
+        sort(pool, buffer.asLongBuffer());
+    }
+
+    /**
+     * Sorts longs between position and limit of the buffer.
+     */
+    public void sort(ForkJoinPool pool, LongBuffer numbers) {
+        sort(pool, OffHeapLongArray.wrap(numbers), numbers.position(), numbers.limit());
+    }
+
+    public void sort(ForkJoinPool pool, OffHeapLongArray numbers) {
+        sort(pool, numbers, 0, numbers.length());
+    }
+
+    /**
+     * Sorts range from (inclusive) to (exclusive) of the array.
+     */
+    public void sort(ForkJoinPool pool, OffHeapLongArray numbers, int from, int to) {
+        IntMergeSort.checkRange(numbers.length(), from, to);
+        if (to - from < 2) {
+            return;
+        }
+        int parallelism = pool.getParallelism();
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        int mergeThreshold = Math.max(settings.mergeThreshold(to - from, parallelism), 2);
+        OffHeapLongArray scratch = OffHeapLongArray.allocate(to - from, scratchSegmentShift);
+        try {
+            pool.invoke(new SortTask(numbers, scratch, from, threshold, mergeThreshold, from, to, 0, false));
+        } finally {
+            scratch.free();
+        }
+    }
+
+    static void merge(OffHeapLongArray src, int from1, int to1, int from2, int to2, OffHeapLongArray dst, int dstFrom) {
+        int i = from1, j = from2, idx = dstFrom;
+        while (i < to1 && j < to2) {
+            long a = src.get(i);
+            long b = src.get(j);
+            if (a <= b) {
+                dst.put(idx++, a);
+                i++;
+            } else {
+                dst.put(idx++, b);
+                j++;
+            }
+        }
+        for (; i < to1; i++) {
+            dst.put(idx++, src.get(i));
+        }
+        for (; j < to2; j++) {
+            dst.put(idx++, src.get(j));
+        }
+    }
+
+    static int lowerBound(OffHeapLongArray numbers, int from, int to, long value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (numbers.get(middle) < value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    static int upperBound(OffHeapLongArray numbers, int from, int to, long value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (numbers.get(middle) <= value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    static void insertionSort(OffHeapLongArray numbers, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long value = numbers.get(i);
+            int j = i - 1;
+            while (j >= from && numbers.get(j) > value) {
+                numbers.put(j + 1, numbers.get(j));
+                j--;
+            }
+            numbers.put(j + 1, value);
+        }
+    }
+
+    /**
+     * Parallel merge, see {@link IntMergeSort.MergeTask}.
+     */
+    private static class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 4457839034187151097L;
+
+        private final OffHeapLongArray src;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final OffHeapLongArray dst;
+        private final int dstFrom;
+        private final int threshold;
+
+        private MergeTask(OffHeapLongArray src, int from1, int to1, int from2, int to2, OffHeapLongArray dst, int dstFrom, int threshold) {
+            this.src = src;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= threshold || length1 == 0 || length2 == 0) {
+                merge(src, from1, to1, from2, to2, dst, dstFrom);
+                return;
+            }
+            int split1, split2;
+            if (length1 >= length2) {
+                split1 = (from1 + to1) >>> 1;
+                split2 = lowerBound(src, from2, to2, src.get(split1));
+            } else {
+                split2 = (from2 + to2) >>> 1;
+                split1 = upperBound(src, from1, to1, src.get(split2));
+            }
+            int dstSplit = dstFrom + (split1 - from1) + (split2 - from2);
+            MergeTask taskLeft = new MergeTask(src, from1, split1, from2, split2, dst, dstFrom, threshold);
+            MergeTask taskRight = new MergeTask(src, split1, to1, split2, to2, dst, dstSplit, threshold);
+            taskRight.fork();
+            taskLeft.compute();
+            taskRight.join();
+        }
+    }
+
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = -1580410368396287826L;
+
+        private final OffHeapLongArray numbers;
+        private final OffHeapLongArray scratch;
+        /**
+         * Index i of numbers corresponds to index i - offset of scratch.
+         */
+        private final int offset;
+        private final int threshold;
+        private final int mergeThreshold;
+        private final int from;
+        private final int to;
+        private final int depth;
+        private final boolean toScratch;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(OffHeapLongArray numbers, OffHeapLongArray scratch, int offset, int threshold, int mergeThreshold,
+                         int from, int to, int depth, boolean toScratch) {
+            this.numbers = numbers;
+            this.scratch = scratch;
+            this.offset = offset;
+            this.threshold = threshold;
+            this.mergeThreshold = mergeThreshold;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.toScratch = toScratch;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                sortSequentially(from, to, toScratch);
+            } else {
+                int middle = from + (to - from) / 2;
+                SortTask taskLeft = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, from, middle, depth + 1, !toScratch);
+                SortTask taskRight = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, middle, to, depth + 1, !toScratch);
+                observer.taskWaiting(depth, from, to);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+                taskRight.join();
+                observer.mergeStarted(depth, from, to);
+                if (toScratch) {
+                    new MergeTask(numbers, from, middle, middle, to, scratch, from - offset, mergeThreshold).compute();
+                } else {
+                    new MergeTask(scratch, from - offset, middle - offset, middle - offset, to - offset, numbers, from, mergeThreshold).compute();
+                }
+            }
+            observer.taskFinished(depth, from, to);
+        }
+
+        /**
+         * Same ping-pong merge sort as the tasks do, just without forking.
+         */
+        private void sortSequentially(int lo, int hi, boolean intoScratch) {
+            if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+                if (intoScratch) {
+                    for (int i = lo; i < hi; i++) {
+                        scratch.put(i - offset, numbers.get(i));
+                    }
+                    insertionSort(scratch, lo - offset, hi - offset);
+                } else {
+                    insertionSort(numbers, lo, hi);
+                }
+                return;
+            }
+            int middle = lo + (hi - lo) / 2;
+            sortSequentially(lo, middle, !intoScratch);
+            sortSequentially(middle, hi, !intoScratch);
+            if (intoScratch) {
+                merge(numbers, lo, middle, middle, hi, scratch, lo - offset);
+            } else {
+                merge(scratch, lo - offset, middle - offset, middle - offset, hi - offset, numbers, lo);
+            }
+        }
+    }
+}
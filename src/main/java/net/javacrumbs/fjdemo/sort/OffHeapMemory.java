@@ -0,0 +1,94 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Allocates and frees direct buffers. Direct buffers are normally freed only after they are garbage collected,
+ * {@link #free(ByteBuffer)} releases the memory immediately.
+ */
+public final class OffHeapMemory {
+    /**
+     * Set once freeing failed, the JVM does not allow it and the following buffers are left to the garbage collector.
+     */
+    private static volatile boolean freeUnsupported;
+
+    private OffHeapMemory() {
+    }
+
+    /**
+     * Allocates direct buffer in native byte order.
+     */
+    public static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Frees memory of a direct buffer allocated by {@link #allocate(int)}. The buffer and all its views
+     * must not be used afterwards. If the JVM does not allow it, a warning is printed once and the memory
+     * of this and all the following buffers is left to the garbage collector.
+     *
+     * @throws IllegalArgumentException if the JVM refuses to free a view of a buffer
+     */
+    public static void free(ByteBuffer buffer) {
+        if (!buffer.isDirect() || freeUnsupported) {
+            return;
+        }
+        //implementation specific
+        try {
+            try {
+                // Java 9+
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                freeJava8(buffer);
+            }
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            freeUnsupported(e.getCause());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            freeUnsupported(e);
+        }
+    }
+
+    private static void freeJava8(ByteBuffer buffer) throws ReflectiveOperationException {
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+            Method clean = cleaner.getClass().getMethod("clean");
+            clean.setAccessible(true);
+            clean.invoke(cleaner);
+        }
+    }
+
+    private static synchronized void freeUnsupported(Throwable e) {
+        if (!freeUnsupported) {
+            freeUnsupported = true;
+            System.err.println("Direct buffers can not be freed explicitly, their memory is left to the garbage collector: " + e);
+        }
+    }
+}
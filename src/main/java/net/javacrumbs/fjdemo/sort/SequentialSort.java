@@ -0,0 +1,147 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+
+/**
+ * Sequential kernels used by the leaves of the fork/join sorts.
+ */
+public final class SequentialSort {
+    /**
+     * Ranges up to this size are sorted by insertion sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private SequentialSort() {
+    }
+
+    /**
+     * Sorts range from (inclusive) to (exclusive). Insertion sort is used for tiny ranges, Arrays.sort for the rest.
+     */
+    public static void sort(int[] numbers, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(numbers, from, to);
+        } else {
+            Arrays.sort(numbers, from, to);
+        }
+    }
+
+    public static void insertionSort(int[] numbers, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int value = numbers[i];
+            int j = i - 1;
+            while (j >= from && numbers[j] > value) {
+                numbers[j + 1] = numbers[j];
+                j--;
+            }
+            numbers[j + 1] = value;
+        }
+    }
+
+    /**
+     * Heap sort, O(n log n) in the worst case. Used when quicksort recursion gets too deep.
+     */
+    public static void heapSort(int[] numbers, int from, int to) {
+        int size = to - from;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(numbers, from, i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            int tmp = numbers[from];
+            numbers[from] = numbers[from + end];
+            numbers[from + end] = tmp;
+            siftDown(numbers, from, 0, end);
+        }
+    }
+
+    private static void siftDown(int[] numbers, int from, int node, int size) {
+        int value = numbers[from + node];
+        int child;
+        while ((child = 2 * node + 1) < size) {
+            if (child + 1 < size && numbers[from + child + 1] > numbers[from + child]) {
+                child++;
+            }
+            if (numbers[from + child] <= value) {
+                break;
+            }
+            numbers[from + node] = numbers[from + child];
+            node = child;
+        }
+        numbers[from + node] = value;
+    }
+
+    public static void sort(long[] numbers, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(numbers, from, to);
+        } else {
+            Arrays.sort(numbers, from, to);
+        }
+    }
+
+    public static void insertionSort(long[] numbers, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long value = numbers[i];
+            int j = i - 1;
+            while (j >= from && numbers[j] > value) {
+                numbers[j + 1] = numbers[j];
+                j--;
+            }
+            numbers[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sorts range from (inclusive) to (exclusive) in the order defined by {@link Double#compare(double, double)}.
+     */
+    public static void sort(double[] numbers, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(numbers, from, to);
+        } else {
+            Arrays.sort(numbers, from, to);
+        }
+    }
+
+    public static void insertionSort(double[] numbers, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double value = numbers[i];
+            int j = i - 1;
+            while (j >= from && Double.compare(numbers[j], value) > 0) {
+                numbers[j + 1] = numbers[j];
+                j--;
+            }
+            numbers[j + 1] = value;
+        }
+    }
+
+    /**
+     * Stable insertion sort of keys, values are moved together with their keys.
+     */
+    public static void insertionSort(long[] keys, int[] values, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+}
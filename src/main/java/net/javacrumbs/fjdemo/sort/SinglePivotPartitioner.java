@@ -0,0 +1,65 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+/**
+ * Hoare partitioning, the median of first, middle and last element is used as the pivot.
+ */
+class SinglePivotPartitioner implements IntPartitioner {
+    @Override
+    public int partition(int[] numbers, int from, int to, int[] ranges) {
+        int last = to - 1;
+        int middle = from + (to - from) / 2;
+        // move median of three to the start
+        if (numbers[middle] < numbers[from]) {
+            swap(numbers, middle, from);
+        }
+        if (numbers[last] < numbers[from]) {
+            swap(numbers, last, from);
+        }
+        if (numbers[last] < numbers[middle]) {
+            swap(numbers, last, middle);
+        }
+        swap(numbers, from, middle);
+
+        int pivot = numbers[from];
+        int i = from - 1;
+        int j = to;
+        while (true) {
+            do {
+                i++;
+            } while (numbers[i] < pivot);
+            do {
+                j--;
+            } while (numbers[j] > pivot);
+            if (i >= j) {
+                break;
+            }
+            swap(numbers, i, j);
+        }
+        ranges[0] = from;
+        ranges[1] = j + 1;
+        ranges[2] = j + 1;
+        ranges[3] = to;
+        return 2;
+    }
+
+    static void swap(int[] numbers, int i, int j) {
+        int tmp = numbers[i];
+        numbers[i] = numbers[j];
+        numbers[j] = tmp;
+    }
+}
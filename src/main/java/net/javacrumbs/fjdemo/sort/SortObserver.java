@@ -0,0 +1,63 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+/**
+ * Receives notifications about the life cycle of sort tasks. A task is identified by its depth in the task tree
+ * and by the range of the array it sorts, the pair (depth, from) is unique within one sort.
+ * <p>
+ * Methods are called from worker threads, implementations have to be thread safe. All methods do nothing by default.
+ */
+public interface SortObserver {
+    /**
+     * Observer that ignores all the events.
+     */
+    SortObserver NONE = new SortObserver() {
+    };
+
+    default void taskCreated(int depth, int from, int to) {
+    }
+
+    default void taskStarted(int depth, int from, int to) {
+    }
+
+    /**
+     * The task has been pushed to the queue of the current worker.
+     */
+    default void taskForked(int depth, int from, int to) {
+    }
+
+    /**
+     * Forked task is executed by a different thread than the one that forked it.
+     */
+    default void taskStolen(int depth, int from, int to) {
+    }
+
+    /**
+     * The task has forked its subtasks and waits for them to finish.
+     */
+    default void taskWaiting(int depth, int from, int to) {
+    }
+
+    default void mergeStarted(int depth, int from, int to) {
+    }
+
+    /**
+     * Range from-to is sorted.
+     */
+    default void taskFinished(int depth, int from, int to) {
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+/**
+ * Granularity settings of the sort engines. Instances are immutable.
+ */
+public final class SortSettings {
+    /**
+     * Threshold is derived from the pool parallelism and the size of the input.
+     */
+    public static final int AUTO = 0;
+
+    /**
+     * Smallest automatic threshold, smaller leaves do not pay for the task overhead. Same as in Arrays.parallelSort.
+     */
+    static final int MIN_AUTO_THRESHOLD = 1 << 13;
+
+    private static final SortSettings DEFAULTS = new SortSettings(AUTO, AUTO);
+
+    private final int sequentialThreshold;
+    private final int mergeThreshold;
+
+    private SortSettings(int sequentialThreshold, int mergeThreshold) {
+        this.sequentialThreshold = sequentialThreshold;
+        this.mergeThreshold = mergeThreshold;
+    }
+
+    public static SortSettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Ranges with at most threshold elements are sorted sequentially without forking subtasks.
+     */
+    public SortSettings withSequentialThreshold(int threshold) {
+        return new SortSettings(checkThreshold(threshold), mergeThreshold);
+    }
+
+    /**
+     * Merges of at most threshold elements are done sequentially, bigger merges are split into parallel subtasks.
+     */
+    public SortSettings withMergeThreshold(int threshold) {
+        return new SortSettings(sequentialThreshold, checkThreshold(threshold));
+    }
+
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    public int getMergeThreshold() {
+        return mergeThreshold;
+    }
+
+    /**
+     * Returns the sequential threshold to be used for sorting size elements using given parallelism.
+     * In automatic mode the input is split into roughly four leaves per thread.
+     */
+    public int sequentialThreshold(int size, int parallelism) {
+        return resolve(sequentialThreshold, size, parallelism);
+    }
+
+    /**
+     * Returns the merge threshold to be used for sorting size elements using given parallelism.
+     * In automatic mode the biggest merge is split into roughly four parts per thread.
+     */
+    public int mergeThreshold(int size, int parallelism) {
+        return resolve(mergeThreshold, size, parallelism);
+    }
+
+    private static int resolve(int threshold, int size, int parallelism) {
+        if (threshold != AUTO) {
+            return threshold;
+        }
+        return Math.max(size / (Math.max(parallelism, 1) << 2), MIN_AUTO_THRESHOLD);
+    }
+
+    private static int checkThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold has to be positive or AUTO, was " + threshold);
+        }
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return "SortSettings{sequentialThreshold=" + format(sequentialThreshold) + ", mergeThreshold=" + format(mergeThreshold) + "}";
+    }
+
+    private static String format(int threshold) {
+        return threshold == AUTO ? "auto" : Integer.toString(threshold);
+    }
+}
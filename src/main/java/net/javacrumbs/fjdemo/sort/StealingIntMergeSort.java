@@ -0,0 +1,165 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import net.javacrumbs.fjdemo.steal.StealingRecursiveAction;
+import net.javacrumbs.fjdemo.steal.WorkStealingExecutor;
+
+import static java.util.Objects.requireNonNull;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.checkRange;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.isSequentialMerge;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.merge;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.sortLeaf;
+import static net.javacrumbs.fjdemo.sort.IntMergeSort.splitRuns;
+
+/**
+ * {@link IntMergeSort} running on a {@link WorkStealingExecutor}, so the executors and their policies can be compared
+ * on the same workload. Splitting, merging and leaf sorting are the static helpers of IntMergeSort, the tasks here
+ * only fork and join them on the other executor.
+ */
+public class StealingIntMergeSort {
+    private final SortSettings settings;
+    private final SortObserver observer;
+
+    public StealingIntMergeSort() {
+        this(SortSettings.defaults());
+    }
+
+    public StealingIntMergeSort(SortSettings settings) {
+        this(settings, SortObserver.NONE);
+    }
+
+    public StealingIntMergeSort(SortSettings settings, SortObserver observer) {
+        this.settings = requireNonNull(settings);
+        this.observer = requireNonNull(observer);
+    }
+
+    public void sort(WorkStealingExecutor executor, int[] numbers) {
+        sort(executor, numbers, 0, numbers.length);
+    }
+
+    public void sort(WorkStealingExecutor executor, int[] numbers, int from, int to) {
+        checkRange(numbers.length, from, to);
+        int parallelism = executor.getParallelism();
+        int threshold = Math.max(settings.sequentialThreshold(to - from, parallelism), 1);
+        int mergeThreshold = Math.max(settings.mergeThreshold(to - from, parallelism), 2);
+        executor.invoke(new SortTask(numbers, new int[to - from], from, threshold, mergeThreshold, from, to, 0, false));
+    }
+
+    static class MergeTask extends StealingRecursiveAction {
+        private final int[] src;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final int[] dst;
+        private final int dstFrom;
+        private final int threshold;
+
+        MergeTask(int[] src, int from1, int to1, int from2, int to2, int[] dst, int dstFrom, int threshold) {
+            this.src = src;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.dst = dst;
+            this.dstFrom = dstFrom;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (isSequentialMerge(to1 - from1, to2 - from2, threshold)) {
+                merge(src, from1, to1, from2, to2, dst, dstFrom);
+                return;
+            }
+            long split = splitRuns(src, from1, to1, from2, to2);
+            int split1 = (int) (split >>> 32);
+            int split2 = (int) split;
+            int dstSplit = dstFrom + (split1 - from1) + (split2 - from2);
+            MergeTask taskLeft = new MergeTask(src, from1, split1, from2, split2, dst, dstFrom, threshold);
+            MergeTask taskRight = new MergeTask(src, split1, to1, split2, to2, dst, dstSplit, threshold);
+            taskRight.fork();
+            taskLeft.compute();
+            taskRight.join();
+        }
+    }
+
+    private class SortTask extends StealingRecursiveAction {
+        private final int[] numbers;
+        private final int[] scratch;
+        /**
+         * Index i of numbers corresponds to index i - offset of scratch.
+         */
+        private final int offset;
+        private final int threshold;
+        private final int mergeThreshold;
+        private final int from;
+        private final int to;
+        private final int depth;
+        /**
+         * If true, the sorted range is written to the scratch buffer instead of numbers.
+         */
+        private final boolean toScratch;
+        /**
+         * Thread that forked the task, null if the task was not forked.
+         */
+        private Thread forkedBy;
+
+        private SortTask(int[] numbers, int[] scratch, int offset, int threshold, int mergeThreshold,
+                         int from, int to, int depth, boolean toScratch) {
+            this.numbers = numbers;
+            this.scratch = scratch;
+            this.offset = offset;
+            this.threshold = threshold;
+            this.mergeThreshold = mergeThreshold;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.toScratch = toScratch;
+            observer.taskCreated(depth, from, to);
+        }
+
+        @Override
+        protected void compute() {
+            if (forkedBy != null && forkedBy != Thread.currentThread()) {
+                observer.taskStolen(depth, from, to);
+            }
+            observer.taskStarted(depth, from, to);
+            if (to - from <= threshold) {
+                sortLeaf(numbers, scratch, offset, from, to, toScratch);
+            } else {
+                int middle = from + (to - from) / 2;
+                // children write to the other buffer, we merge them back to our target
+                SortTask taskLeft = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, from, middle, depth + 1, !toScratch);
+                SortTask taskRight = new SortTask(numbers, scratch, offset, threshold, mergeThreshold, middle, to, depth + 1, !toScratch);
+                observer.taskWaiting(depth, from, to);
+                taskRight.forkedBy = Thread.currentThread();
+                observer.taskForked(depth + 1, middle, to);
+                taskRight.fork();
+                taskLeft.compute();
+                taskRight.join();
+                observer.mergeStarted(depth, from, to);
+                if (toScratch) {
+                    new MergeTask(numbers, from, middle, middle, to, scratch, from - offset, mergeThreshold).compute();
+                } else {
+                    new MergeTask(scratch, from - offset, middle - offset, middle - offset, to - offset, numbers, from, mergeThreshold).compute();
+                }
+            }
+            observer.taskFinished(depth, from, to);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts int data that arrive in chunks, so the sorting overlaps with ingestion instead of starting after it.
+ * <p>
+ * Every chunk is sorted by {@link IntMergeSort} in the pool as soon as it is added. Sorted runs are kept
+ * in levels of a log-structured merge tree: chunks enter level 0 and whenever a level collects fanout runs,
+ * they are merged in the background to a single run of the next level. Every element is therefore merged about
+ * log(chunks) / log(fanout) times and at most fanout - 1 runs per level remain when the input is closed.
+ * {@link #finish()} waits for the running tasks and merges the remaining runs in one parallel k-way merge.
+ * <p>
+ * K-way merges are split into independent parts by splitters picked from the longest run; the position of each
+ * splitter in the other runs is found by binary search and every part is merged by a {@link LoserTree}.
+ * <p>
+ * Chunks can be added from any thread. One instance sorts one stream of data.
+ */
+public class StreamingIntSort {
+    public static final int DEFAULT_FANOUT = 4;
+    /**
+     * Some JVMs can not allocate arrays of Integer.MAX_VALUE elements.
+     */
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ForkJoinPool pool;
+    private final SortSettings settings;
+    private final int fanout;
+    private final IntMergeSort sort;
+    private final Object lock = new Object();
+    /**
+     * Sorted runs by level, guarded by lock.
+     */
+    private final List<List<int[]>> levels = new ArrayList<>();
+    /**
+     * Number of sort and merge tasks that have been submitted and have not finished, guarded by lock.
+     */
+    private int pendingTasks;
+    private boolean closed;
+    /**
+     * True once the sorted data were handed out by {@link #finish()}, guarded by lock.
+     */
+    private boolean finished;
+    private Throwable failure;
+    private long size;
+    private int merges;
+    private long mergedElements;
+
+    public StreamingIntSort(ForkJoinPool pool) {
+        this(pool, SortSettings.defaults(), DEFAULT_FANOUT);
+    }
+
+    /**
+     * @param fanout number of runs of one level merged together, at least 2
+     */
+    public StreamingIntSort(ForkJoinPool pool, SortSettings settings, int fanout) {
+        if (fanout < 2) {
+            throw new IllegalArgumentException("Fanout has to be at least 2, was " + fanout);
+        }
+        this.pool = requireNonNull(pool);
+        this.settings = requireNonNull(settings);
+        this.fanout = fanout;
+        this.sort = new IntMergeSort(settings);
+    }
+
+    public void add(int[] chunk) {
+        add(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Submits range from (inclusive) to (exclusive) of the chunk to be sorted. The range is copied,
+     * the caller can reuse the array.
+     *
+     * @throws IllegalStateException if the input has been closed by {@link #finish()} or the data would not fit to an array
+     */
+    public void add(int[] chunk, int from, int to) {
+        IntMergeSort.checkRange(chunk.length, from, to);
+        int[] run = Arrays.copyOfRange(chunk, from, to);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Input is closed");
+            }
+            if (run.length == 0) {
+                return;
+            }
+            if (size + run.length > MAX_SIZE) {
+                throw new IllegalStateException("The sorted data would not fit to an array, size is " + size);
+            }
+            size += run.length;
+            pendingTasks++;
+        }
+        pool.execute(new ChunkTask(run));
+    }
+
+    /**
+     * Closes the input, waits until all the chunks are sorted and returns all the data sorted.
+     * Can be called only once.
+     *
+     * @throws IllegalStateException if sorting of some of the chunks failed or the data were already finished
+     */
+    public int[] finish() throws InterruptedException {
+        List<int[]> runs = new ArrayList<>();
+        synchronized (lock) {
+            closed = true;
+            while (pendingTasks > 0) {
+                lock.wait();
+            }
+            if (finished) {
+                throw new IllegalStateException("Already finished");
+            }
+            finished = true;
+            if (failure != null) {
+                throw new IllegalStateException("Sort failed", failure);
+            }
+            for (List<int[]> level : levels) {
+                runs.addAll(level);
+                level.clear();
+            }
+        }
+        if (runs.isEmpty()) {
+            return new int[0];
+        }
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+        int[] result = new int[(int) size];
+        pool.invoke(newMergeTask(runs, result));
+        return result;
+    }
+
+    /**
+     * Returns number of elements added so far.
+     */
+    public long getSize() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns number of background merges started so far, the final merge is not counted.
+     */
+    public int getMerges() {
+        synchronized (lock) {
+            return merges;
+        }
+    }
+
+    /**
+     * Returns number of elements written by the background merges. Divided by the size it is the write
+     * amplification of the merge policy.
+     */
+    public long getMergedElements() {
+        synchronized (lock) {
+            return mergedElements;
+        }
+    }
+
+    /**
+     * Adds a sorted run to the level and starts merge of the level if it is full. Called when a task finishes.
+     */
+    private void runFinished(int level, int[] run) {
+        List<int[]> toMerge = null;
+        synchronized (lock) {
+            while (levels.size() <= level) {
+                levels.add(new ArrayList<>());
+            }
+            List<int[]> runs = levels.get(level);
+            runs.add(run);
+            // after the input is closed the remaining runs go directly to the final merge
+            if (runs.size() >= fanout && !closed && failure == null) {
+                toMerge = new ArrayList<>(runs);
+                runs.clear();
+                pendingTasks++;
+                merges++;
+                for (int[] merged : toMerge) {
+                    mergedElements += merged.length;
+                }
+            }
+            taskFinished();
+        }
+        if (toMerge != null) {
+            pool.execute(new LevelMergeTask(level + 1, toMerge));
+        }
+    }
+
+    private void taskFailed(Throwable e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+            taskFinished();
+        }
+    }
+
+    private void taskFinished() {
+        if (--pendingTasks == 0) {
+            lock.notifyAll();
+        }
+    }
+
+    private RecursiveAction newMergeTask(List<int[]> runs, int[] target) {
+        long length = 0;
+        int[] longest = runs.get(0);
+        for (int[] run : runs) {
+            length += run.length;
+            if (run.length > longest.length) {
+                longest = run;
+            }
+        }
+        int partSize = Math.max(settings.mergeThreshold((int) length, pool.getParallelism()), 1);
+        int parts = (int) Math.min((length + partSize - 1) / partSize, longest.length);
+        int[][] cuts = new int[runs.size()][parts + 1];
+        for (int r = 0; r < cuts.length; r++) {
+            int[] run = runs.get(r);
+            for (int part = 1; part < parts; part++) {
+                int splitter = longest[(int) ((long) part * longest.length / parts)];
+                cuts[r][part] = IntMergeSort.lowerBound(run, 0, run.length, splitter);
+            }
+            cuts[r][parts] = run.length;
+        }
+        return new KWayMergeTask(runs, cuts, target, 0, parts);
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = -2412396216455416453L;
+
+        private final int[] run;
+
+        private ChunkTask(int[] run) {
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                sort.createTask(run, 0, run.length, pool.getParallelism()).invoke();
+            } catch (Throwable e) {
+                taskFailed(e);
+                return;
+            }
+            runFinished(0, run);
+        }
+    }
+
+    private class LevelMergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 5174262950093540411L;
+
+        private final int level;
+        private final List<int[]> runs;
+
+        private LevelMergeTask(int level, List<int[]> runs) {
+            this.level = level;
+            this.runs = runs;
+        }
+
+        @Override
+        protected void compute() {
+            int[] merged;
+            try {
+                int length = 0;
+                for (int[] run : runs) {
+                    length += run.length;
+                }
+                merged = new int[length];
+                newMergeTask(runs, merged).invoke();
+            } catch (Throwable e) {
+                taskFailed(e);
+                return;
+            }
+            runFinished(level, merged);
+        }
+    }
+
+    /**
+     * Merges parts fromPart (inclusive) to toPart (exclusive) of the runs. Part p of run r is the range
+     * cuts[r][p] - cuts[r][p + 1], all the values of part p are smaller than values of part p + 1 in any run.
+     */
+    private static class KWayMergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 2816093372620498617L;
+
+        private final List<int[]> runs;
+        private final int[][] cuts;
+        private final int[] target;
+        private final int fromPart;
+        private final int toPart;
+
+        private KWayMergeTask(List<int[]> runs, int[][] cuts, int[] target, int fromPart, int toPart) {
+            this.runs = runs;
+            this.cuts = cuts;
+            this.target = target;
+            this.fromPart = fromPart;
+            this.toPart = toPart;
+        }
+
+        @Override
+        protected void compute() {
+            if (toPart - fromPart > 1) {
+                int middle = (fromPart + toPart) >>> 1;
+                invokeAll(new KWayMergeTask(runs, cuts, target, fromPart, middle),
+                    new KWayMergeTask(runs, cuts, target, middle, toPart));
+                return;
+            }
+            int position = 0;
+            LoserTree.Run[] parts = new LoserTree.Run[runs.size()];
+            for (int r = 0; r < parts.length; r++) {
+                position += cuts[r][fromPart];
+                parts[r] = new ArrayRun(runs.get(r), cuts[r][fromPart], cuts[r][fromPart + 1]);
+            }
+            LoserTree tree = new LoserTree(parts);
+            while (!tree.isExhausted()) {
+                target[position++] = (int) tree.min();
+                tree.advance();
+            }
+        }
+    }
+
+    private static class ArrayRun implements LoserTree.Run {
+        private final int[] numbers;
+        private final int to;
+        private int index;
+
+        private ArrayRun(int[] numbers, int from, int to) {
+            this.numbers = numbers;
+            this.index = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return index >= to;
+        }
+
+        @Override
+        public long current() {
+            return numbers[index];
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.spliterator;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits an iterator by copying batches of elements to arrays. The JDK does the same for iterators, but its batches
+ * start at 1024 elements, so a source with less elements is never split no matter how expensive the elements are.
+ * Here the first batch and the growth of batches are configurable: the n-th batch has
+ * {@code firstBatch + (n - 1) * batchIncrement} elements. Batches are array backed, so they are SIZED and SUBSIZED
+ * and split evenly. The remainder is SIZED only if the size of the source was given.
+ */
+public class BatchingIteratorSpliterator<T> implements RangeSpliterator<T> {
+    /**
+     * Limit of the batch size, so growing batches do not exhaust memory.
+     */
+    public static final int MAX_BATCH = 1 << 25;
+
+    private final Iterator<? extends T> iterator;
+    private final int characteristics;
+    private final int batchIncrement;
+    private int batch;
+    /**
+     * Remaining elements, -1 if not known.
+     */
+    private long remaining;
+    private long origin;
+
+    /**
+     * Creates spliterator of a source with unknown size.
+     */
+    public BatchingIteratorSpliterator(Iterator<? extends T> iterator, int characteristics, int firstBatch, int batchIncrement) {
+        this(iterator, -1, characteristics, firstBatch, batchIncrement);
+    }
+
+    /**
+     * @param size number of elements of the iterator, -1 if not known
+     */
+    public BatchingIteratorSpliterator(Iterator<? extends T> iterator, long size, int characteristics, int firstBatch, int batchIncrement) {
+        if (firstBatch < 1 || batchIncrement < 0) {
+            throw new IllegalArgumentException("Invalid batches " + firstBatch + " + n * " + batchIncrement);
+        }
+        this.iterator = requireNonNull(iterator);
+        this.remaining = size;
+        this.batch = firstBatch;
+        this.batchIncrement = batchIncrement;
+        int c = characteristics & ~(SIZED | SUBSIZED);
+        this.characteristics = size >= 0 ? c | SIZED | SUBSIZED : c;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (remaining == 0 || remaining == 1 || !iterator.hasNext()) {
+            return null;
+        }
+        int n = remaining > 0 ? (int) Math.min(batch, remaining - 1) : batch;
+        Object[] array = new Object[n];
+        int count = 0;
+        while (count < n && iterator.hasNext()) {
+            array[count++] = iterator.next();
+        }
+        batch = (int) Math.min((long) batch + batchIncrement, MAX_BATCH);
+        origin += count;
+        if (remaining > 0) {
+            remaining -= count;
+        }
+        return Spliterators.spliterator(array, 0, count, characteristics & ~(SIZED | SUBSIZED));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        requireNonNull(action);
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        origin++;
+        if (remaining > 0) {
+            remaining--;
+        }
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        requireNonNull(action);
+        while (iterator.hasNext()) {
+            origin++;
+            action.accept(iterator.next());
+        }
+        remaining = 0;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining >= 0 ? remaining : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    @Override
+    public long getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public long getFence() {
+        return remaining >= 0 ? origin + remaining : -1;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.spliterator;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits a list so both parts have the same estimated cost instead of the same number of elements.
+ * Costs are summed upfront in one sequential pass, every split is then a binary search.
+ * <p>
+ * Streams stop splitting when the estimated size of a part drops below a threshold derived from the size of
+ * the whole source. A part with few expensive elements would then never be split, so the spliterator reports
+ * its cost converted to the number of average elements as the estimated size. The estimate is not the exact
+ * number of elements, so the spliterator is not SIZED.
+ */
+public class CostWeightedSpliterator<T> implements RangeSpliterator<T> {
+    private final List<T> list;
+    /**
+     * costs[i] is the total cost of elements before index i, shared by all the parts.
+     */
+    private final double[] costs;
+    private final double averageCost;
+    private int origin;
+    private final int fence;
+
+    /**
+     * @param list list with fast random access
+     * @param cost estimated cost of processing of an element, has to be non-negative
+     */
+    public CostWeightedSpliterator(List<T> list, ToDoubleFunction<? super T> cost) {
+        if (!(list instanceof RandomAccess)) {
+            throw new IllegalArgumentException("List has to support random access");
+        }
+        this.list = list;
+        this.costs = new double[list.size() + 1];
+        for (int i = 0; i < list.size(); i++) {
+            double c = cost.applyAsDouble(list.get(i));
+            if (!(c >= 0)) {
+                throw new IllegalArgumentException("Invalid cost " + c + " of element " + i);
+            }
+            costs[i + 1] = costs[i] + c;
+        }
+        this.averageCost = list.isEmpty() ? 0 : costs[list.size()] / list.size();
+        this.origin = 0;
+        this.fence = list.size();
+    }
+
+    private CostWeightedSpliterator(List<T> list, double[] costs, double averageCost, int origin, int fence) {
+        this.list = list;
+        this.costs = costs;
+        this.averageCost = averageCost;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (fence - origin < 2) {
+            return null;
+        }
+        double half = (costs[origin] + costs[fence]) / 2;
+        // first index whose prefix cost reaches the half, both parts get at least one element
+        int lo = origin + 1;
+        int hi = fence - 1;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (costs[middle] < half) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        CostWeightedSpliterator<T> prefix = new CostWeightedSpliterator<>(list, costs, averageCost, origin, lo);
+        origin = lo;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        requireNonNull(action);
+        if (origin >= fence) {
+            return false;
+        }
+        action.accept(list.get(origin++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        requireNonNull(action);
+        int i = origin;
+        origin = fence;
+        for (; i < fence; i++) {
+            action.accept(list.get(i));
+        }
+    }
+
+    /**
+     * Returns cost of the remaining elements divided by the average cost of an element.
+     */
+    @Override
+    public long estimateSize() {
+        if (origin >= fence) {
+            return 0;
+        }
+        if (averageCost == 0) {
+            return fence - origin;
+        }
+        return Math.max((long) Math.ceil((costs[fence] - costs[origin]) / averageCost), 1);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+
+    @Override
+    public long getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public long getFence() {
+        return fence;
+    }
+}
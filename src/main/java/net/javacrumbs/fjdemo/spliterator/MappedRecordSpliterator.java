@@ -0,0 +1,197 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.spliterator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits records of a byte buffer, typically a file mapped to memory. The buffer is split at the byte in the middle
+ * and the split point is moved after the next delimiter, so no record is cut in two. Unlike {@link
+ * java.nio.file.Files#lines(Path)} no thread has to read the file sequentially before the work can be split.
+ * <p>
+ * Records are read-only views of the buffer without the delimiter, the mapper converts them to elements when
+ * the element is requested. The delimiter has to be a single byte that does not occur inside of multi-byte
+ * characters, which is true for '\n' in UTF-8 and single byte charsets. The size of records is not known upfront,
+ * so the estimated size is the number of remaining bytes and the spliterator is not SIZED. Origin and fence are
+ * byte offsets.
+ */
+public class MappedRecordSpliterator<T> implements RangeSpliterator<T> {
+    /**
+     * Parts smaller than this number of bytes are not split.
+     */
+    public static final int DEFAULT_MINIMUM_SPLIT = 1024;
+
+    private final ByteBuffer buffer;
+    private final byte delimiter;
+    private final Function<? super ByteBuffer, ? extends T> mapper;
+    private final int minimumSplit;
+    private int origin;
+    private final int fence;
+
+    /**
+     * Splits bytes from position to limit of the buffer.
+     */
+    public MappedRecordSpliterator(ByteBuffer buffer, byte delimiter, Function<? super ByteBuffer, ? extends T> mapper) {
+        this(buffer.asReadOnlyBuffer(), delimiter, mapper, DEFAULT_MINIMUM_SPLIT, buffer.position(), buffer.limit());
+    }
+
+    private MappedRecordSpliterator(ByteBuffer buffer, byte delimiter, Function<? super ByteBuffer, ? extends T> mapper,
+                                    int minimumSplit, int origin, int fence) {
+        this.buffer = buffer;
+        this.delimiter = delimiter;
+        this.mapper = requireNonNull(mapper);
+        this.minimumSplit = minimumSplit;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * Returns spliterator that does not split parts smaller than minimumSplit bytes.
+     */
+    public MappedRecordSpliterator<T> withMinimumSplit(int minimumSplit) {
+        if (minimumSplit < 2) {
+            throw new IllegalArgumentException("Minimum split has to be at least 2, was " + minimumSplit);
+        }
+        return new MappedRecordSpliterator<>(buffer, delimiter, mapper, minimumSplit, origin, fence);
+    }
+
+    /**
+     * Maps the file to memory and returns its records as views of the mapped buffer.
+     */
+    public static Stream<ByteBuffer> records(Path file, byte delimiter, boolean parallel) throws IOException {
+        return StreamSupport.stream(new MappedRecordSpliterator<>(map(file), delimiter, Function.identity()), parallel);
+    }
+
+    /**
+     * Maps the file to memory and returns its lines. Lines are decoded only when consumed,
+     * both '\n' and "\r\n" line endings are supported.
+     */
+    public static Stream<String> lines(Path file, Charset charset, boolean parallel) throws IOException {
+        return StreamSupport.stream(new MappedRecordSpliterator<>(map(file), (byte) '\n', line -> decodeLine(line, charset)), parallel);
+    }
+
+    /**
+     * Maps the whole file read-only. The mapping stays valid after the channel is closed. A buffer is indexed by int,
+     * so files bigger than 2GB can not be mapped at once.
+     */
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " has " + size + " bytes, only files up to 2GB can be mapped");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Decodes the line removing the trailing '\r'.
+     */
+    public static String decodeLine(ByteBuffer line, Charset charset) {
+        int limit = line.limit();
+        if (limit > line.position() && line.get(limit - 1) == '\r') {
+            line.limit(limit - 1);
+        }
+        return charset.decode(line).toString();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (fence - origin < minimumSplit) {
+            return null;
+        }
+        int split = indexOfDelimiter((origin + fence) >>> 1) + 1;
+        if (split >= fence) {
+            // the second half is a single record
+            return null;
+        }
+        MappedRecordSpliterator<T> prefix = new MappedRecordSpliterator<>(buffer, delimiter, mapper, minimumSplit, origin, split);
+        origin = split;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        requireNonNull(action);
+        if (origin >= fence) {
+            return false;
+        }
+        action.accept(nextRecord());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        requireNonNull(action);
+        while (origin < fence) {
+            action.accept(nextRecord());
+        }
+    }
+
+    private T nextRecord() {
+        int end = indexOfDelimiter(origin);
+        ByteBuffer record = buffer.duplicate();
+        record.limit(end);
+        record.position(origin);
+        origin = end < fence ? end + 1 : fence;
+        return mapper.apply(record.slice());
+    }
+
+    /**
+     * Returns index of the first delimiter at or after the index, fence if there is none.
+     */
+    private int indexOfDelimiter(int from) {
+        for (int i = from; i < fence; i++) {
+            if (buffer.get(i) == delimiter) {
+                return i;
+            }
+        }
+        return fence;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public long getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public long getFence() {
+        return fence;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.spliterator;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stops splitting before the parts get smaller than the minimum leaf size. Streams derive their split threshold
+ * from the number of threads only, which creates thousands of tiny tasks for cheap elements on big machines.
+ * The size is estimated, so sources that do not know their size split until the wrapped spliterator refuses.
+ */
+public class MinimumLeafSpliterator<T> implements Spliterator<T> {
+    private final Spliterator<T> wrapped;
+    private final long minimumLeafSize;
+
+    public MinimumLeafSpliterator(Spliterator<T> wrapped, long minimumLeafSize) {
+        if (minimumLeafSize < 1) {
+            throw new IllegalArgumentException("Minimum leaf size has to be positive, was " + minimumLeafSize);
+        }
+        this.wrapped = requireNonNull(wrapped);
+        this.minimumLeafSize = minimumLeafSize;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // both parts have to be at least minimumLeafSize big
+        if (wrapped.estimateSize() / 2 < minimumLeafSize) {
+            return null;
+        }
+        Spliterator<T> prefix = wrapped.trySplit();
+        return prefix != null ? new MinimumLeafSpliterator<>(prefix, minimumLeafSize) : null;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        return wrapped.tryAdvance(action);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        wrapped.forEachRemaining(action);
+    }
+
+    @Override
+    public long estimateSize() {
+        return wrapped.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return wrapped.getExactSizeIfKnown();
+    }
+
+    @Override
+    public int characteristics() {
+        return wrapped.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return wrapped.getComparator();
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.spliterator;
+
+import java.util.Spliterator;
+
+/**
+ * Spliterator that knows the position of its elements in the source even if it can not report exact size.
+ */
+public interface RangeSpliterator<T> extends Spliterator<T> {
+
+    /**
+     * Index of the next element in the source.
+     */
+    long getOrigin();
+
+    /**
+     * Index after the last element in the source, -1 if not known.
+     */
+    long getFence();
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free work-stealing deque by Chase and Lev (Dynamic Circular Work-Stealing Deque, 2005). The owner pushes
+ * and pops at the bottom without atomic instructions except when it races with a thief for the last task, thieves
+ * take tasks from the top by CAS. The array grows when full and never shrinks. All the shared indices are volatile,
+ * accesses to volatiles are sequentially consistent in Java, which gives the store-load ordering the algorithm
+ * needs between writing bottom and reading top in pop.
+ */
+public class ChaseLevDeque<T> implements WorkDeque<T> {
+    private static final int INITIAL_CAPACITY = 1 << 8;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<ChaseLevDeque> TOP = AtomicLongFieldUpdater.newUpdater(ChaseLevDeque.class, "top");
+
+    private volatile long top;
+    private volatile long bottom;
+    private volatile AtomicReferenceArray<T> array = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    @Override
+    public void push(T task) {
+        long b = bottom;
+        long t = top;
+        AtomicReferenceArray<T> a = array;
+        if (b - t >= a.length() - 1) {
+            a = grow(a, t, b);
+        }
+        a.lazySet(index(a, b), task);
+        // volatile write publishes the task to the thieves
+        bottom = b + 1;
+    }
+
+    @Override
+    public T pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<T> a = array;
+        bottom = b;
+        long t = top;
+        if (t > b) {
+            // empty
+            bottom = b + 1;
+            return null;
+        }
+        int index = index(a, b);
+        T task = a.get(index);
+        if (t == b) {
+            // last task, race with the thieves
+            if (!TOP.compareAndSet(this, t, t + 1)) {
+                task = null;
+            }
+            bottom = b + 1;
+        }
+        if (task != null) {
+            a.lazySet(index, null);
+        }
+        return task;
+    }
+
+    @Override
+    public T poll() {
+        long t = top;
+        long b = bottom;
+        if (t >= b) {
+            return null;
+        }
+        AtomicReferenceArray<T> a = array;
+        int index = index(a, t);
+        T task = a.get(index);
+        if (task == null || !TOP.compareAndSet(this, t, t + 1)) {
+            return null;
+        }
+        // the owner may have reused the slot in the meantime, clear it only if it still holds the task
+        a.compareAndSet(index, task, null);
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(bottom - top, 0);
+    }
+
+    private AtomicReferenceArray<T> grow(AtomicReferenceArray<T> a, long t, long b) {
+        AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(a.length() * 2);
+        for (long i = t; i < b; i++) {
+            grown.lazySet(index(grown, i), a.get(index(a, i)));
+        }
+        array = grown;
+        return grown;
+    }
+
+    private static int index(AtomicReferenceArray<?> a, long i) {
+        return (int) i & (a.length() - 1);
+    }
+}
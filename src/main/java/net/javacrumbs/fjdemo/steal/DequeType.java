@@ -0,0 +1,36 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+/**
+ * Implementation of the deques of the workers.
+ */
+public enum DequeType {
+    CHASE_LEV {
+        @Override
+        <T> WorkDeque<T> create() {
+            return new ChaseLevDeque<>();
+        }
+    },
+    LOCKED {
+        @Override
+        <T> WorkDeque<T> create() {
+            return new LockedDeque<>();
+        }
+    };
+
+    abstract <T> WorkDeque<T> create();
+}
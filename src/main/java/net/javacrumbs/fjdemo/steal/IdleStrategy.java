@@ -0,0 +1,74 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a worker does when it finds no task. The idle count is the number of unsuccessful attempts in a row.
+ */
+public enum IdleStrategy {
+    /**
+     * Busy spins, lowest latency, burns a core per idle worker.
+     */
+    SPIN {
+        @Override
+        void idle(int idleCount) {
+        }
+    },
+    /**
+     * Gives the core to other threads but stays runnable.
+     */
+    YIELD {
+        @Override
+        void idle(int idleCount) {
+            Thread.yield();
+        }
+    },
+    /**
+     * Spins for a while, then parks with exponential backoff up to a millisecond. Parked workers are woken up
+     * when a new task is pushed.
+     */
+    PARK {
+        @Override
+        void idle(int idleCount) {
+            if (idleCount < SPINS) {
+                return;
+            }
+            int shift = Math.min(idleCount - SPINS, MAX_PARK_SHIFT);
+            LockSupport.parkNanos(this, MIN_PARK_NANOS << shift);
+        }
+
+        @Override
+        boolean parks(int idleCount) {
+            return idleCount >= SPINS;
+        }
+    };
+
+    private static final int SPINS = 64;
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final int MAX_PARK_SHIFT = 10;
+
+    abstract void idle(int idleCount);
+
+    /**
+     * Returns true if the worker would park, so it needs to be woken up when work arrives.
+     */
+    boolean parks(int idleCount) {
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+/**
+ * Order in which a worker takes tasks of its own deque when it looks for work. Joins always take the newest task
+ * first, the joined task was usually forked last.
+ */
+public enum LocalMode {
+    /**
+     * Newest task first, like ForkJoinPool. Big tasks stay at the top of the deque for the thieves.
+     */
+    LIFO {
+        @Override
+        <T> T next(WorkDeque<T> deque) {
+            return deque.pop();
+        }
+    },
+    /**
+     * Oldest task first, like ForkJoinPool in async mode. Suits tasks that are never joined.
+     */
+    FIFO {
+        @Override
+        <T> T next(WorkDeque<T> deque) {
+            return deque.poll();
+        }
+    };
+
+    abstract <T> T next(WorkDeque<T> deque);
+}
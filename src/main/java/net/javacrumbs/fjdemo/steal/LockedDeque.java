@@ -0,0 +1,70 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.ArrayDeque;
+
+/**
+ * Deque guarded by a lock, every operation of the owner and the thieves takes the lock. Stealing half of the tasks
+ * takes the lock once.
+ */
+public class LockedDeque<T> implements WorkDeque<T> {
+    private final ArrayDeque<T> deque = new ArrayDeque<>();
+
+    @Override
+    public synchronized void push(T task) {
+        deque.addLast(task);
+    }
+
+    @Override
+    public synchronized T pop() {
+        return deque.pollLast();
+    }
+
+    @Override
+    public synchronized T poll() {
+        return deque.pollFirst();
+    }
+
+    @Override
+    public T stealHalf(WorkDeque<T> thief) {
+        T first;
+        Object[] stolen;
+        synchronized (this) {
+            int count = Math.max(deque.size() / 2, 1);
+            first = deque.pollFirst();
+            if (first == null) {
+                return null;
+            }
+            stolen = new Object[count - 1];
+            for (int i = 0; i < stolen.length; i++) {
+                stolen[i] = deque.pollFirst();
+            }
+        }
+        // pushed outside of our lock, so two thieves stealing from each other can not deadlock
+        for (Object task : stolen) {
+            @SuppressWarnings("unchecked")
+            T t = (T) task;
+            thief.push(t);
+        }
+        return first;
+    }
+
+    @Override
+    public synchronized int size() {
+        return deque.size();
+    }
+}
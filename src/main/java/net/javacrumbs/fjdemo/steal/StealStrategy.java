@@ -0,0 +1,91 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a worker without local tasks chooses whom to steal from. Every strategy tries each of the other workers
+ * at most once per attempt.
+ */
+public enum StealStrategy {
+    /**
+     * Takes the oldest task of the first non-empty worker starting at a random one.
+     */
+    RANDOM {
+        @Override
+        StealingTask<?> steal(StealingWorkerThread thief, StealingWorkerThread[] workers) {
+            int start = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                StealingWorkerThread victim = workers[(start + i) % workers.length];
+                if (victim != thief) {
+                    StealingTask<?> task = victim.getDeque().poll();
+                    if (task != null) {
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+    },
+    /**
+     * Scans the workers in order starting at the last successful victim, which probably still has more work.
+     */
+    ROUND_ROBIN {
+        @Override
+        StealingTask<?> steal(StealingWorkerThread thief, StealingWorkerThread[] workers) {
+            int start = thief.nextVictim;
+            for (int i = 0; i < workers.length; i++) {
+                int index = (start + i) % workers.length;
+                StealingWorkerThread victim = workers[index];
+                if (victim != thief) {
+                    StealingTask<?> task = victim.getDeque().poll();
+                    if (task != null) {
+                        thief.nextVictim = index;
+                        return task;
+                    }
+                }
+            }
+            thief.nextVictim = (start + 1) % workers.length;
+            return null;
+        }
+    },
+    /**
+     * Like random, but moves half of the tasks of the victim to the thief's deque, so the thief does not have
+     * to steal again for its next task.
+     */
+    STEAL_HALF {
+        @Override
+        StealingTask<?> steal(StealingWorkerThread thief, StealingWorkerThread[] workers) {
+            int start = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                StealingWorkerThread victim = workers[(start + i) % workers.length];
+                if (victim != thief) {
+                    StealingTask<?> task = victim.getDeque().stealHalf(thief.getDeque());
+                    if (task != null) {
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    /**
+     * Returns a stolen task or null if all the other workers seem to be empty.
+     */
+    abstract StealingTask<?> steal(StealingWorkerThread thief, StealingWorkerThread[] workers);
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Policies of a {@link WorkStealingExecutor}. Instances are immutable.
+ */
+public final class StealingSettings {
+    private static final StealingSettings DEFAULTS = new StealingSettings(DequeType.CHASE_LEV, StealStrategy.RANDOM, LocalMode.LIFO, IdleStrategy.PARK);
+
+    private final DequeType dequeType;
+    private final StealStrategy stealStrategy;
+    private final LocalMode localMode;
+    private final IdleStrategy idleStrategy;
+
+    private StealingSettings(DequeType dequeType, StealStrategy stealStrategy, LocalMode localMode, IdleStrategy idleStrategy) {
+        this.dequeType = dequeType;
+        this.stealStrategy = stealStrategy;
+        this.localMode = localMode;
+        this.idleStrategy = idleStrategy;
+    }
+
+    /**
+     * Chase-Lev deques, random victims, LIFO local mode and parking, close to ForkJoinPool.
+     */
+    public static StealingSettings defaults() {
+        return DEFAULTS;
+    }
+
+    public StealingSettings withDequeType(DequeType dequeType) {
+        return new StealingSettings(requireNonNull(dequeType), stealStrategy, localMode, idleStrategy);
+    }
+
+    public StealingSettings withStealStrategy(StealStrategy stealStrategy) {
+        return new StealingSettings(dequeType, requireNonNull(stealStrategy), localMode, idleStrategy);
+    }
+
+    public StealingSettings withLocalMode(LocalMode localMode) {
+        return new StealingSettings(dequeType, stealStrategy, requireNonNull(localMode), idleStrategy);
+    }
+
+    public StealingSettings withIdleStrategy(IdleStrategy idleStrategy) {
+        return new StealingSettings(dequeType, stealStrategy, localMode, requireNonNull(idleStrategy));
+    }
+
+    public DequeType getDequeType() {
+        return dequeType;
+    }
+
+    public StealStrategy getStealStrategy() {
+        return stealStrategy;
+    }
+
+    public LocalMode getLocalMode() {
+        return localMode;
+    }
+
+    public IdleStrategy getIdleStrategy() {
+        return idleStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return "StealingSettings{deque=" + dequeType + ", steal=" + stealStrategy + ", local=" + localMode + ", idle=" + idleStrategy + "}";
+    }
+}
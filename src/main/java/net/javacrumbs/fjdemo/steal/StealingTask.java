@@ -0,0 +1,156 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+/**
+ * Task of a {@link WorkStealingExecutor}, the counterpart of {@link java.util.concurrent.ForkJoinTask}. Subclasses
+ * usually extend {@link StealingRecursiveAction} or {@link StealingRecursiveTask}. Tasks can be forked only by the
+ * workers of an executor and have to be executed at most once.
+ */
+public abstract class StealingTask<V> {
+    private static final int NEW = 0;
+    private static final int NORMAL = 1;
+    private static final int EXCEPTIONAL = 2;
+
+    private volatile int status;
+    private Throwable exception;
+    /**
+     * True if a thread outside of the executor waits for the task.
+     */
+    private volatile boolean externalWaiter;
+
+    /**
+     * Runs the computation and stores its result.
+     */
+    protected abstract void exec();
+
+    /**
+     * Returns result of the computation, null if the task was not completed.
+     */
+    public abstract V getRawResult();
+
+    /**
+     * Pushes the task to the deque of the current worker, from where it can be stolen.
+     *
+     * @throws IllegalStateException if the current thread is not a worker
+     */
+    public final StealingTask<V> fork() {
+        StealingWorkerThread worker = StealingWorkerThread.current();
+        if (worker == null) {
+            throw new IllegalStateException("Tasks can be forked only by workers of a WorkStealingExecutor");
+        }
+        worker.push(this);
+        return this;
+    }
+
+    /**
+     * Waits for the task and returns its result. Workers run other tasks while they wait.
+     */
+    public final V join() {
+        if (status == NEW) {
+            StealingWorkerThread worker = StealingWorkerThread.current();
+            if (worker != null) {
+                worker.awaitJoin(this);
+            } else {
+                awaitExternally();
+            }
+        }
+        return report();
+    }
+
+    /**
+     * Runs the task in the current thread and returns its result.
+     */
+    public final V invoke() {
+        run();
+        return report();
+    }
+
+    /**
+     * Forks the second task, runs the first one and joins the second one.
+     */
+    public static void invokeAll(StealingTask<?> task1, StealingTask<?> task2) {
+        task2.fork();
+        task1.invoke();
+        task2.join();
+    }
+
+    public final boolean isDone() {
+        return status != NEW;
+    }
+
+    final void run() {
+        if (status != NEW) {
+            return;
+        }
+        try {
+            exec();
+            complete(NORMAL);
+        } catch (Throwable e) {
+            exception = e;
+            complete(EXCEPTIONAL);
+        }
+    }
+
+    /**
+     * Completes a task that was never started, used for submissions rejected on shutdown.
+     */
+    final void reject(RuntimeException e) {
+        if (status == NEW) {
+            exception = e;
+            complete(EXCEPTIONAL);
+        }
+    }
+
+    private void complete(int completion) {
+        status = completion;
+        if (externalWaiter) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void awaitExternally() {
+        externalWaiter = true;
+        boolean interrupted = false;
+        synchronized (this) {
+            while (status == NEW) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private V report() {
+        if (status == EXCEPTIONAL) {
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            }
+            if (exception instanceof Error) {
+                throw (Error) exception;
+            }
+            throw new RuntimeException(exception);
+        }
+        return getRawResult();
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+/**
+ * Worker of a {@link WorkStealingExecutor}. Statistics are plain fields written only by the worker,
+ * values read by other threads may be slightly stale.
+ */
+public class StealingWorkerThread extends Thread {
+    /**
+     * Joins deeper than this do not steal, so a chain of joins that steal unrelated tasks can not overflow the stack.
+     */
+    private static final int MAX_HELP_DEPTH = 256;
+    private static final int JOIN_SPINS = 64;
+
+    private final WorkStealingExecutor executor;
+    private final int index;
+    private final WorkDeque<StealingTask<?>> deque;
+    private final StealStrategy stealStrategy;
+    private final LocalMode localMode;
+    private final IdleStrategy idleStrategy;
+    /**
+     * Next victim of the round-robin strategy.
+     */
+    int nextVictim;
+    private int helpDepth;
+    private volatile boolean parked;
+
+    private long executedTasks;
+    private long steals;
+    private long stealAttempts;
+    private long parks;
+
+    StealingWorkerThread(WorkStealingExecutor executor, int index, StealingSettings settings) {
+        super("stealing-worker-" + index);
+        this.executor = executor;
+        this.index = index;
+        this.deque = settings.getDequeType().create();
+        this.stealStrategy = settings.getStealStrategy();
+        this.localMode = settings.getLocalMode();
+        this.idleStrategy = settings.getIdleStrategy();
+        this.nextVictim = index + 1;
+        setDaemon(true);
+    }
+
+    /**
+     * Returns the current thread if it is a worker, null otherwise.
+     */
+    static StealingWorkerThread current() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof StealingWorkerThread ? (StealingWorkerThread) thread : null;
+    }
+
+    @Override
+    public void run() {
+        int idleCount = 0;
+        while (!executor.isShutdown()) {
+            StealingTask<?> task = localMode.next(deque);
+            if (task == null) {
+                task = steal();
+            }
+            if (task != null) {
+                idleCount = 0;
+                execute(task);
+            } else {
+                idle(idleCount++);
+            }
+        }
+    }
+
+    void push(StealingTask<?> task) {
+        deque.push(task);
+        executor.signalWork();
+    }
+
+    /**
+     * Runs other tasks until the task is done. Newest local tasks go first, they were usually forked
+     * by the joined task or after it.
+     */
+    void awaitJoin(StealingTask<?> joined) {
+        helpDepth++;
+        try {
+            int idleCount = 0;
+            while (!joined.isDone()) {
+                StealingTask<?> task = deque.pop();
+                if (task == null && helpDepth <= MAX_HELP_DEPTH) {
+                    task = steal();
+                }
+                if (task != null) {
+                    idleCount = 0;
+                    execute(task);
+                } else if (idleStrategy != IdleStrategy.SPIN && idleCount++ >= JOIN_SPINS) {
+                    // completion of the joined task does not wake parked workers, so joins yield instead of parking
+                    Thread.yield();
+                }
+            }
+        } finally {
+            helpDepth--;
+        }
+    }
+
+    private StealingTask<?> steal() {
+        stealAttempts++;
+        StealingTask<?> task = stealStrategy.steal(this, executor.getWorkers());
+        if (task != null) {
+            steals++;
+            return task;
+        }
+        return executor.pollSubmission();
+    }
+
+    private void execute(StealingTask<?> task) {
+        executedTasks++;
+        task.run();
+    }
+
+    private void idle(int idleCount) {
+        if (idleStrategy.parks(idleCount)) {
+            parks++;
+            parked = true;
+            executor.workerParked();
+            try {
+                idleStrategy.idle(idleCount);
+            } finally {
+                parked = false;
+                executor.workerUnparked();
+            }
+        } else {
+            idleStrategy.idle(idleCount);
+        }
+    }
+
+    WorkDeque<StealingTask<?>> getDeque() {
+        return deque;
+    }
+
+    boolean isParked() {
+        return parked;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getExecutedTasks() {
+        return executedTasks;
+    }
+
+    public long getSteals() {
+        return steals;
+    }
+
+    public long getStealAttempts() {
+        return stealAttempts;
+    }
+
+    public long getParks() {
+        return parks;
+    }
+}
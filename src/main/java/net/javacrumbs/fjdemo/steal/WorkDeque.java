@@ -0,0 +1,68 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+/**
+ * Deque of a worker. The owner pushes and pops at the bottom, thieves poll from the top.
+ */
+public interface WorkDeque<T> {
+
+    /**
+     * Adds the task to the bottom, called only by the owner.
+     */
+    void push(T task);
+
+    /**
+     * Removes the task from the bottom (the newest one), called only by the owner.
+     *
+     * @return the task or null if the deque is empty
+     */
+    T pop();
+
+    /**
+     * Removes the task from the top (the oldest one), may be called by any thread.
+     *
+     * @return the task or null if the deque is empty or the task was taken by a concurrent thread
+     */
+    T poll();
+
+    /**
+     * Moves about half of the tasks from the top of the deque to the thief deque. Called by the owner of the thief
+     * deque. One of the moved tasks is returned instead of being pushed, so the thief can run it immediately.
+     *
+     * @return a stolen task or null if nothing was stolen
+     */
+    default T stealHalf(WorkDeque<T> thief) {
+        int count = Math.max(size() / 2, 1);
+        T first = poll();
+        if (first == null) {
+            return null;
+        }
+        for (int i = 1; i < count; i++) {
+            T task = poll();
+            if (task == null) {
+                break;
+            }
+            thief.push(task);
+        }
+        return first;
+    }
+
+    /**
+     * Returns estimated number of tasks, may be stale if called concurrently.
+     */
+    int size();
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Work-stealing executor with pluggable policies, for experiments that ForkJoinPool does not allow. Every worker
+ * has its own deque, tasks forked by a worker are pushed to its deque and workers without local work steal from
+ * the others according to {@link StealingSettings}. Tasks submitted from outside wait in a shared queue
+ * that is checked after stealing fails.
+ * <p>
+ * Tasks extend {@link StealingRecursiveAction} or {@link StealingRecursiveTask} and use fork, join and invoke
+ * like ForkJoinTasks, so a fork/join workload is ported by changing its superclass.
+ */
+public class WorkStealingExecutor implements AutoCloseable {
+    private final StealingSettings settings;
+    private final StealingWorkerThread[] workers;
+    private final ConcurrentLinkedQueue<StealingTask<?>> submissions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger parkedWorkers = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public WorkStealingExecutor(int parallelism) {
+        this(parallelism, StealingSettings.defaults());
+    }
+
+    public WorkStealingExecutor(int parallelism, StealingSettings settings) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism has to be positive, was " + parallelism);
+        }
+        this.settings = requireNonNull(settings);
+        this.workers = new StealingWorkerThread[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new StealingWorkerThread(this, i, settings);
+        }
+        for (StealingWorkerThread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Runs the task and returns its result. Workers of this executor run the task directly,
+     * other threads submit it and wait.
+     *
+     * @throws RejectedExecutionException if the executor was shut down
+     */
+    public <V> V invoke(StealingTask<V> task) {
+        StealingWorkerThread worker = StealingWorkerThread.current();
+        if (worker != null && isWorker(worker)) {
+            return task.invoke();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor was shut down");
+        }
+        submissions.add(task);
+        if (shutdown && submissions.remove(task)) {
+            throw new RejectedExecutionException("Executor was shut down");
+        }
+        signalWork();
+        return task.join();
+    }
+
+    private boolean isWorker(StealingWorkerThread thread) {
+        int index = thread.getIndex();
+        return index < workers.length && workers[index] == thread;
+    }
+
+    /**
+     * Wakes up a parked worker if there is any.
+     */
+    void signalWork() {
+        if (parkedWorkers.get() > 0) {
+            for (StealingWorkerThread worker : workers) {
+                if (worker.isParked()) {
+                    LockSupport.unpark(worker);
+                    return;
+                }
+            }
+        }
+    }
+
+    void workerParked() {
+        parkedWorkers.incrementAndGet();
+    }
+
+    void workerUnparked() {
+        parkedWorkers.decrementAndGet();
+    }
+
+    StealingTask<?> pollSubmission() {
+        return submissions.poll();
+    }
+
+    StealingWorkerThread[] getWorkers() {
+        return workers;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    public StealingSettings getSettings() {
+        return settings;
+    }
+
+    public long getExecutedTasks() {
+        long result = 0;
+        for (StealingWorkerThread worker : workers) {
+            result += worker.getExecutedTasks();
+        }
+        return result;
+    }
+
+    public long getSteals() {
+        long result = 0;
+        for (StealingWorkerThread worker : workers) {
+            result += worker.getSteals();
+        }
+        return result;
+    }
+
+    public long getStealAttempts() {
+        long result = 0;
+        for (StealingWorkerThread worker : workers) {
+            result += worker.getStealAttempts();
+        }
+        return result;
+    }
+
+    public long getParks() {
+        long result = 0;
+        for (StealingWorkerThread worker : workers) {
+            result += worker.getParks();
+        }
+        return result;
+    }
+
+    /**
+     * Stops the workers, tasks that were not started yet are not executed. Submissions
+     * still waiting in the queue complete with {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        shutdown = true;
+        for (StealingWorkerThread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        StealingTask<?> task;
+        while ((task = submissions.poll()) != null) {
+            task.reject(new RejectedExecutionException("Executor was shut down"));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkStealingExecutor{parallelism=" + workers.length + ", " + settings + ", executed=" + getExecutedTasks()
+            + ", steals=" + getSteals() + "/" + getStealAttempts() + ", parks=" + getParks() + "}";
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Moves recorded events to a {@link TaskTreeModel} at a fixed refresh rate and hands the resulting frames
+ * to a {@link TaskTreeComponent}. Events are applied on a background thread, the event dispatch thread only
+ * copies the changed rows. Frames are passed by {@link SwingUtilities#invokeLater(Runnable)}; if the previous
+ * frame was not shown yet it is replaced, so a busy event dispatch thread skips frames instead of queueing them.
+ * Workers are never blocked, they only append to the recorder.
+ */
+public class FramePump {
+    private final TaskEventRecorder recorder;
+    private final TaskTreeModel model;
+    private final TaskTreeComponent view;
+    private final long refreshMillis;
+    private final AtomicReference<TaskTreeFrame> pendingFrame = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "frame-pump");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long events;
+    private int frames;
+
+    public FramePump(TaskEventRecorder recorder, TaskTreeModel model, TaskTreeComponent view, long refreshMillis) {
+        this.recorder = requireNonNull(recorder);
+        this.model = requireNonNull(model);
+        this.view = requireNonNull(view);
+        this.refreshMillis = refreshMillis;
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::drain, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the refresh and shows the remaining events, does not wait for it.
+     *
+     * @param onFinish called from the event dispatch thread after the last frame is shown
+     */
+    public void finish(Runnable onFinish) {
+        scheduler.execute(() -> {
+            drain();
+            int shownFrames = frames;
+            long shownEvents = events;
+            long dropped = recorder.getDroppedEvents();
+            SwingUtilities.invokeLater(() -> {
+                System.out.println("Rendered " + shownEvents + " events to " + shownFrames + " frames, " + dropped + " events dropped");
+                onFinish.run();
+            });
+        });
+        scheduler.shutdown();
+    }
+
+    private void drain() {
+        int drained = recorder.drain(model);
+        if (drained > 0) {
+            events += drained;
+            publish(model.snapshot());
+        }
+    }
+
+    private void publish(TaskTreeFrame frame) {
+        frames++;
+        if (pendingFrame.getAndSet(frame) == null) {
+            SwingUtilities.invokeLater(() -> view.setFrame(pendingFrame.getAndSet(null)));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import net.javacrumbs.fjdemo.sort.SortObserver;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records events of the sort engines.
+ */
+public class RecordingSortObserver implements SortObserver {
+    private final TaskEventRecorder recorder;
+
+    public RecordingSortObserver(TaskEventRecorder recorder) {
+        this.recorder = requireNonNull(recorder);
+    }
+
+    @Override
+    public void taskCreated(int depth, int from, int to) {
+        recorder.record(TaskEventType.CREATED, depth, from, to);
+    }
+
+    @Override
+    public void taskStarted(int depth, int from, int to) {
+        recorder.record(TaskEventType.STARTED, depth, from, to);
+    }
+
+    @Override
+    public void taskForked(int depth, int from, int to) {
+        recorder.record(TaskEventType.FORKED, depth, from, to);
+    }
+
+    @Override
+    public void taskStolen(int depth, int from, int to) {
+        recorder.record(TaskEventType.STOLEN, depth, from, to);
+    }
+
+    @Override
+    public void taskWaiting(int depth, int from, int to) {
+        recorder.record(TaskEventType.WAITING, depth, from, to);
+    }
+
+    @Override
+    public void mergeStarted(int depth, int from, int to) {
+        recorder.record(TaskEventType.MERGED, depth, from, to);
+    }
+
+    @Override
+    public void taskFinished(int depth, int from, int to) {
+        recorder.record(TaskEventType.FINISHED, depth, from, to);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replays recorded events in a {@link TraceView}. Trace time is slowed down so a run that took milliseconds
+ * can be watched, the position slider allows to scrub forward and backward through the trace.
+ * Has to be used from the event dispatch thread.
+ */
+public class ReplayControls extends JPanel {
+    private static final long serialVersionUID = -3145805974268433960L;
+
+    private static final int REFRESH_MILLIS = 40;
+    private static final int POSITION_STEPS = 1000;
+
+    private final TraceView view;
+    private final Timer timer = new Timer(REFRESH_MILLIS, e -> tick());
+    private final JButton playButton = new JButton("Play");
+    private final JSlider position = new JSlider(0, POSITION_STEPS, 0);
+    private final JSlider slowdown = new JSlider(0, 8, 3);
+    private final JLabel time = new JLabel();
+    private List<TaskEvent> events = Collections.emptyList();
+    private long startTimestamp;
+    private long duration;
+    /**
+     * Current replay time in nanoseconds from the first event.
+     */
+    private long currentTime;
+    /**
+     * Index of the next event to be applied.
+     */
+    private int next;
+    private boolean updatingPosition;
+
+    public ReplayControls(TraceView view) {
+        this.view = requireNonNull(view);
+        setLayout(new BorderLayout());
+        playButton.addActionListener(e -> togglePlay());
+        position.setBorder(BorderFactory.createTitledBorder("Position"));
+        position.addChangeListener(e -> {
+            if (!updatingPosition) {
+                seek(duration * position.getValue() / POSITION_STEPS);
+            }
+        });
+        slowdown.setPaintTicks(true);
+        slowdown.setPaintLabels(true);
+        slowdown.setMajorTickSpacing(1);
+        slowdown.setBorder(BorderFactory.createTitledBorder("Slow down 10^n times"));
+
+        Box buttons = Box.createHorizontalBox();
+        buttons.add(playButton);
+        buttons.add(time);
+        add(buttons, BorderLayout.WEST);
+        add(position, BorderLayout.CENTER);
+        add(slowdown, BorderLayout.EAST);
+        updateTime();
+    }
+
+    /**
+     * Loads events ordered by timestamp and rewinds to the beginning.
+     */
+    public void load(List<TaskEvent> events) {
+        stop();
+        this.events = requireNonNull(events);
+        startTimestamp = events.isEmpty() ? 0 : events.get(0).getTimestamp();
+        duration = events.isEmpty() ? 0 : events.get(events.size() - 1).getTimestamp() - startTimestamp;
+        rewind();
+        updatePosition();
+    }
+
+    /**
+     * Stops the replay and forgets the events.
+     */
+    public void clear() {
+        load(Collections.emptyList());
+    }
+
+    public void play() {
+        if (currentTime >= duration) {
+            rewind();
+        }
+        timer.start();
+        playButton.setText("Pause");
+    }
+
+    public void stop() {
+        timer.stop();
+        playButton.setText("Play");
+    }
+
+    private void togglePlay() {
+        if (timer.isRunning()) {
+            stop();
+        } else {
+            play();
+        }
+    }
+
+    private void tick() {
+        long step = REFRESH_MILLIS * 1_000_000L / pow10(slowdown.getValue());
+        seek(Math.min(currentTime + Math.max(step, 1), duration));
+        updatePosition();
+        if (currentTime >= duration) {
+            stop();
+        }
+    }
+
+    /**
+     * Moves the replay to given time. Moving back resets the view and applies the events again.
+     */
+    private void seek(long time) {
+        if (time < currentTime) {
+            rewind();
+        }
+        while (next < events.size() && events.get(next).getTimestamp() - startTimestamp <= time) {
+            view.accept(events.get(next++));
+        }
+        currentTime = time;
+        updateTime();
+        view.refresh();
+    }
+
+    private void rewind() {
+        view.reset();
+        next = 0;
+        currentTime = 0;
+        updateTime();
+        view.refresh();
+    }
+
+    private void updatePosition() {
+        updatingPosition = true;
+        try {
+            position.setValue(duration == 0 ? 0 : (int) (currentTime * POSITION_STEPS / duration));
+        } finally {
+            updatingPosition = false;
+        }
+    }
+
+    private void updateTime() {
+        time.setText(String.format(" %.3f / %.3f ms, %d / %d events ", currentTime / 1e6, duration / 1e6, next, events.size()));
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
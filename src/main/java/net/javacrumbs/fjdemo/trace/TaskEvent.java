@@ -0,0 +1,75 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+/**
+ * Recorded task event. Events are materialized only when they are read, workers record them without allocation.
+ */
+public final class TaskEvent {
+    private final long timestamp;
+    private final long threadId;
+    private final String threadName;
+    private final TaskEventType type;
+    private final int depth;
+    private final int from;
+    private final int to;
+
+    public TaskEvent(long timestamp, long threadId, String threadName, TaskEventType type, int depth, int from, int to) {
+        this.timestamp = timestamp;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.type = type;
+        this.depth = depth;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Time in nanoseconds as returned by System.nanoTime().
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public TaskEventType getType() {
+        return type;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return timestamp + " " + threadName + " " + type + " " + depth + "[" + from + "-" + to + "]";
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records task events with nanosecond timestamps. Every thread appends to its own ring buffer, so recording
+ * does not need any locks, CAS or allocation. Events are read asynchronously by {@link #drain(Consumer)}.
+ * <p>
+ * Each ring buffer has a single writer (the owner thread) and a single reader. If the reader does not keep up
+ * and the buffer gets full, new events are dropped and counted instead of blocking the worker.
+ */
+public class TaskEventRecorder {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * Longs per event: timestamp, type and depth, from and to.
+     */
+    private static final int SLOTS = 3;
+
+    private final int capacity;
+    private final List<EventBuffer> buffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<EventBuffer> localBuffer = ThreadLocal.withInitial(this::register);
+
+    public TaskEventRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of events buffered per thread, has to be a power of two
+     */
+    public TaskEventRecorder(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity has to be a power of two, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public void record(TaskEventType type, int depth, int from, int to) {
+        localBuffer.get().append(System.nanoTime(), type, depth, from, to);
+    }
+
+    /**
+     * Passes all the events recorded since the last call to the consumer, ordered by timestamp.
+     * Has to be called from one thread at a time.
+     *
+     * @return number of events
+     */
+    public int drain(Consumer<TaskEvent> consumer) {
+        List<TaskEvent> events = new ArrayList<>();
+        for (EventBuffer buffer : buffers) {
+            buffer.drainTo(events);
+        }
+        events.sort(Comparator.comparingLong(TaskEvent::getTimestamp));
+        events.forEach(consumer);
+        return events.size();
+    }
+
+    /**
+     * Returns number of events dropped because of full buffers.
+     */
+    public long getDroppedEvents() {
+        long result = 0;
+        for (EventBuffer buffer : buffers) {
+            result += buffer.dropped;
+        }
+        return result;
+    }
+
+    private EventBuffer register() {
+        Thread thread = Thread.currentThread();
+        EventBuffer buffer = new EventBuffer(thread.getId(), thread.getName(), capacity);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static final class EventBuffer {
+        private static final TaskEventType[] TYPES = TaskEventType.values();
+
+        private final long threadId;
+        private final String threadName;
+        private final long[] events;
+        private final int mask;
+        /**
+         * Sequence of the next event to be read, written by the reader.
+         */
+        private final AtomicLong head = new AtomicLong();
+        /**
+         * Sequence of the next event to be written, written by the owner thread.
+         */
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long dropped;
+
+        private EventBuffer(long threadId, String threadName, int capacity) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.events = new long[capacity * SLOTS];
+            this.mask = capacity - 1;
+        }
+
+        private void append(long timestamp, TaskEventType type, int depth, int from, int to) {
+            long sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                dropped++;
+                return;
+            }
+            int index = (int) (sequence & mask) * SLOTS;
+            events[index] = timestamp;
+            events[index + 1] = ((long) type.ordinal() << 32) | (depth & 0xFFFFFFFFL);
+            events[index + 2] = ((long) from << 32) | (to & 0xFFFFFFFFL);
+            // publishes the event to the reader
+            tail.lazySet(sequence + 1);
+        }
+
+        private void drainTo(List<TaskEvent> result) {
+            long sequence = head.get();
+            long end = tail.get();
+            for (; sequence < end; sequence++) {
+                int index = (int) (sequence & mask) * SLOTS;
+                long typeAndDepth = events[index + 1];
+                long range = events[index + 2];
+                result.add(new TaskEvent(events[index], threadId, threadName, TYPES[(int) (typeAndDepth >>> 32)],
+                    (int) typeAndDepth, (int) (range >>> 32), (int) range));
+            }
+            head.lazySet(end);
+        }
+    }
+}
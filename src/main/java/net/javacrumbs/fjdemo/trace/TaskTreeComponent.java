@@ -0,0 +1,128 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import javax.swing.*;
+
+/**
+ * Paints the task tree from {@link TaskTreeFrame}s on a single component instead of one label per task.
+ * Each row is kept as a line of an image scaled to the width of the component, so painting costs the same
+ * for a hundred and for a million tasks. Tasks wide enough are outlined and labeled with their range.
+ * The component stretches to the width of the scroll pane. Has to be used from the event dispatch thread.
+ */
+public class TaskTreeComponent extends JComponent implements Scrollable {
+    private static final long serialVersionUID = 5221446025223702190L;
+
+    private static final int ROW_GAP = 2;
+
+    private final int rowHeight;
+    private TaskTreeFrame frame = TaskTreeFrame.EMPTY;
+    private BufferedImage image;
+
+    public TaskTreeComponent(int rowHeight) {
+        this.rowHeight = rowHeight;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+    }
+
+    /**
+     * Shows the frame, only rows that changed since the last frame are copied.
+     */
+    public void setFrame(TaskTreeFrame newFrame) {
+        if (image == null || image.getWidth() != newFrame.getBuckets() || image.getHeight() < newFrame.getRowCount()) {
+            image = new BufferedImage(newFrame.getBuckets(), Math.max(newFrame.getRowCount(), 16), BufferedImage.TYPE_INT_RGB);
+            frame = TaskTreeFrame.EMPTY;
+        }
+        for (int depth = 0; depth < newFrame.getRowCount(); depth++) {
+            int[] row = newFrame.row(depth);
+            if (depth >= frame.getRowCount() || frame.row(depth) != row) {
+                image.setRGB(0, depth, row.length, 1, row, 0, row.length);
+            }
+        }
+        if (newFrame.getRowCount() != frame.getRowCount()) {
+            setPreferredSize(new Dimension(newFrame.getBuckets(), newFrame.getRowCount() * rowHeight + rowHeight / 2));
+            revalidate();
+        }
+        frame = newFrame;
+        repaint();
+    }
+
+    public TaskTreeFrame getFrame() {
+        return frame;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return rowHeight;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        TaskTreeFrame current = frame;
+        if (current.getRowCount() == 0) {
+            return;
+        }
+        int width = getWidth();
+        int buckets = current.getBuckets();
+        for (int depth = 0; depth < current.getRowCount(); depth++) {
+            int top = depth * rowHeight;
+            g.drawImage(image, 0, top, width, top + rowHeight - ROW_GAP, 0, depth, buckets, depth + 1, null);
+        }
+        paintOutlines(g, current, width);
+    }
+
+    private void paintOutlines(Graphics g, TaskTreeFrame current, int width) {
+        int[] outlines = current.outlines();
+        double scale = (double) width / current.getSize();
+        FontMetrics metrics = g.getFontMetrics();
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < outlines.length; i += 3) {
+            int top = outlines[i] * rowHeight;
+            int x = (int) (outlines[i + 1] * scale);
+            int boxWidth = (int) (outlines[i + 2] * scale) - x;
+            g.drawRect(x, top, boxWidth, rowHeight - ROW_GAP - 1);
+            String range = outlines[i + 1] + "-" + outlines[i + 2];
+            if (metrics.stringWidth(range) + 6 < boxWidth) {
+                g.drawString(range, x + 3, top + (rowHeight - ROW_GAP + metrics.getAscent()) / 2);
+            }
+        }
+    }
+}
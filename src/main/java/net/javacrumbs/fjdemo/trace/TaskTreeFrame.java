@@ -0,0 +1,65 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+/**
+ * Immutable snapshot of the task tree painted by {@link TaskTreeComponent}. Each row of the tree (one depth)
+ * is an array of RGB colors, one per bucket of elements. When there are more elements than pixels a bucket
+ * covers several elements and its color is a blend of states of the tasks that cover them.
+ * <p>
+ * Rows that did not change since the previous frame are shared with it, the arrays must never be modified.
+ */
+public final class TaskTreeFrame {
+    static final TaskTreeFrame EMPTY = new TaskTreeFrame(0, 1, new int[0][], new int[0]);
+
+    private final int size;
+    private final int buckets;
+    private final int[][] rows;
+    /**
+     * Triples of depth, from and to of tasks wide enough to be outlined.
+     */
+    private final int[] outlines;
+
+    TaskTreeFrame(int size, int buckets, int[][] rows, int[] outlines) {
+        this.size = size;
+        this.buckets = buckets;
+        this.rows = rows;
+        this.outlines = outlines;
+    }
+
+    /**
+     * Number of elements sorted by the root task.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    int[] row(int depth) {
+        return rows[depth];
+    }
+
+    int[] outlines() {
+        return outlines;
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Applies task events to a level of detail model of the task tree and creates immutable {@link TaskTreeFrame}s
+ * from it. Every row is divided to at most width buckets and the model counts how many elements of each bucket
+ * are in which state, so an event costs the number of buckets covered by the task no matter how many tasks there
+ * are. Rows deep enough to have more tasks than pixels are blended to the prevailing colors.
+ * <p>
+ * The model is not thread safe, it is meant to be fed and snapshotted by a single thread, see {@link FramePump}.
+ */
+public class TaskTreeModel implements Consumer<TaskEvent> {
+    /**
+     * Tasks narrower than this number of pixels are not outlined.
+     */
+    private static final int MIN_OUTLINE_WIDTH = 8;
+
+    private static final int EMPTY = 0;
+    private static final int SCHEDULED = 1;
+    private static final int WAITING = 2;
+    private static final int FINISHED = 3;
+    private static final int RUNNING = 4;
+
+    private final int size;
+    private final int buckets;
+    private final int width;
+    private final int[] colors;
+    private final int states;
+    /**
+     * Per row, number of elements of each bucket in each state. The empty state is not counted,
+     * it is whatever remains of the bucket.
+     */
+    private final List<int[]> counts = new ArrayList<>();
+    /**
+     * States of the unfinished tasks, finished tasks do not get any more events.
+     */
+    private final Map<Long, Byte> taskStates = new HashMap<>();
+    private final Map<Long, Integer> threadIndexes = new HashMap<>();
+    private final BitSet dirtyRows = new BitSet();
+    private int[] outlines = new int[3 * 64];
+    private int outlineLength;
+    private boolean outlinesChanged;
+    private TaskTreeFrame frame = TaskTreeFrame.EMPTY;
+
+    /**
+     * @param size          number of elements sorted by the root task
+     * @param width         width of the view in pixels
+     * @param threadColors  colors of running tasks, assigned to threads in order of appearance
+     */
+    public TaskTreeModel(int size, int width, Color background, Color scheduled, Color waiting, Color finished, Color... threadColors) {
+        if (size <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Size and width have to be positive, were " + size + " and " + width);
+        }
+        this.size = size;
+        this.width = width;
+        this.buckets = Math.min(size, width);
+        this.states = RUNNING + threadColors.length;
+        this.colors = new int[states];
+        colors[EMPTY] = background.getRGB();
+        colors[SCHEDULED] = scheduled.getRGB();
+        colors[WAITING] = waiting.getRGB();
+        colors[FINISHED] = finished.getRGB();
+        for (int i = 0; i < threadColors.length; i++) {
+            colors[RUNNING + i] = threadColors[i].getRGB();
+        }
+    }
+
+    @Override
+    public void accept(TaskEvent event) {
+        int state;
+        switch (event.getType()) {
+            case CREATED:
+                state = SCHEDULED;
+                break;
+            case STARTED:
+            case MERGED:
+                state = RUNNING + threadIndex(event.getThreadId());
+                break;
+            case WAITING:
+                state = WAITING;
+                break;
+            case FINISHED:
+                state = FINISHED;
+                break;
+            default:
+                // forks and steals are not visualized
+                return;
+        }
+        int from = Math.max(event.getFrom(), 0);
+        int to = Math.min(event.getTo(), size);
+        if (from >= to || event.getDepth() < 0) {
+            return;
+        }
+        long key = ((long) event.getDepth() << 32) | from;
+        Byte previous = state == FINISHED ? taskStates.remove(key) : taskStates.put(key, (byte) state);
+        // previous state is unknown if the creation event was dropped
+        move(event.getDepth(), from, to, previous != null ? previous : EMPTY, state);
+        if (state == SCHEDULED && (long) (to - from) * width >= (long) MIN_OUTLINE_WIDTH * size) {
+            addOutline(event.getDepth(), from, to);
+        }
+    }
+
+    /**
+     * Returns snapshot of the current state. Rows that did not change are shared with the previous snapshot.
+     */
+    public TaskTreeFrame snapshot() {
+        if (dirtyRows.isEmpty() && !outlinesChanged && frame != TaskTreeFrame.EMPTY) {
+            return frame;
+        }
+        int[][] rows = new int[counts.size()][];
+        for (int depth = 0; depth < rows.length; depth++) {
+            rows[depth] = dirtyRows.get(depth) || depth >= frame.getRowCount() ? renderRow(depth) : frame.row(depth);
+        }
+        int[] frameOutlines = outlinesChanged ? Arrays.copyOf(outlines, outlineLength) : frame.outlines();
+        dirtyRows.clear();
+        outlinesChanged = false;
+        frame = new TaskTreeFrame(size, buckets, rows, frameOutlines);
+        return frame;
+    }
+
+    private int threadIndex(long threadId) {
+        int threadColors = states - RUNNING;
+        return threadIndexes.computeIfAbsent(threadId, id -> threadIndexes.size() % threadColors);
+    }
+
+    /**
+     * Moves elements from-to of the row from one state to the other.
+     */
+    private void move(int depth, int from, int to, int fromState, int toState) {
+        while (counts.size() <= depth) {
+            counts.add(new int[buckets * states]);
+        }
+        int[] row = counts.get(depth);
+        int last = bucket(to - 1);
+        for (int bucket = bucket(from); bucket <= last; bucket++) {
+            int overlap = Math.min(to, bucketStart(bucket + 1)) - Math.max(from, bucketStart(bucket));
+            if (fromState != EMPTY) {
+                row[bucket * states + fromState] -= overlap;
+            }
+            row[bucket * states + toState] += overlap;
+        }
+        dirtyRows.set(depth);
+    }
+
+    private int bucketStart(int bucket) {
+        return (int) ((long) bucket * size / buckets);
+    }
+
+    /**
+     * Returns the last bucket starting at or before the element.
+     */
+    private int bucket(int element) {
+        return (int) ((((long) element + 1) * buckets + size - 1) / size) - 1;
+    }
+
+    private int[] renderRow(int depth) {
+        int[] row = counts.get(depth);
+        int[] result = new int[buckets];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int total = bucketStart(bucket + 1) - bucketStart(bucket);
+            int empty = total;
+            long red = 0, green = 0, blue = 0;
+            for (int state = SCHEDULED; state < states; state++) {
+                int count = row[bucket * states + state];
+                if (count > 0) {
+                    int color = colors[state];
+                    red += (long) count * ((color >> 16) & 0xFF);
+                    green += (long) count * ((color >> 8) & 0xFF);
+                    blue += (long) count * (color & 0xFF);
+                    empty -= count;
+                }
+            }
+            if (empty == total) {
+                result[bucket] = colors[EMPTY];
+                continue;
+            }
+            int background = colors[EMPTY];
+            red += (long) empty * ((background >> 16) & 0xFF);
+            green += (long) empty * ((background >> 8) & 0xFF);
+            blue += (long) empty * (background & 0xFF);
+            result[bucket] = (int) (red / total) << 16 | (int) (green / total) << 8 | (int) (blue / total);
+        }
+        return result;
+    }
+
+    private void addOutline(int depth, int from, int to) {
+        if (outlineLength + 3 > outlines.length) {
+            outlines = Arrays.copyOf(outlines, outlines.length * 2);
+        }
+        outlines[outlineLength++] = depth;
+        outlines[outlineLength++] = from;
+        outlines[outlineLength++] = to;
+        outlinesChanged = true;
+    }
+}
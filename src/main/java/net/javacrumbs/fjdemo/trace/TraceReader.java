@@ -0,0 +1,142 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static net.javacrumbs.fjdemo.trace.TraceWriter.BUFFER_SIZE;
+import static net.javacrumbs.fjdemo.trace.TraceWriter.MAGIC;
+import static net.javacrumbs.fjdemo.trace.TraceWriter.THREAD_TAG;
+import static net.javacrumbs.fjdemo.trace.TraceWriter.VERSION;
+
+/**
+ * Reads trace files written by {@link TraceWriter}.
+ */
+public class TraceReader {
+    private static final TaskEventType[] TYPES = TaskEventType.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final List<String> threadNames = new ArrayList<>();
+    private final List<Long> threadIds = new ArrayList<>();
+    private boolean endOfFile;
+
+    private TraceReader(FileChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Reads all the events of the trace file ordered by timestamp.
+     */
+    public static List<TaskEvent> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            return new TraceReader(channel).readEvents();
+        }
+    }
+
+    private List<TaskEvent> readEvents() throws IOException {
+        if (!ensureAvailable(8) || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a trace file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace file version " + version);
+        }
+        List<TaskEvent> events = new ArrayList<>();
+        long timestamp = 0;
+        while (ensureAvailable(1)) {
+            int tag = buffer.get();
+            if (tag == THREAD_TAG) {
+                readThread();
+            } else if (tag > 0 && tag <= TYPES.length) {
+                int threadIndex = (int) getVarLong();
+                long delta = getVarLong();
+                timestamp += (delta >>> 1) ^ -(delta & 1);
+                int depth = (int) getVarLong();
+                int from = (int) getVarLong();
+                int to = from + (int) getVarLong();
+                if (threadIndex >= threadIds.size()) {
+                    throw new IOException("Unknown thread " + threadIndex);
+                }
+                events.add(new TaskEvent(timestamp, threadIds.get(threadIndex), threadNames.get(threadIndex),
+                    TYPES[tag - 1], depth, from, to));
+            } else {
+                throw new IOException("Corrupted trace file, unknown record " + tag);
+            }
+        }
+        // drains of different threads may interleave
+        events.sort(Comparator.comparingLong(TaskEvent::getTimestamp));
+        return events;
+    }
+
+    private void readThread() throws IOException {
+        int threadIndex = (int) getVarLong();
+        long threadId = getVarLong();
+        byte[] name = new byte[(int) getVarLong()];
+        for (int i = 0; i < name.length; ) {
+            if (!ensureAvailable(1)) {
+                throw new EOFException("Truncated trace file");
+            }
+            int length = Math.min(buffer.remaining(), name.length - i);
+            buffer.get(name, i, length);
+            i += length;
+        }
+        if (threadIndex != threadIds.size()) {
+            throw new IOException("Corrupted trace file, unexpected thread " + threadIndex);
+        }
+        threadIds.add(threadId);
+        threadNames.add(new String(name, StandardCharsets.UTF_8));
+    }
+
+    private long getVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!ensureAvailable(1)) {
+                throw new EOFException("Truncated trace file");
+            }
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Corrupted trace file, number too long");
+    }
+
+    /**
+     * Refills the buffer if less than given number of bytes is available.
+     *
+     * @return false if the end of file was reached before
+     */
+    private boolean ensureAvailable(int bytes) throws IOException {
+        while (buffer.remaining() < bytes && !endOfFile) {
+            buffer.compact();
+            endOfFile = channel.read(buffer) < 0;
+            buffer.flip();
+        }
+        return buffer.remaining() >= bytes;
+    }
+}
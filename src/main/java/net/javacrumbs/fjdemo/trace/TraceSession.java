@@ -0,0 +1,110 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records task events to a trace file. A background thread drains the recorder to the file while the
+ * workload runs, so the workers only append to their in-memory ring buffers.
+ */
+public class TraceSession implements Closeable {
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TaskEventRecorder recorder;
+    private final TraceWriter writer;
+    private final Thread drainer;
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+
+    private TraceSession(TaskEventRecorder recorder, TraceWriter writer) {
+        this.recorder = recorder;
+        this.writer = writer;
+        this.drainer = new Thread(this::drainLoop, "trace-writer");
+        drainer.setDaemon(true);
+    }
+
+    /**
+     * Starts recording to the file.
+     */
+    public static TraceSession start(Path file) throws IOException {
+        TraceSession session = new TraceSession(new TaskEventRecorder(), new TraceWriter(file));
+        session.drainer.start();
+        return session;
+    }
+
+    public TaskEventRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Returns number of events written so far, accurate after the session is closed.
+     */
+    public long getEvents() {
+        return writer.getEvents();
+    }
+
+    public long getDroppedEvents() {
+        return recorder.getDroppedEvents();
+    }
+
+    private void drainLoop() {
+        try {
+            while (running) {
+                if (recorder.drain(writer) == 0) {
+                    LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes the remaining events and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        boolean interrupted = false;
+        // the recorder supports only one reader at a time
+        while (drainer.isAlive()) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            recorder.drain(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.util.function.Consumer;
+
+/**
+ * View that shows task events. Replay rewinds the view by resetting it and applying the events from the beginning.
+ */
+public interface TraceView extends Consumer<TaskEvent> {
+    /**
+     * Removes effects of all the events applied so far.
+     */
+    void reset();
+
+    /**
+     * Called after a batch of events was applied.
+     */
+    default void refresh() {
+    }
+}
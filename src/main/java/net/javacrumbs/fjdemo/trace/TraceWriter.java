@@ -0,0 +1,138 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes task events to a binary trace file. The file starts with a header followed by records. A thread record
+ * (tag 0) assigns an index to a thread before its first event. An event record has the type ordinal + 1 as tag,
+ * thread index, zigzag encoded difference of the timestamp from the previous event, depth, from and length
+ * of the range, all numbers are variable length encoded. Typical event takes less than ten bytes.
+ */
+public class TraceWriter implements Consumer<TaskEvent>, Closeable {
+    static final int MAGIC = 0x464A5452;
+    static final int VERSION = 1;
+    static final int THREAD_TAG = 0;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<Long, Integer> threadIndexes = new HashMap<>();
+    private long lastTimestamp;
+    private long events;
+
+    public TraceWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * Appends the event to the file.
+     *
+     * @throws UncheckedIOException if the file can not be written
+     */
+    @Override
+    public void accept(TaskEvent event) {
+        try {
+            Integer threadIndex = threadIndexes.get(event.getThreadId());
+            if (threadIndex == null) {
+                threadIndex = threadIndexes.size();
+                threadIndexes.put(event.getThreadId(), threadIndex);
+                writeThread(threadIndex, event);
+            }
+            ensureRemaining(6 * 10);
+            buffer.put((byte) (event.getType().ordinal() + 1));
+            putVarLong(threadIndex);
+            long delta = event.getTimestamp() - lastTimestamp;
+            putVarLong((delta << 1) ^ (delta >> 63));
+            putVarLong(event.getDepth() & 0xFFFFFFFFL);
+            putVarLong(event.getFrom() & 0xFFFFFFFFL);
+            putVarLong((event.getTo() - event.getFrom()) & 0xFFFFFFFFL);
+            lastTimestamp = event.getTimestamp();
+            events++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns number of events written so far.
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    private void writeThread(int threadIndex, TaskEvent event) throws IOException {
+        byte[] name = event.getThreadName().getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(1 + 3 * 10);
+        buffer.put((byte) THREAD_TAG);
+        putVarLong(threadIndex);
+        putVarLong(event.getThreadId());
+        putVarLong(name.length);
+        for (int i = 0; i < name.length; ) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), name.length - i);
+            buffer.put(name, i, length);
+            i += length;
+        }
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
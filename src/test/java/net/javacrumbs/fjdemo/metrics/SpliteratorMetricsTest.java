@@ -0,0 +1,81 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.metrics;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpliteratorMetricsTest {
+    private static final int CHUNKS = 1000;
+    private static final int CHUNK_SIZE = 100;
+
+    @Test
+    public void shouldNotLoseCountsOfThreadsWithSameName() throws InterruptedException {
+        final SpliteratorMetrics metrics = new SpliteratorMetrics();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    processChunks(metrics);
+                }
+            }, "request");
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        List<SpliteratorMetricsSnapshot.ThreadStats> stats = metrics.snapshot().getThreads();
+        assertEquals(1, stats.size());
+        assertEquals("request", stats.get(0).getThreadName());
+        assertEquals(threads.length * CHUNKS, stats.get(0).getChunks());
+        assertEquals(threads.length * CHUNKS * CHUNK_SIZE, stats.get(0).getElements());
+    }
+
+    @Test
+    public void shouldKeepCountsOfTerminatedThreads() throws InterruptedException {
+        final SpliteratorMetrics metrics = new SpliteratorMetrics();
+        int count = 300;
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.wrap(IntStream.range(0, CHUNK_SIZE).spliterator()).forEachRemaining((Integer n) -> {
+                    });
+                }
+            }, "worker-" + i % 3);
+            thread.start();
+            thread.join();
+        }
+        SpliteratorMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getThreads().size());
+        assertEquals(count * CHUNK_SIZE, snapshot.getElements());
+        for (SpliteratorMetricsSnapshot.ThreadStats stats : snapshot.getThreads()) {
+            assertEquals(count / 3, stats.getChunks());
+        }
+    }
+
+    private static void processChunks(SpliteratorMetrics metrics) {
+        for (int i = 0; i < CHUNKS; i++) {
+            metrics.wrap(IntStream.range(0, CHUNK_SIZE).spliterator()).forEachRemaining((Integer n) -> {
+            });
+        }
+    }
+}
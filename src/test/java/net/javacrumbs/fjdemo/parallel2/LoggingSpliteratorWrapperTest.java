@@ -0,0 +1,75 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.util.Spliterator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoggingSpliteratorWrapperTest {
+    private static final int SIZE = 100;
+
+    @Test
+    public void shouldSplitToAdjacentIntervals() {
+        for (Source source : Source.values()) {
+            Spliterator<Integer> remainder = new QuietWrapper(source.create(SIZE), 0);
+            int expectedFrom = 0;
+            Spliterator<Integer> prefix;
+            while ((prefix = remainder.trySplit()) != null) {
+                Task prefixTask = (Task) prefix;
+                Task remainderTask = (Task) remainder;
+                String message = source + " " + prefixTask.getInterval() + " " + remainderTask.getInterval();
+                assertEquals(message, expectedFrom, prefixTask.getFrom());
+                assertTrue(message, prefixTask.getFrom() < prefixTask.getTo());
+                assertEquals(message, prefixTask.getTo(), remainderTask.getFrom());
+                expectedFrom = remainderTask.getFrom();
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepIntervalsOfBatches() {
+        Spliterator<Integer> remainder = new QuietWrapper(Source.BATCHING_ITERATOR.create(SIZE), 0);
+        assertEquals("0-4", ((Task) remainder.trySplit()).getInterval());
+        assertEquals("4-12", ((Task) remainder.trySplit()).getInterval());
+        assertEquals(12, ((Task) remainder).getFrom());
+    }
+
+    /**
+     * Does not log nor slow down the splitting.
+     */
+    private static class QuietWrapper extends LoggingSpliteratorWrapper<Integer> {
+        QuietWrapper(Spliterator<Integer> wrapped, int from) {
+            super(wrapped, 0, from, null);
+        }
+
+        @Override
+        protected LoggingSpliteratorWrapper<Integer> createNewInstance(Spliterator<Integer> spliterator, int taskId, int from) {
+            return new QuietWrapper(spliterator, from);
+        }
+
+        @Override
+        protected void pause() {
+        }
+
+        @Override
+        protected void log(String message) {
+        }
+    }
+}
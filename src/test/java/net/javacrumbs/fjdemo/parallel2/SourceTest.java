@@ -0,0 +1,66 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.parallel2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SourceTest {
+
+    @Test
+    public void shouldProduceNumbersInOrder() {
+        for (Source source : Source.values()) {
+            for (int size : new int[]{1, 100, 1000}) {
+                assertEquals(source + " " + size, expected(size), numbers(source, size, false));
+                assertEquals(source + " " + size, expected(size), numbers(source, size, true));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReuseMappedFile() throws IOException {
+        long files = tempFiles();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected(777), numbers(Source.MAPPED_FILE, 777, true));
+        }
+        assertEquals(files + 1, tempFiles());
+    }
+
+    private static long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().matches("fjdemo.*\\.txt")).count();
+        }
+    }
+
+    private static List<Integer> numbers(Source source, int size, boolean parallel) {
+        return StreamSupport.stream(source.create(size), parallel).collect(Collectors.toList());
+    }
+
+    private static List<Integer> expected(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IntSelectionTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final IntSelection selection = new IntSelection(SortSettings.defaults().withSequentialThreshold(100));
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldSelectEveryRank() {
+        for (Distribution distribution : Distribution.values()) {
+            int[] numbers = distribution.ints(1000, 1);
+            int[] sorted = sorted(numbers);
+            for (int k = 0; k < numbers.length; k++) {
+                assertEquals(distribution + " rank " + k, sorted[k], selection.select(pool, numbers, k));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSelectFromRandomInputs() {
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            int[] numbers = randomNumbers(random, 1 + random.nextInt(50_000));
+            int[] original = numbers.clone();
+            IntSelection selection = randomSelection(random);
+            int k = random.nextInt(numbers.length);
+            assertEquals(sorted(numbers)[k], selection.select(pool, numbers, k));
+            assertArrayEquals("input modified", original, numbers);
+        }
+    }
+
+    @Test
+    public void shouldComputePercentilesByNearestRank() {
+        int[] numbers = Distribution.RANDOM.ints(12_345, 3);
+        int[] sorted = sorted(numbers);
+        assertEquals(sorted[0], selection.percentile(pool, numbers, 0));
+        assertEquals(sorted[6172], selection.percentile(pool, numbers, 50));
+        assertEquals(sorted[12221], selection.percentile(pool, numbers, 99));
+        assertEquals(sorted[12332], selection.percentile(pool, numbers, 99.9));
+        assertEquals(sorted[12344], selection.percentile(pool, numbers, 100));
+        assertEquals(7, selection.percentile(pool, new int[]{7}, 99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPercentileOutOfRange() {
+        selection.percentile(pool, new int[]{1, 2}, 100.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPercentileOfNoNumbers() {
+        selection.percentile(pool, new int[0], 50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRankOutOfArray() {
+        selection.select(pool, new int[]{1, 2}, 2);
+    }
+
+    @Test
+    public void shouldFindSmallestAndLargest() {
+        Random random = new Random(4);
+        for (int i = 0; i < 500; i++) {
+            int[] numbers = randomNumbers(random, random.nextInt(20_000));
+            int[] original = numbers.clone();
+            IntSelection selection = randomSelection(random);
+            int k = random.nextInt(200);
+            assertArrayEquals(smallest(numbers, k), selection.smallest(pool, numbers, k));
+            assertArrayEquals(largest(numbers, k), selection.largest(pool, numbers, k));
+            assertArrayEquals("input modified", original, numbers);
+        }
+    }
+
+    @Test
+    public void shouldReturnAllNumbersSortedIfKIsNotSmallerThanSize() {
+        int[] numbers = Distribution.FEW_UNIQUES.ints(1000, 5);
+        for (int k : new int[]{1000, 1001, Integer.MAX_VALUE}) {
+            assertArrayEquals(sorted(numbers), selection.smallest(pool, numbers, k));
+            assertArrayEquals(largest(numbers, numbers.length), selection.largest(pool, numbers, k));
+        }
+        assertEquals(0, selection.smallest(pool, new int[0], 10).length);
+        assertEquals(0, selection.largest(pool, numbers, 0).length);
+    }
+
+    @Test
+    public void shouldSelectLargeK() {
+        Random random = new Random(6);
+        IntSelection automatic = new IntSelection();
+        for (Distribution distribution : Distribution.values()) {
+            int[] numbers = distribution.ints(1_000_000, 7);
+            for (int k : new int[]{1, 100, 10_000, 250_000, 500_000, 999_999}) {
+                assertArrayEquals(distribution + " k " + k, smallest(numbers, k), automatic.smallest(pool, numbers, k));
+                assertArrayEquals(distribution + " k " + k, largest(numbers, k), automatic.largest(pool, numbers, k));
+            }
+            int k = random.nextInt(numbers.length);
+            assertEquals(sorted(numbers)[k], automatic.select(pool, numbers, k));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeK() {
+        selection.smallest(pool, new int[]{1}, -1);
+    }
+
+    private static IntSelection randomSelection(Random random) {
+        return random.nextBoolean() ? new IntSelection()
+            : new IntSelection(SortSettings.defaults().withSequentialThreshold(1 + random.nextInt(500)));
+    }
+
+    /**
+     * Random numbers from a narrow or a wide range, with some extreme values.
+     */
+    private static int[] randomNumbers(Random random, int size) {
+        int bound = random.nextBoolean() ? 10 : Integer.MAX_VALUE;
+        int[] numbers = new int[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = random.nextInt(50) == 0 ? (random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE)
+                : random.nextInt(bound) - bound / 2;
+        }
+        return numbers;
+    }
+
+    private static int[] sorted(int[] numbers) {
+        int[] result = numbers.clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int[] smallest(int[] numbers, int k) {
+        return Arrays.copyOf(sorted(numbers), Math.min(k, numbers.length));
+    }
+
+    private static int[] largest(int[] numbers, int k) {
+        int[] sorted = sorted(numbers);
+        int[] result = new int[Math.min(k, numbers.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sorted[sorted.length - 1 - i];
+        }
+        return result;
+    }
+}
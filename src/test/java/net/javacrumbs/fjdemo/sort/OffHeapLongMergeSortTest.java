@@ -0,0 +1,137 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffHeapLongMergeSortTest {
+    private static final int SEGMENT_SHIFT = 10;
+    private static final SortSettings SETTINGS = SortSettings.defaults().withSequentialThreshold(1000).withMergeThreshold(3000);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldAddressSegments() {
+        OffHeapLongArray array = OffHeapLongArray.allocate(3000, SEGMENT_SHIFT);
+        try {
+            assertEquals(3000, array.length());
+            for (int i = 0; i < array.length(); i++) {
+                array.put(i, -i);
+            }
+            for (int i = 0; i < array.length(); i++) {
+                assertEquals(-i, array.get(i));
+            }
+        } finally {
+            array.free();
+        }
+    }
+
+    @Test
+    public void shouldSortAcrossSegments() {
+        long[] expected = new Random(1).longs(100_003).toArray();
+        OffHeapLongArray array = OffHeapLongArray.allocate(expected.length, SEGMENT_SHIFT);
+        try {
+            for (int i = 0; i < expected.length; i++) {
+                array.put(i, expected[i]);
+            }
+            new OffHeapLongMergeSort(SETTINGS, SortObserver.NONE, SEGMENT_SHIFT - 1).sort(pool, array);
+            Arrays.sort(expected);
+            assertSorted(expected, array);
+        } finally {
+            array.free();
+        }
+    }
+
+    @Test
+    public void shouldSortRangeOfSegments() {
+        long[] expected = new Random(2).longs(10_000).toArray();
+        OffHeapLongArray array = OffHeapLongArray.allocate(expected.length, SEGMENT_SHIFT);
+        try {
+            for (int i = 0; i < expected.length; i++) {
+                array.put(i, expected[i]);
+            }
+            new OffHeapLongMergeSort(SETTINGS, SortObserver.NONE, SEGMENT_SHIFT).sort(pool, array, 1500, 8500);
+            Arrays.sort(expected, 1500, 8500);
+            assertSorted(expected, array);
+        } finally {
+            array.free();
+        }
+    }
+
+    @Test
+    public void shouldSortBetweenPositionAndLimit() {
+        long[] expected = new Random(3).longs(10_000).toArray();
+        ByteBuffer memory = OffHeapMemory.allocate(expected.length * Long.BYTES);
+        try {
+            LongBuffer buffer = memory.asLongBuffer();
+            buffer.put(expected);
+            buffer.position(100).limit(9900);
+            new OffHeapLongMergeSort(SETTINGS).sort(pool, buffer);
+            Arrays.sort(expected, 100, 9900);
+            assertEquals(100, buffer.position());
+            assertEquals(9900, buffer.limit());
+            buffer.clear();
+            assertSorted(expected, OffHeapLongArray.wrap(buffer));
+        } finally {
+            OffHeapMemory.free(memory);
+        }
+    }
+
+    @Test
+    public void shouldSortMappedFile() throws IOException {
+        long[] expected = new Random(4).longs(20_000).toArray();
+        Path file = Files.createTempFile("fjdemo", ".bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            ByteBuffer data = ByteBuffer.allocate(expected.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            data.asLongBuffer().put(expected);
+            channel.write(new ByteBuffer[]{header, data});
+            OffHeapLongArray array = OffHeapLongArray.map(channel, FileChannel.MapMode.READ_WRITE, 16, expected.length,
+                ByteOrder.LITTLE_ENDIAN);
+            new OffHeapLongMergeSort(SETTINGS).sort(pool, array);
+            Arrays.sort(expected);
+            assertSorted(expected, array);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSorted(long[] expected, OffHeapLongArray array) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("index " + i, expected[i], array.get(i));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapMemoryTest {
+
+    @Test
+    public void shouldAllocateDirectBufferInNativeOrder() {
+        ByteBuffer buffer = OffHeapMemory.allocate(1024);
+        try {
+            assertTrue(buffer.isDirect());
+            assertEquals(ByteOrder.nativeOrder(), buffer.order());
+            assertEquals(1024, buffer.capacity());
+        } finally {
+            OffHeapMemory.free(buffer);
+        }
+    }
+
+    @Test
+    public void shouldFreeWithoutWarning() {
+        PrintStream err = System.err;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(output));
+        try {
+            for (int i = 0; i < 100; i++) {
+                OffHeapMemory.free(OffHeapMemory.allocate(16 << 20));
+            }
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals("", output.toString());
+    }
+
+    @Test
+    public void shouldIgnoreHeapBuffer() {
+        OffHeapMemory.free(ByteBuffer.allocate(16));
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortObserverTest {
+    private static final int SIZE = 100_000;
+    private static final SortSettings SETTINGS = SortSettings.defaults().withSequentialThreshold(1000).withMergeThreshold(5000);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldReportSameEventsByAllPrimitiveEngines() {
+        int[] ints = Distribution.RANDOM.ints(SIZE, 1);
+        long[] longs = new long[SIZE];
+        double[] doubles = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = ints[i];
+            doubles[i] = ints[i];
+        }
+        long[] keys = longs.clone();
+        int[] values = new int[SIZE];
+
+        CountingObserver intEvents = new CountingObserver();
+        new IntMergeSort(SETTINGS, intEvents).sort(pool, ints);
+        CountingObserver longEvents = new CountingObserver();
+        new LongMergeSort(SETTINGS, longEvents).sort(pool, longs);
+        CountingObserver doubleEvents = new CountingObserver();
+        new DoubleMergeSort(SETTINGS, doubleEvents).sort(pool, doubles);
+        CountingObserver keyEvents = new CountingObserver();
+        new LongKeyMergeSort(SETTINGS, keyEvents).sort(pool, keys, values);
+
+        int[] expected = Distribution.RANDOM.ints(SIZE, 1);
+        Arrays.sort(expected);
+        assertArrayEquals(expected, ints);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], longs[i]);
+            assertEquals(expected[i], (long) doubles[i]);
+            assertEquals(expected[i], keys[i]);
+        }
+
+        intEvents.check();
+        assertEquals(intEvents.toString(), longEvents.toString());
+        assertEquals(intEvents.toString(), doubleEvents.toString());
+        assertEquals(intEvents.toString(), keyEvents.toString());
+    }
+
+    @Test
+    public void shouldReportForksFromComparatorEngine() {
+        int[] ints = Distribution.RANDOM.ints(SIZE, 2);
+        Integer[] items = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            items[i] = ints[i];
+        }
+        CountingObserver intEvents = new CountingObserver();
+        new IntMergeSort(SETTINGS, intEvents).sort(pool, ints);
+        CountingObserver comparatorEvents = new CountingObserver();
+        new ComparatorMergeSort(SETTINGS, comparatorEvents).sort(pool, items, Comparator.<Integer>naturalOrder());
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(ints[i], items[i].intValue());
+        }
+        comparatorEvents.check();
+        assertEquals(intEvents.toString(), comparatorEvents.toString());
+    }
+
+    @Test
+    public void shouldReportForksFromOffHeapEngine() {
+        int[] ints = Distribution.RANDOM.ints(SIZE, 3);
+        ByteBuffer buffer = OffHeapMemory.allocate(SIZE * Long.BYTES);
+        try {
+            LongBuffer longs = buffer.asLongBuffer();
+            for (int i = 0; i < SIZE; i++) {
+                longs.put(i, ints[i]);
+            }
+            CountingObserver intEvents = new CountingObserver();
+            new IntMergeSort(SETTINGS, intEvents).sort(pool, ints);
+            CountingObserver offHeapEvents = new CountingObserver();
+            new OffHeapLongMergeSort(SETTINGS, offHeapEvents).sort(pool, longs);
+
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(ints[i], longs.get(i));
+            }
+            offHeapEvents.check();
+            assertEquals(intEvents.toString(), offHeapEvents.toString());
+        } finally {
+            OffHeapMemory.free(buffer);
+        }
+    }
+
+    @Test
+    public void shouldReportForksFromQuickSort() {
+        int[] numbers = Distribution.RANDOM.ints(SIZE, 4);
+        CountingObserver events = new CountingObserver();
+        new IntQuickSort(SETTINGS, IntPartitioner.DUAL_PIVOT, events).sort(pool, numbers);
+        assertSorted(numbers);
+        events.checkPartitioning();
+    }
+
+    @Test
+    public void shouldReportForksFromSampleSort() {
+        for (Distribution distribution : Distribution.values()) {
+            int[] numbers = distribution.ints(SIZE, 5);
+            CountingObserver events = new CountingObserver();
+            new IntSampleSort(SETTINGS, events).sort(pool, numbers);
+            assertSorted(numbers);
+            events.checkPartitioning();
+            // bucket tasks fork one half
+            assertEquals(distribution.toString(), events.waiting.get(), events.forked.get());
+        }
+    }
+
+    private static void assertSorted(int[] numbers) {
+        for (int i = 1; i < numbers.length; i++) {
+            assertTrue(numbers[i - 1] <= numbers[i]);
+        }
+    }
+
+    /**
+     * Counts the events that do not depend on scheduling, steals only have to be consistent with forks.
+     */
+    private static class CountingObserver implements SortObserver {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger forked = new AtomicInteger();
+        private final AtomicInteger stolen = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicInteger merges = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+
+        @Override
+        public void taskCreated(int depth, int from, int to) {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public void taskStarted(int depth, int from, int to) {
+            started.incrementAndGet();
+        }
+
+        @Override
+        public void taskForked(int depth, int from, int to) {
+            forked.incrementAndGet();
+        }
+
+        @Override
+        public void taskStolen(int depth, int from, int to) {
+            stolen.incrementAndGet();
+        }
+
+        @Override
+        public void taskWaiting(int depth, int from, int to) {
+            waiting.incrementAndGet();
+        }
+
+        @Override
+        public void mergeStarted(int depth, int from, int to) {
+            merges.incrementAndGet();
+        }
+
+        @Override
+        public void taskFinished(int depth, int from, int to) {
+            finished.incrementAndGet();
+        }
+
+        void check() {
+            assertTrue(forked.get() > 0);
+            assertTrue(stolen.get() <= forked.get());
+            assertEquals(created.get(), started.get());
+            assertEquals(created.get(), finished.get());
+            assertEquals(waiting.get(), forked.get());
+            assertEquals(waiting.get(), merges.get());
+        }
+
+        /**
+         * Partitioning sorts have no merge phase and may fork more subtasks per split.
+         */
+        void checkPartitioning() {
+            assertTrue(forked.get() > 0);
+            assertTrue(stolen.get() <= forked.get());
+            assertTrue(forked.get() >= waiting.get());
+            assertEquals(created.get(), started.get());
+            assertEquals(created.get(), finished.get());
+            assertEquals(0, merges.get());
+        }
+
+        @Override
+        public String toString() {
+            return "created=" + created + ", started=" + started + ", forked=" + forked + ", waiting=" + waiting
+                + ", merges=" + merges + ", finished=" + finished;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.javacrumbs.fjdemo.steal.DequeType;
+import net.javacrumbs.fjdemo.steal.IdleStrategy;
+import net.javacrumbs.fjdemo.steal.LocalMode;
+import net.javacrumbs.fjdemo.steal.StealStrategy;
+import net.javacrumbs.fjdemo.steal.StealingSettings;
+import net.javacrumbs.fjdemo.steal.WorkStealingExecutor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StealingIntMergeSortTest {
+    private static final SortSettings SMALL_TASKS = SortSettings.defaults().withSequentialThreshold(100).withMergeThreshold(200);
+
+    @Test
+    public void shouldSortWithEveryPolicyCombination() {
+        int combinations = 0;
+        for (DequeType dequeType : DequeType.values()) {
+            for (StealStrategy stealStrategy : StealStrategy.values()) {
+                for (LocalMode localMode : LocalMode.values()) {
+                    for (IdleStrategy idleStrategy : IdleStrategy.values()) {
+                        StealingSettings settings = StealingSettings.defaults().withDequeType(dequeType)
+                            .withStealStrategy(stealStrategy).withLocalMode(localMode).withIdleStrategy(idleStrategy);
+                        try (WorkStealingExecutor executor = new WorkStealingExecutor(4, settings)) {
+                            for (Distribution distribution : Distribution.values()) {
+                                int[] numbers = distribution.ints(50_000, combinations);
+                                int[] expected = numbers.clone();
+                                Arrays.sort(expected);
+                                new StealingIntMergeSort(SMALL_TASKS).sort(executor, numbers);
+                                assertArrayEquals(settings + " " + distribution, expected, numbers);
+                            }
+                        }
+                        combinations++;
+                    }
+                }
+            }
+        }
+        assertEquals(36, combinations);
+    }
+
+    @Test
+    public void shouldSortRange() {
+        int[] numbers = Distribution.RANDOM.ints(10_000, 1);
+        int[] expected = numbers.clone();
+        Arrays.sort(expected, 1000, 9000);
+        try (WorkStealingExecutor executor = new WorkStealingExecutor(2)) {
+            new StealingIntMergeSort(SMALL_TASKS).sort(executor, numbers, 1000, 9000);
+        }
+        assertArrayEquals(expected, numbers);
+    }
+
+    @Test
+    public void shouldReportTaskLifeCycle() {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger forked = new AtomicInteger();
+        final AtomicInteger waiting = new AtomicInteger();
+        SortObserver observer = new SortObserver() {
+            @Override
+            public void taskCreated(int depth, int from, int to) {
+                created.incrementAndGet();
+            }
+
+            @Override
+            public void taskForked(int depth, int from, int to) {
+                forked.incrementAndGet();
+            }
+
+            @Override
+            public void taskWaiting(int depth, int from, int to) {
+                waiting.incrementAndGet();
+            }
+
+            @Override
+            public void taskFinished(int depth, int from, int to) {
+                finished.incrementAndGet();
+            }
+        };
+        int[] numbers = Distribution.RANDOM.ints(10_000, 2);
+        try (WorkStealingExecutor executor = new WorkStealingExecutor(2)) {
+            new StealingIntMergeSort(SMALL_TASKS, observer).sort(executor, numbers);
+        }
+        assertTrue(created.get() > 1);
+        assertEquals(created.get(), finished.get());
+        // every inner task forks its right half
+        assertEquals(waiting.get(), forked.get());
+        assertEquals(created.get(), 2 * forked.get() + 1);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingIntSortTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final SortSettings settings = SortSettings.defaults().withSequentialThreshold(100).withMergeThreshold(500);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldSortChunks() throws InterruptedException {
+        Random random = new Random(1);
+        for (int fanout = 2; fanout <= 5; fanout++) {
+            StreamingIntSort sort = new StreamingIntSort(pool, settings, fanout);
+            int[] numbers = Distribution.RANDOM.ints(200_000, fanout);
+            int from = 0;
+            while (from < numbers.length) {
+                int to = Math.min(from + random.nextInt(10_000), numbers.length);
+                sort.add(numbers, from, to);
+                from = to;
+            }
+            assertEquals(numbers.length, sort.getSize());
+            Arrays.sort(numbers);
+            assertArrayEquals("fanout " + fanout, numbers, sort.finish());
+        }
+    }
+
+    @Test
+    public void shouldMergeInBackground() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool, settings, 2);
+        for (int i = 0; i < 16; i++) {
+            sort.add(Distribution.RANDOM.ints(1000, i));
+        }
+        // let all the chunks be sorted and merged before the input is closed
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        sort.finish();
+        // 8 + 4 + 2 + 1 merges, every element is merged once per level
+        assertEquals(15, sort.getMerges());
+        assertEquals(4 * 16_000, sort.getMergedElements());
+    }
+
+    @Test
+    public void shouldSortChunksOfEveryDistribution() throws InterruptedException {
+        for (Distribution distribution : Distribution.values()) {
+            StreamingIntSort sort = new StreamingIntSort(pool, settings, 3);
+            int[] numbers = distribution.ints(50_000, 2);
+            for (int from = 0; from < numbers.length; from += 1234) {
+                sort.add(numbers, from, Math.min(from + 1234, numbers.length));
+            }
+            Arrays.sort(numbers);
+            assertArrayEquals(distribution.toString(), numbers, sort.finish());
+        }
+    }
+
+    @Test
+    public void shouldIgnoreEmptyChunks() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool, settings, 2);
+        sort.add(new int[0]);
+        sort.add(new int[]{3, 1, 2});
+        sort.add(new int[]{5, 4}, 1, 1);
+        sort.add(new int[0]);
+        sort.add(new int[]{0});
+        assertEquals(4, sort.getSize());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, sort.finish());
+    }
+
+    @Test
+    public void shouldFinishWithoutData() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool);
+        sort.add(new int[0]);
+        assertArrayEquals(new int[0], sort.finish());
+    }
+
+    @Test
+    public void shouldCopyChunks() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool, settings, 2);
+        int[] chunk = {3, 2, 1};
+        sort.add(chunk);
+        Arrays.fill(chunk, 7);
+        sort.add(chunk);
+        assertArrayEquals(new int[]{1, 2, 3, 7, 7, 7}, sort.finish());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectChunkAfterFinish() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool);
+        sort.add(new int[]{1});
+        sort.finish();
+        sort.add(new int[]{2});
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectSecondFinish() throws InterruptedException {
+        StreamingIntSort sort = new StreamingIntSort(pool);
+        sort.add(new int[]{2, 1});
+        sort.finish();
+        sort.finish();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidFanout() {
+        new StreamingIntSort(pool, settings, 1);
+    }
+}
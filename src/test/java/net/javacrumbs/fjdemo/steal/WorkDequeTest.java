@@ -0,0 +1,124 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WorkDequeTest {
+    private static final int TASKS = 1_000_000;
+    private static final int THIEVES = 3;
+
+    @Test
+    public void shouldPopNewestAndPollOldest() {
+        for (DequeType dequeType : DequeType.values()) {
+            WorkDeque<Integer> deque = dequeType.create();
+            for (int i = 0; i < 1000; i++) {
+                deque.push(i);
+            }
+            assertEquals(1000, deque.size());
+            assertEquals(Integer.valueOf(999), deque.pop());
+            assertEquals(Integer.valueOf(0), deque.poll());
+            assertEquals(998, deque.size());
+            for (int i = 998; i > 0; i--) {
+                assertEquals(Integer.valueOf(i), deque.pop());
+            }
+            assertNull(deque.pop());
+            assertNull(deque.poll());
+            assertEquals(0, deque.size());
+        }
+    }
+
+    @Test
+    public void shouldStealHalf() {
+        for (DequeType dequeType : DequeType.values()) {
+            WorkDeque<Integer> victim = dequeType.create();
+            WorkDeque<Integer> thief = dequeType.create();
+            for (int i = 0; i < 10; i++) {
+                victim.push(i);
+            }
+            assertEquals(Integer.valueOf(0), victim.stealHalf(thief));
+            assertEquals(4, thief.size());
+            assertEquals(5, victim.size());
+        }
+    }
+
+    /**
+     * The owner pushes and pops while the thieves poll, every task has to be taken exactly once.
+     */
+    @Test
+    public void shouldTakeEveryTaskExactlyOnceUnderContention() throws InterruptedException {
+        for (DequeType dequeType : DequeType.values()) {
+            final WorkDeque<Integer> deque = dequeType.create();
+            final AtomicIntegerArray taken = new AtomicIntegerArray(TASKS);
+            final AtomicLong takenCount = new AtomicLong();
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] thieves = new Thread[THIEVES];
+            for (int i = 0; i < THIEVES; i++) {
+                thieves[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        await(start);
+                        while (takenCount.get() < TASKS) {
+                            take(deque.poll(), taken, takenCount);
+                        }
+                    }
+                });
+                thieves[i].start();
+            }
+            start.countDown();
+            for (int i = 0; i < TASKS; i++) {
+                deque.push(i);
+                // pop now and then so the owner races with the thieves for the last tasks
+                if (i % 3 == 0) {
+                    take(deque.pop(), taken, takenCount);
+                }
+            }
+            Integer task;
+            while ((task = deque.pop()) != null) {
+                take(task, taken, takenCount);
+            }
+            for (Thread thief : thieves) {
+                thief.join(60_000);
+            }
+            assertEquals(dequeType.toString(), TASKS, takenCount.get());
+            for (int i = 0; i < TASKS; i++) {
+                assertEquals(dequeType + " task " + i, 1, taken.get(i));
+            }
+        }
+    }
+
+    private static void take(Integer task, AtomicIntegerArray taken, AtomicLong takenCount) {
+        if (task != null) {
+            taken.incrementAndGet(task);
+            takenCount.incrementAndGet();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.steal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorkStealingExecutorTest {
+
+    @Test
+    public void shouldInvokeTask() {
+        try (WorkStealingExecutor executor = new WorkStealingExecutor(2)) {
+            assertEquals(Integer.valueOf(42), executor.invoke(new Constant(42)));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectAfterClose() {
+        WorkStealingExecutor executor = new WorkStealingExecutor(1);
+        executor.close();
+        executor.invoke(new Constant(1));
+    }
+
+    @Test
+    public void shouldRejectQueuedSubmissionsOnClose() throws Exception {
+        final WorkStealingExecutor executor = new WorkStealingExecutor(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                executor.invoke(new Blocking(started, release));
+            }
+        });
+        blocker.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the only worker is busy, the second submission waits in the queue
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.invoke(new Constant(1));
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING && waiter.isAlive()) {
+            Thread.yield();
+        }
+
+        executor.close();
+        release.countDown();
+        waiter.join(10000);
+        blocker.join(10000);
+        assertFalse("queued invoke hangs after close", waiter.isAlive());
+        assertTrue(String.valueOf(failure.get()), failure.get() instanceof RejectedExecutionException);
+    }
+
+    private static class Constant extends StealingRecursiveTask<Integer> {
+        private final int value;
+
+        Constant(int value) {
+            this.value = value;
+        }
+
+        @Override
+        protected Integer compute() {
+            return value;
+        }
+    }
+
+    private static class Blocking extends StealingRecursiveTask<Void> {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        Blocking(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        protected Void compute() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2009-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.javacrumbs.fjdemo.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TraceWriterTest {
+    private static final String POOL_THREAD = "dedicated-stream-pool-worker-12";
+
+    @Test
+    public void shouldRoundTripThreadNamesAtEveryBufferOffset() throws IOException {
+        // the first name shifts the second thread record across the buffer boundary one byte at a time
+        int start = TraceWriter.BUFFER_SIZE - 2 * POOL_THREAD.length() - 64;
+        for (int length = start; length < TraceWriter.BUFFER_SIZE; length++) {
+            List<TaskEvent> events = new ArrayList<>();
+            events.add(new TaskEvent(100, 1, name(length), TaskEventType.CREATED, 0, 0, 1000));
+            events.add(new TaskEvent(150, 2, POOL_THREAD, TaskEventType.STARTED, 0, 0, 1000));
+            events.add(new TaskEvent(200, 1, name(length), TaskEventType.FINISHED, 0, 0, 1000));
+            assertRoundTrip(events);
+        }
+    }
+
+    @Test
+    public void shouldRoundTripNamesLongerThanBuffer() throws IOException {
+        List<TaskEvent> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(new TaskEvent(i, i, name(TraceWriter.BUFFER_SIZE * (i + 1) + i), TaskEventType.WAITING, i, i, 2 * i + 1));
+        }
+        assertRoundTrip(events);
+    }
+
+    private static void assertRoundTrip(List<TaskEvent> events) throws IOException {
+        Path file = Files.createTempFile("trace", ".bin");
+        try {
+            try (TraceWriter writer = new TraceWriter(file)) {
+                events.forEach(writer);
+            }
+            List<TaskEvent> read = TraceReader.read(file);
+            assertEquals(events.size(), read.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(events.get(i).toString(), read.get(i).toString());
+                assertEquals(events.get(i).getThreadName(), read.get(i).getThreadName());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static String name(int length) {
+        char[] name = new char[length];
+        Arrays.fill(name, 'w');
+        return new String(name);
+    }
+}